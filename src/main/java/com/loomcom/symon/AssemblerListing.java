@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * An assembler listing file, read far enough to know which listing lines
+ * assembled to which addresses, and which of those lines are instructions
+ * rather than data.
+ * <p>
+ * Two listing formats are understood: AS65 listings, as in
+ * {@code samples/tests}, and ca65 listings ({@code ca65 -l}). ca65 lines
+ * whose addresses are relocatable (marked {@code r}) are skipped, since
+ * their final addresses are only known to the linker; assemble with
+ * {@code .org} to get absolute addresses in the listing.
+ */
+public class AssemblerListing {
+
+    // AS65: "0467 : ca                       dex"
+    private static final Pattern AS65_LINE =
+            Pattern.compile("^([0-9A-Fa-f]{4}) : ([0-9A-Fa-f]*)(?:\\.\\.)?(\\s.*)?$");
+
+    // ca65: "00C000  1  A9 00              lda #$00"
+    private static final Pattern CA65_LINE =
+            Pattern.compile("^([0-9A-Fa-f]{6})(r?)\\s+\\d+\\s+((?:[0-9A-Fa-f]{2}\\s)*)(?:xx\\s)*\\s*(.*)$");
+
+    private static final int AS65_SOURCE_COLUMN = 24;
+
+    private static final Set<String> MNEMONICS = new HashSet<>();
+
+    static {
+        for (String name : InstructionTable.opcodeNames) {
+            if (name != null) {
+                MNEMONICS.add(name.toLowerCase(Locale.ENGLISH));
+            }
+        }
+    }
+
+    /**
+     * One line of the listing that assembled to at least one byte, or
+     * defined a label.
+     */
+    public static class Line {
+        /** Line number in the listing file, counting from 1. */
+        public final int lineNumber;
+        public final int address;
+        /** Number of bytes the line assembled to. */
+        public final int length;
+        /** The label defined on the line, or null. */
+        public final String label;
+        /** True if the line is a 6502 instruction. */
+        public final boolean instruction;
+
+        Line(int lineNumber, int address, int length, String label, boolean instruction) {
+            this.lineNumber = lineNumber;
+            this.address = address;
+            this.length = length;
+            this.label = label;
+            this.instruction = instruction;
+        }
+    }
+
+    private final List<Line> lines;
+
+    private AssemblerListing(List<Line> lines) {
+        this.lines = Collections.unmodifiableList(lines);
+    }
+
+    /**
+     * @return The lines of the listing that have an address, in listing
+     * order.
+     */
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    /**
+     * @return The number of lines that are 6502 instructions.
+     */
+    public int getInstructionLineCount() {
+        int count = 0;
+        for (Line line : lines) {
+            if (line.instruction) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Read a listing.
+     *
+     * @param in The listing to read.
+     * @return The listing.
+     * @throws IOException if the listing can't be read.
+     */
+    public static AssemblerListing read(Reader in) throws IOException {
+        List<Line> lines = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(in);
+        String text;
+        int lineNumber = 0;
+
+        while ((text = reader.readLine()) != null) {
+            lineNumber++;
+            Line line = parseLine(lineNumber, text);
+            if (line != null) {
+                lines.add(line);
+            }
+        }
+
+        return new AssemblerListing(lines);
+    }
+
+    static Line parseLine(int lineNumber, String text) {
+        int address;
+        int length;
+        String source;
+        boolean labelColumn;
+
+        Matcher m = AS65_LINE.matcher(text);
+        if (m.matches()) {
+            address = Integer.parseInt(m.group(1), 16);
+            length = m.group(2).length() / 2;
+            // AS65 puts the source at a fixed column, so a label is
+            // anything that starts right at that column.
+            source = text.length() > AS65_SOURCE_COLUMN ? text.substring(AS65_SOURCE_COLUMN) : "";
+            labelColumn = !source.isEmpty() && !Character.isWhitespace(source.charAt(0));
+        } else {
+            m = CA65_LINE.matcher(text);
+            if (!m.matches() || !m.group(2).isEmpty()) {
+                return null;
+            }
+            address = Integer.parseInt(m.group(1), 16) & 0xffff;
+            length = m.group(3).trim().isEmpty() ? 0 : m.group(3).trim().split("\\s+").length;
+            source = m.group(4);
+            labelColumn = false;
+        }
+
+        int comment = source.indexOf(';');
+        if (comment >= 0) {
+            source = source.substring(0, comment);
+        }
+        String[] tokens = source.trim().split("\\s+");
+
+        String label = null;
+        int next = 0;
+        if (tokens[0].endsWith(":")) {
+            label = tokens[0].substring(0, tokens[0].length() - 1);
+            next = 1;
+        } else if (labelColumn && !tokens[0].isEmpty()) {
+            label = tokens[0];
+            next = 1;
+        }
+        boolean instruction = length > 0 && next < tokens.length && isMnemonic(tokens[next]);
+
+        if (length == 0 && label == null) {
+            return null;
+        }
+
+        return new Line(lineNumber, address, length, label, instruction);
+    }
+
+    private static boolean isMnemonic(String token) {
+        return MNEMONICS.contains(token.toLowerCase(Locale.ENGLISH));
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import com.loomcom.symon.exceptions.MemoryAccessException;
+
+import java.util.Locale;
+
+/**
+ * A condition on the CPU registers and memory, under which a breakpoint
+ * halts the simulator. Conditions are parsed once, into a tree of small
+ * objects, so testing one costs no more than evaluating the expression.
+ * <p>
+ * The syntax is a small expression language:
+ * <ul>
+ *     <li>Registers {@code A}, {@code X}, {@code Y}, {@code SP},
+ *     {@code P} and {@code PC}, and flags {@code C}, {@code Z},
+ *     {@code I}, {@code D}, {@code B}, {@code V} and {@code N}, which
+ *     are 0 or 1.</li>
+ *     <li>Numbers in hex ({@code $FF}), binary ({@code %1010}) or
+ *     decimal ({@code 255}).</li>
+ *     <li>Memory bytes, as {@code [address]}, for example
+ *     {@code [$0200 + X]}.</li>
+ *     <li>{@code +}, {@code -} and {@code &} (bitwise and), then the
+ *     comparisons {@code == != < <= > >=}, then {@code &&}, then
+ *     {@code ||}, from tightest to loosest. Parentheses group.</li>
+ * </ul>
+ * A value on its own is true if it is not zero, e.g. {@code [$10] & $80}.
+ */
+public class BreakpointCondition {
+
+    interface Expression {
+        int eval(CpuState state, Bus bus) throws MemoryAccessException;
+    }
+
+    private final String text;
+    private final Expression expression;
+
+    private BreakpointCondition(String text, Expression expression) {
+        this.text = text;
+        this.expression = expression;
+    }
+
+    /**
+     * Parse a condition.
+     *
+     * @param text The condition.
+     * @return The parsed condition.
+     * @throws IllegalArgumentException if the condition is not valid.
+     */
+    public static BreakpointCondition parse(String text) {
+        Parser parser = new Parser(text);
+        Expression expression = parser.parseOr();
+        if (parser.pos < text.length()) {
+            throw new IllegalArgumentException("Unexpected '" + text.substring(parser.pos) + "' in condition");
+        }
+        return new BreakpointCondition(text.trim(), expression);
+    }
+
+    /**
+     * @param state The current CPU state.
+     * @param bus   The bus to read memory from. Reads are not CPU
+     *              accesses, so they have no side effects on devices.
+     * @return True if the condition holds. False if it reads memory that
+     * is not mapped.
+     */
+    public boolean test(CpuState state, Bus bus) {
+        try {
+            return expression.eval(state, bus) != 0;
+        } catch (MemoryAccessException ex) {
+            return false;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+
+    /**
+     * A recursive descent parser that builds the expression tree.
+     */
+    private static class Parser {
+        private final String text;
+        private int pos = 0;
+
+        Parser(String text) {
+            this.text = text;
+            skipSpace();
+            if (pos == text.length()) {
+                throw new IllegalArgumentException("Empty condition");
+            }
+        }
+
+        Expression parseOr() {
+            Expression left = parseAnd();
+            while (accept("||")) {
+                Expression l = left;
+                Expression r = parseAnd();
+                left = (s, b) -> (l.eval(s, b) != 0 || r.eval(s, b) != 0) ? 1 : 0;
+            }
+            return left;
+        }
+
+        Expression parseAnd() {
+            Expression left = parseComparison();
+            while (accept("&&")) {
+                Expression l = left;
+                Expression r = parseComparison();
+                left = (s, b) -> (l.eval(s, b) != 0 && r.eval(s, b) != 0) ? 1 : 0;
+            }
+            return left;
+        }
+
+        Expression parseComparison() {
+            Expression l = parseValue();
+            Expression r;
+            if (accept("==")) {
+                r = parseValue();
+                return (s, b) -> l.eval(s, b) == r.eval(s, b) ? 1 : 0;
+            } else if (accept("!=")) {
+                r = parseValue();
+                return (s, b) -> l.eval(s, b) != r.eval(s, b) ? 1 : 0;
+            } else if (accept("<=")) {
+                r = parseValue();
+                return (s, b) -> l.eval(s, b) <= r.eval(s, b) ? 1 : 0;
+            } else if (accept(">=")) {
+                r = parseValue();
+                return (s, b) -> l.eval(s, b) >= r.eval(s, b) ? 1 : 0;
+            } else if (accept("<")) {
+                r = parseValue();
+                return (s, b) -> l.eval(s, b) < r.eval(s, b) ? 1 : 0;
+            } else if (accept(">")) {
+                r = parseValue();
+                return (s, b) -> l.eval(s, b) > r.eval(s, b) ? 1 : 0;
+            }
+            return l;
+        }
+
+        Expression parseValue() {
+            Expression left = parsePrimary();
+            while (true) {
+                Expression l = left;
+                if (accept("+")) {
+                    Expression r = parsePrimary();
+                    left = (s, b) -> l.eval(s, b) + r.eval(s, b);
+                } else if (accept("-")) {
+                    Expression r = parsePrimary();
+                    left = (s, b) -> l.eval(s, b) - r.eval(s, b);
+                } else if (!lookingAt("&&") && accept("&")) {
+                    Expression r = parsePrimary();
+                    left = (s, b) -> l.eval(s, b) & r.eval(s, b);
+                } else {
+                    return left;
+                }
+            }
+        }
+
+        Expression parsePrimary() {
+            if (accept("(")) {
+                Expression e = parseOr();
+                expect(")");
+                return e;
+            }
+            if (accept("[")) {
+                Expression address = parseValue();
+                expect("]");
+                return (s, b) -> b.read(address.eval(s, b) & 0xffff, false);
+            }
+            if (accept("$")) {
+                return constant(number(16));
+            }
+            if (accept("%")) {
+                return constant(number(2));
+            }
+            if (pos < text.length() && Character.isDigit(text.charAt(pos))) {
+                return constant(number(10));
+            }
+
+            int start = pos;
+            while (pos < text.length() && Character.isLetter(text.charAt(pos))) {
+                pos++;
+            }
+            String name = text.substring(start, pos).toUpperCase(Locale.ENGLISH);
+            skipSpace();
+            switch (name) {
+                case "A":
+                    return (s, b) -> s.a;
+                case "X":
+                    return (s, b) -> s.x;
+                case "Y":
+                    return (s, b) -> s.y;
+                case "SP":
+                    return (s, b) -> s.sp;
+                case "PC":
+                    return (s, b) -> s.pc;
+                case "P":
+                    return (s, b) -> s.getStatusFlag();
+                case "C":
+                    return (s, b) -> s.carryFlag ? 1 : 0;
+                case "Z":
+                    return (s, b) -> s.zeroFlag ? 1 : 0;
+                case "I":
+                    return (s, b) -> s.irqDisableFlag ? 1 : 0;
+                case "D":
+                    return (s, b) -> s.decimalModeFlag ? 1 : 0;
+                case "B":
+                    return (s, b) -> s.breakFlag ? 1 : 0;
+                case "V":
+                    return (s, b) -> s.overflowFlag ? 1 : 0;
+                case "N":
+                    return (s, b) -> s.negativeFlag ? 1 : 0;
+                case "":
+                    throw new IllegalArgumentException(pos < text.length() ?
+                                                       "Unexpected '" + text.substring(pos) + "' in condition" :
+                                                       "Condition ends too soon");
+                default:
+                    throw new IllegalArgumentException("Unknown register " + name);
+            }
+        }
+
+        private Expression constant(int value) {
+            return (s, b) -> value;
+        }
+
+        private int number(int radix) {
+            int start = pos;
+            while (pos < text.length() && Character.digit(text.charAt(pos), radix) >= 0) {
+                pos++;
+            }
+            if (start == pos) {
+                throw new IllegalArgumentException("Expected a number in condition");
+            }
+            int value = Integer.parseInt(text.substring(start, pos), radix);
+            skipSpace();
+            return value;
+        }
+
+        private boolean lookingAt(String token) {
+            return text.startsWith(token, pos);
+        }
+
+        private boolean accept(String token) {
+            if (lookingAt(token)) {
+                pos += token.length();
+                skipSpace();
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) {
+                throw new IllegalArgumentException("Expected '" + token + "' in condition");
+            }
+        }
+
+        private void skipSpace() {
+            while (pos < text.length() && Character.isWhitespace(text.charAt(pos))) {
+                pos++;
+            }
+        }
+    }
+}
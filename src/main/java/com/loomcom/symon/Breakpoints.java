@@ -27,77 +27,258 @@ import com.loomcom.symon.exceptions.MemoryAccessException;
 import com.loomcom.symon.util.Utils;
 
 import javax.swing.table.AbstractTableModel;
-import java.util.ArrayList;
-import java.util.TreeSet;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLongArray;
 
+/**
+ * The breakpoints, and the table model the Breakpoints Window shows them
+ * with.
+ * <p>
+ * The run loop checks for a breakpoint after every instruction, so the
+ * check is a bit test in a 64K bitmap. Only when the bit is set is the
+ * breakpoint itself looked up, its condition tested and its hit counted.
+ * The bitmap is an atomic array, so a breakpoint added on the event thread
+ * while running is seen by the run loop at its next check.
+ * <p>
+ * The table rows are an array of the breakpoints in address order, rebuilt
+ * only when a breakpoint is added or removed. Each row caches its
+ * disassembly along with the instruction bytes it was made from, and
+ * {@link #refresh()} only disassembles again the rows whose bytes have
+ * changed.
+ */
 public class Breakpoints extends AbstractTableModel {
 
-    private final TreeSet<Integer> breakpoints;
+    /**
+     * A breakpoint at one address, with an optional condition and hit
+     * count.
+     */
+    public static class Breakpoint {
+        private final int address;
+        private final BreakpointCondition condition;
+        private final long hitTarget;
+        private volatile long hits;
+
+        /**
+         * @param address   The address to break at.
+         * @param condition Only halt if this holds, or null to always halt.
+         * @param hitTarget Only halt on the hitTarget'th time the address
+         *                  is reached with the condition holding, and
+         *                  every time after. 1 to halt every time.
+         */
+        public Breakpoint(int address, BreakpointCondition condition, long hitTarget) {
+            this.address = address & 0xffff;
+            this.condition = condition;
+            this.hitTarget = Math.max(1, hitTarget);
+        }
+
+        public int getAddress() {
+            return address;
+        }
+
+        public BreakpointCondition getCondition() {
+            return condition;
+        }
+
+        public long getHitTarget() {
+            return hitTarget;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        boolean hit(CpuState state, Bus bus) {
+            if (condition != null && !condition.test(state, bus)) {
+                return false;
+            }
+            return ++hits >= hitTarget;
+        }
+    }
+
+    private static final String[] COLUMN_NAMES = {"Address", "Condition", "Hits", "Inst"};
+
+    private final AtomicLongArray addressBits = new AtomicLongArray(0x10000 / 64);
+    private final ConcurrentSkipListMap<Integer, Breakpoint> breakpoints;
     private final Simulator simulator;
 
+    // The table rows, in address order. Only used on the event thread.
+    private Breakpoint[] rows = new Breakpoint[0];
+    private String[] disassembly = new String[0];
+    private int[] disassembledBytes = new int[0];
+
+    private SymbolTable symbolTable = SymbolTable.EMPTY;
+
     public Breakpoints(Simulator simulator) {
-        this.breakpoints = new TreeSet<>();
+        this.breakpoints = new ConcurrentSkipListMap<>();
         this.simulator = simulator;
     }
 
     public boolean contains(int address) {
-        return this.breakpoints.contains(address);
+        address &= 0xffff;
+        return (addressBits.get(address >>> 6) & (1L << address)) != 0;
+    }
+
+    /**
+     * Called by the run loop after every instruction.
+     *
+     * @param state The CPU state, with the PC at the next instruction.
+     * @param bus   The bus conditions read memory from.
+     * @return True if a breakpoint at the PC should halt the simulator.
+     */
+    public boolean shouldBreak(CpuState state, Bus bus) {
+        if (!contains(state.pc)) {
+            return false;
+        }
+        Breakpoint breakpoint = breakpoints.get(state.pc);
+        return breakpoint != null && breakpoint.hit(state, bus);
+    }
+
+    /**
+     * Set the labels used in the disassembly, and to enter breakpoints by
+     * name.
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable == null ? SymbolTable.EMPTY : symbolTable;
+        Arrays.fill(disassembly, null);
+        fireTableDataChanged();
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
     }
 
     public void addBreakpoint(int address) {
-        this.breakpoints .add(address);
+        addBreakpoint(new Breakpoint(address, null, 1));
+    }
+
+    /**
+     * Add a breakpoint, replacing any other at the same address.
+     */
+    public void addBreakpoint(Breakpoint breakpoint) {
+        int address = breakpoint.getAddress();
+        this.breakpoints.put(address, breakpoint);
+        addressBits.accumulateAndGet(address >>> 6, 1L << address, (bits, bit) -> bits | bit);
+        rebuildRows();
         fireTableDataChanged();
     }
 
     public void removeBreakpointAtIndex(int index) {
-        if (index < 0) {
+        if (index < 0 || index >= rows.length) {
             return;
         }
 
-        ArrayList<Integer> values = new ArrayList<>(breakpoints);
-        int value = values.get(index);
-        this.breakpoints.remove(value);
+        int address = rows[index].getAddress();
+        addressBits.accumulateAndGet(address >>> 6, ~(1L << address), (bits, mask) -> bits & mask);
+        this.breakpoints.remove(address);
+        rebuildRows();
         fireTableDataChanged();
     }
 
+    /**
+     * Update hit counts, and the disassembly of any breakpoints whose
+     * instructions have changed in memory.
+     */
     public void refresh() {
+        for (int i = 0; i < rows.length; i++) {
+            if (disassembly[i] != null && readInstructionBytes(rows[i].getAddress()) != disassembledBytes[i]) {
+                disassembly[i] = null;
+            }
+        }
         fireTableDataChanged();
     }
 
+    /**
+     * Rebuild the table rows from the breakpoints, keeping the cached
+     * disassembly of breakpoints that are still there.
+     */
+    private void rebuildRows() {
+        Breakpoint[] newRows = breakpoints.values().toArray(new Breakpoint[0]);
+        String[] newDisassembly = new String[newRows.length];
+        int[] newBytes = new int[newRows.length];
+
+        int old = 0;
+        for (int i = 0; i < newRows.length; i++) {
+            int address = newRows[i].getAddress();
+            while (old < rows.length && rows[old].getAddress() < address) {
+                old++;
+            }
+            if (old < rows.length && rows[old].getAddress() == address) {
+                newDisassembly[i] = disassembly[old];
+                newBytes[i] = disassembledBytes[old];
+            }
+        }
+
+        rows = newRows;
+        disassembly = newDisassembly;
+        disassembledBytes = newBytes;
+    }
+
+    /**
+     * @return The bytes of the instruction at the address, packed into an
+     * int with the opcode in the low byte, or -1 if they can't be read.
+     */
+    private int readInstructionBytes(int address) {
+        try {
+            int opcode = simulator.peekMemory(address);
+            int bytes = opcode;
+            for (int i = 1; i < Cpu.instructionSizes[opcode]; i++) {
+                bytes |= simulator.peekMemory((address + i) & 0xffff) << (8 * i);
+            }
+            return bytes;
+        } catch (MemoryAccessException ex) {
+            return -1;
+        }
+    }
+
+    private String getDisassembly(int row) {
+        if (disassembly[row] == null) {
+            int address = rows[row].getAddress();
+            int bytes = readInstructionBytes(address);
+            if (bytes == -1) {
+                return "???";
+            }
+            disassembly[row] = Cpu.disassembleOp(address, bytes & 0xff,
+                                                 new int[]{(bytes >>> 8) & 0xff, (bytes >>> 16) & 0xff},
+                                                 symbolTable);
+            disassembledBytes[row] = bytes;
+        }
+        return disassembly[row];
+    }
+
     @Override
     public String getColumnName(int index) {
-        if (index == 0) {
-            return "Address";
-        } else {
-            return "Inst";
-        }
+        return COLUMN_NAMES[index];
     }
 
     @Override
     public int getRowCount() {
-        return breakpoints.size();
+        return rows.length;
     }
 
     @Override
     public int getColumnCount() {
-        return 2;
+        return COLUMN_NAMES.length;
     }
 
     @Override
     public Object getValueAt(int rowIndex, int columnIndex) {
-        ArrayList<Integer> values = new ArrayList<>(breakpoints);
-
-        if (columnIndex == 0) {
-            return "$" + Utils.wordToHex(values.get(rowIndex));
-        } else if (columnIndex == 1) {
-            int address = values.get(rowIndex);
-            try {
-                return simulator.disassembleOpAtAddress(address);
-            } catch (MemoryAccessException ex) {
-                return "???";
-            }
-        } else {
-            return null;
+        Breakpoint breakpoint = rows[rowIndex];
+
+        switch (columnIndex) {
+            case 0:
+                return "$" + Utils.wordToHex(breakpoint.getAddress());
+            case 1:
+                return breakpoint.getCondition() == null ? "" : breakpoint.getCondition().toString();
+            case 2:
+                if (breakpoint.getHitTarget() > 1) {
+                    return breakpoint.getHits() + "/" + breakpoint.getHitTarget();
+                }
+                return Long.toString(breakpoint.getHits());
+            case 3:
+                return getDisassembly(rowIndex);
+            default:
+                return null;
         }
     }
 }
@@ -24,10 +24,12 @@
 package com.loomcom.symon;
 
 import com.loomcom.symon.devices.Device;
+import com.loomcom.symon.devices.Memory;
 import com.loomcom.symon.exceptions.MemoryAccessException;
 import com.loomcom.symon.exceptions.MemoryRangeException;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 import java.util.HashMap;
@@ -57,6 +59,18 @@ public class Bus {
     // an array for quick lookup of addresses, brute-force style
     private Device[] deviceAddressArray;
 
+    // Per-address counts of CPU reads and writes, or null if access
+    // counting is turned off.
+    private volatile long[] readCounts;
+    private volatile long[] writeCounts;
+
+    // A count of writes to each 256 byte page, so that anything caching
+    // the contents of memory can tell when a page has changed.
+    private final int[] pageVersions = new int[256];
+
+    // Data watchpoints, or null if none are attached.
+    private volatile Watchpoints watchpoints;
+
 
     public Bus(int size) {
         this(0, size - 1);
@@ -88,6 +102,8 @@ public class Bus {
             }
         }
 
+        // Devices may have moved, so every page may read differently.
+        invalidatePageVersions();
     }
 
     /**
@@ -163,12 +179,30 @@ public class Bus {
         return true;
     }
 
+    /**
+     * @return True if the address is decoded to an I/O device, rather than
+     * to RAM or ROM.
+     */
+    public boolean isIoAddress(int address) {
+        Device d = deviceAddressArray[address - this.startAddress];
+        return d != null && !(d instanceof Memory);
+    }
+
     public int read(int address, boolean cpuAccess) throws MemoryAccessException {
         Device d = deviceAddressArray[address - this.startAddress];
+        long[] counts = readCounts;
+        if (counts != null && cpuAccess) {
+            counts[address - this.startAddress]++;
+        }
         if (d != null) {
             MemoryRange range = d.getMemoryRange();
             int devAddr = address - range.startAddress();
-            return d.read(devAddr, cpuAccess) & 0xff;
+            int value = d.read(devAddr, cpuAccess) & 0xff;
+            Watchpoints watch = watchpoints;
+            if (watch != null && cpuAccess && (watch.getPageFlags(address >>> 8) & Watchpoints.READ) != 0) {
+                watch.checkRead(address, value);
+            }
+            return value;
         }
 
         throw new MemoryAccessException("Bus read failed. No device at address " + String.format("$%04X", address));
@@ -176,9 +210,21 @@ public class Bus {
 
     public void write(int address, int value) throws MemoryAccessException {
         Device d = deviceAddressArray[address - this.startAddress];
+        long[] counts = writeCounts;
+        if (counts != null) {
+            counts[address - this.startAddress]++;
+        }
+        pageVersions[(address >>> 8) & 0xff]++;
         if (d != null) {
             MemoryRange range = d.getMemoryRange();
             int devAddr = address - range.startAddress();
+            Watchpoints watch = watchpoints;
+            if (watch != null && (watch.getPageFlags(address >>> 8) & (Watchpoints.WRITE | Watchpoints.CHANGE)) != 0) {
+                int oldValue = watch.needsOldValue(address) ? d.read(devAddr, false) & 0xff : -1;
+                d.write(devAddr, value);
+                watch.checkWrite(address, oldValue, value & 0xff);
+                return;
+            }
             d.write(devAddr, value);
             return;
         }
@@ -186,6 +232,121 @@ public class Bus {
         throw new MemoryAccessException("Bus write failed. No device at address " + String.format("$%04X", address));
     }
 
+    /**
+     * @return A number that changes whenever the page is written to, or
+     * devices are added to or removed from the bus. Devices that change
+     * their own contents, such as I/O registers, don't change it.
+     */
+    public int getPageVersion(int page) {
+        return pageVersions[page & 0xff];
+    }
+
+    /**
+     * Change every page version, for when memory has been changed without
+     * going through the bus, such as by filling RAM directly.
+     */
+    public void invalidatePageVersions() {
+        for (int page = 0; page < pageVersions.length; page++) {
+            pageVersions[page]++;
+        }
+    }
+
+    /**
+     * Turn counting of reads and writes to each address on or off. Reads
+     * are only counted if made by the CPU. Turning counting off discards
+     * the counts.
+     *
+     * @param enabled True to count accesses.
+     */
+    public void setAccessCounting(boolean enabled) {
+        if (enabled && readCounts == null) {
+            int size = (this.endAddress - this.startAddress) + 1;
+            readCounts = new long[size];
+            writeCounts = new long[size];
+        } else if (!enabled) {
+            readCounts = null;
+            writeCounts = null;
+        }
+    }
+
+    public boolean isAccessCounting() {
+        return readCounts != null;
+    }
+
+    /**
+     * Zero the access counts, if access counting is on.
+     */
+    public void resetAccessCounts() {
+        long[] reads = readCounts;
+        long[] writes = writeCounts;
+        if (reads != null) {
+            Arrays.fill(reads, 0);
+            Arrays.fill(writes, 0);
+        }
+    }
+
+    /**
+     * @return The number of CPU reads from the address, or 0 if access
+     * counting is off.
+     */
+    public long getReadCount(int address) {
+        long[] counts = readCounts;
+        if (counts == null || address < startAddress || address > endAddress) {
+            return 0;
+        }
+        return counts[address - this.startAddress];
+    }
+
+    /**
+     * @return The number of writes to the address, or 0 if access
+     * counting is off.
+     */
+    public long getWriteCount(int address) {
+        long[] counts = writeCounts;
+        if (counts == null || address < startAddress || address > endAddress) {
+            return 0;
+        }
+        return counts[address - this.startAddress];
+    }
+
+    /**
+     * @return The number of CPU reads from the 256 byte page.
+     */
+    public long getPageReadCount(int page) {
+        return sumPage(readCounts, page);
+    }
+
+    /**
+     * @return The number of writes to the 256 byte page.
+     */
+    public long getPageWriteCount(int page) {
+        return sumPage(writeCounts, page);
+    }
+
+    private long sumPage(long[] counts, int page) {
+        if (counts == null) {
+            return 0;
+        }
+        int from = Math.max(page << 8, this.startAddress);
+        int to = Math.min((page << 8) | 0xff, this.endAddress);
+        long sum = 0;
+        for (int address = from; address <= to; address++) {
+            sum += counts[address - this.startAddress];
+        }
+        return sum;
+    }
+
+    /**
+     * Attach data watchpoints to the bus, or detach them with null.
+     */
+    public void setWatchpoints(Watchpoints watchpoints) {
+        this.watchpoints = watchpoints;
+    }
+
+    public Watchpoints getWatchpoints() {
+        return watchpoints;
+    }
+
     public void assertIrq() {
         if (cpu != null) {
             cpu.assertIrq();
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import com.loomcom.symon.exceptions.MemoryAccessException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * An exact call-graph profiler for guest code. It follows JSR, BRK and
+ * interrupts with a shadow call stack, and charges the cycles of every
+ * instruction to the stack of routines active when it ran. The result can
+ * be written in the "collapsed stack" format read by flame graph tools.
+ * <p>
+ * Frames are popped by watching the stack pointer rather than by counting
+ * RTS and RTI instructions, so routines that discard their own return
+ * address, or code that resets the stack with TXS, unwind the shadow
+ * stack correctly.
+ */
+public class CallStackProfiler implements TraceSink {
+
+    // Deeper than any real call stack can be in a 256 byte stack page.
+    private static final int MAX_DEPTH = 256;
+
+    private static final int INTERRUPT_CLOCKS = 7;
+
+    private static final int KIND_ROOT = 0;
+    private static final int KIND_SUBROUTINE = 1;
+    private static final int KIND_IRQ = 2;
+    private static final int KIND_NMI = 3;
+    private static final int KIND_BRK = 4;
+
+    private final Cpu cpu;
+
+    // Roots are kept per entry address, so a reset doesn't lose the
+    // profile gathered before it. Concurrent maps let the profile be
+    // written out while the simulator is running.
+    private final Map<Integer, Node> roots = new ConcurrentHashMap<>();
+
+    // The shadow stack. frames[0] is the root, frames[depth] is the
+    // active frame. returnSp[i] is the stack pointer from before frame i
+    // was entered, and will be again once it has returned. Stack pointers
+    // wrap around the page, so they are compared modulo 256: a frame has
+    // returned once the stack pointer is at or up to half a page above
+    // its return stack pointer.
+    private final Node[] frames = new Node[MAX_DEPTH];
+    private final int[] returnSp = new int[MAX_DEPTH];
+    private int depth;
+
+    // Where the previous instruction left the PC and stack pointer, or -1
+    // before the first instruction.
+    private int expectedPc = -1;
+    private int lastSp;
+
+    // The root last returned by rootFor, to save a map lookup on every
+    // reset or jump.
+    private Node lastRoot;
+
+    public CallStackProfiler(Cpu cpu) {
+        this.cpu = cpu;
+    }
+
+    public void record(CpuState state) {
+        if (state.lastPc != expectedPc) {
+            enterUnexpected(state.lastPc);
+        }
+
+        Node frame = frames[depth];
+        frame.cycles += cpu.getInstructionClocks(state.ir);
+
+        // Unwind any frames that have returned...
+        while (depth > 0 && (byte) (state.sp - returnSp[depth]) >= 0) {
+            depth--;
+        }
+
+        // ... and push any that have just been entered.
+        if (state.ir == InstructionTable.JSR) {
+            push(KIND_SUBROUTINE, state.pc, state.sp + 2);
+        } else if (state.ir == InstructionTable.BRK) {
+            push(KIND_BRK, state.pc, state.sp + 3);
+        }
+
+        expectedPc = state.pc;
+        lastSp = state.sp;
+    }
+
+    /**
+     * Control reached an address the previous instruction didn't lead to.
+     * If a return address was pushed, it was an interrupt; otherwise the
+     * CPU was reset or the PC set by hand, and profiling starts over from
+     * a new root.
+     */
+    private void enterUnexpected(int address) {
+        if (expectedPc >= 0 && isInterruptReturnAddress(expectedPc)) {
+            int kind = address == readVector(Cpu.NMI_VECTOR_L) ? KIND_NMI : KIND_IRQ;
+            push(kind, address, lastSp);
+            frames[depth].cycles += INTERRUPT_CLOCKS;
+        } else {
+            frames[0] = rootFor(address);
+            depth = 0;
+        }
+    }
+
+    private boolean isInterruptReturnAddress(int returnPc) {
+        try {
+            Bus bus = cpu.getBus();
+            int hi = bus.read(0x100 | lastSp, false);
+            int lo = bus.read(0x100 | ((lastSp - 1) & 0xff), false);
+            return ((hi << 8) | lo) == returnPc;
+        } catch (MemoryAccessException ex) {
+            return false;
+        }
+    }
+
+    private int readVector(int vectorLow) {
+        try {
+            Bus bus = cpu.getBus();
+            return bus.read(vectorLow, false) | (bus.read(vectorLow + 1, false) << 8);
+        } catch (MemoryAccessException ex) {
+            return -1;
+        }
+    }
+
+    private void push(int kind, int address, int sp) {
+        if (depth == MAX_DEPTH - 1) {
+            // Runaway recursion; keep charging the deepest frame.
+            return;
+        }
+        Node child = frames[depth].child(kind, address);
+        depth++;
+        frames[depth] = child;
+        returnSp[depth] = sp & 0xff;
+    }
+
+    private Node rootFor(int address) {
+        Node root = lastRoot;
+        if (root == null || root.address != address) {
+            root = roots.computeIfAbsent(address, a -> new Node(KIND_ROOT, a));
+            lastRoot = root;
+        }
+        return root;
+    }
+
+    /**
+     * Clear the profile.
+     */
+    public void reset() {
+        roots.clear();
+        lastRoot = null;
+        depth = 0;
+        expectedPc = -1;
+    }
+
+    /**
+     * @return The number of frames on the shadow stack above the root.
+     */
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Write the profile in collapsed stack format: one line per distinct
+     * stack, with its frames separated by semicolons, followed by the
+     * number of cycles spent with exactly that stack active.
+     *
+     * @param out Where to write the stacks.
+     * @throws IOException if the stacks can't be written.
+     */
+    public void writeCollapsedStacks(Writer out) throws IOException {
+        StringBuilder path = new StringBuilder();
+        for (Node node : roots.values()) {
+            writeCollapsedStacks(out, node, path);
+        }
+        out.flush();
+    }
+
+    private void writeCollapsedStacks(Writer out, Node node, StringBuilder path) throws IOException {
+        int length = path.length();
+        if (length > 0) {
+            path.append(';');
+        }
+        path.append(node.getName(cpu.getSymbolTable()));
+
+        if (node.cycles > 0) {
+            out.write(path.toString());
+            out.write(' ');
+            out.write(Long.toString(node.cycles));
+            out.write('\n');
+        }
+        if (node.children != null) {
+            for (Node child : node.children.values()) {
+                writeCollapsedStacks(out, child, path);
+            }
+        }
+
+        path.setLength(length);
+    }
+
+    /**
+     * A routine in a particular calling context.
+     */
+    private static class Node {
+        final int kind;
+        final int address;
+        long cycles;
+        volatile Map<Integer, Node> children;
+
+        // The child last returned by child(). Loops tend to call the same
+        // routine over and over, so this saves boxing a key and looking
+        // it up in the map on most calls.
+        Node lastChild;
+
+        Node(int kind, int address) {
+            this.kind = kind;
+            this.address = address;
+        }
+
+        Node child(int kind, int address) {
+            Node child = lastChild;
+            if (child != null && child.kind == kind && child.address == address) {
+                return child;
+            }
+            if (children == null) {
+                children = new ConcurrentHashMap<>();
+            }
+            child = children.computeIfAbsent((kind << 16) | address, k -> new Node(kind, address));
+            lastChild = child;
+            return child;
+        }
+
+        String getName(SymbolTable symbols) {
+            String label = symbols.getLabel(address);
+            String hex = label != null ? label : String.format("$%04X", address);
+            switch (kind) {
+                case KIND_IRQ:
+                    return "IRQ " + hex;
+                case KIND_NMI:
+                    return "NMI " + hex;
+                case KIND_BRK:
+                    return "BRK " + hex;
+                default:
+                    return hex;
+            }
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+
+/**
+ * Records which bytes of the address space have been executed, as opcode
+ * or operand bytes. The record is a 64K bitset, so it costs one word
+ * update per instruction byte and 8K of memory, and can be left on for
+ * whole regression runs.
+ * <p>
+ * Coverage can be mapped back to an {@link AssemblerListing} and written
+ * as an LCOV tracefile, which genhtml and most CI coverage tools read.
+ */
+public class CodeCoverage implements TraceSink {
+
+    private static final int ADDRESS_SPACE = 0x10000;
+
+    private final long[] executed = new long[ADDRESS_SPACE / 64];
+
+    public void record(CpuState state) {
+        int address = state.lastPc;
+        for (int i = 0; i < state.instSize; i++) {
+            int a = (address + i) & 0xffff;
+            executed[a >>> 6] |= 1L << a;
+        }
+    }
+
+    /**
+     * Forget everything executed so far.
+     */
+    public void reset() {
+        Arrays.fill(executed, 0);
+    }
+
+    /**
+     * @return True if the byte at the address has been executed.
+     */
+    public boolean isExecuted(int address) {
+        address &= 0xffff;
+        return (executed[address >>> 6] & (1L << address)) != 0;
+    }
+
+    /**
+     * @return The number of bytes from startAddress to endAddress,
+     * inclusive, that have been executed.
+     */
+    public int countExecuted(int startAddress, int endAddress) {
+        int count = 0;
+        for (int address = startAddress; address <= endAddress; address++) {
+            if (isExecuted(address)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * @return The number of instruction lines in the listing whose first
+     * byte has been executed.
+     */
+    public int countCoveredLines(AssemblerListing listing) {
+        int count = 0;
+        for (AssemblerListing.Line line : listing.getLines()) {
+            if (line.instruction && isExecuted(line.address)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Write coverage of the instruction lines in a listing as an LCOV
+     * tracefile record. Each line is reported as executed once or not at
+     * all, since only whether a byte was executed is kept.
+     *
+     * @param out        Where to write the tracefile.
+     * @param listing    The listing to map coverage to.
+     * @param sourceFile The file name to report, normally the listing's.
+     * @throws IOException if the tracefile can't be written.
+     */
+    public void writeLcov(Writer out, AssemblerListing listing, String sourceFile) throws IOException {
+        int found = 0;
+        int hit = 0;
+
+        out.write("TN:\n");
+        out.write("SF:" + sourceFile + "\n");
+        for (AssemblerListing.Line line : listing.getLines()) {
+            if (!line.instruction) {
+                continue;
+            }
+            boolean covered = isExecuted(line.address);
+            out.write("DA:" + line.lineNumber + "," + (covered ? 1 : 0) + "\n");
+            found++;
+            if (covered) {
+                hit++;
+            }
+        }
+        out.write("LF:" + found + "\n");
+        out.write("LH:" + hit + "\n");
+        out.write("end_of_record\n");
+        out.flush();
+    }
+}
@@ -69,12 +69,22 @@ public class Cpu implements InstructionTable {
     /* The Bus */
     private Bus bus;
 
+    /* Labels used when disassembling */
+    private volatile SymbolTable symbolTable = SymbolTable.EMPTY;
+
     /* The CPU state */
     private final CpuState state = new CpuState();
 
     /* start time of op execution, needed for speed simulation */
     private long opBeginTime;
 
+    /* Running totals for metrics. These are only touched by the thread
+       stepping the CPU. */
+    private long cycleCount;
+    private long irqCount;
+    private long nmiCount;
+    private long throttleNanos;
+
     /**
      * Construct a new CPU.
      */
@@ -162,9 +172,6 @@ public class Cpu implements InstructionTable {
 
         opBeginTime = System.nanoTime();
 
-        // Store the address from which the IR was read, for debugging
-        state.lastPc = state.pc;
-
         // Check for Interrupts before doing anything else.
         // This will set the PC and jump to the interrupt vector.
         if (state.nmiAsserted) {
@@ -173,6 +180,9 @@ public class Cpu implements InstructionTable {
             handleIrq(state.pc);
         }
 
+        // Store the address from which the IR was read, for debugging
+        state.lastPc = state.pc;
+
         // Fetch memory location for this instruction.
         state.ir = bus.read(state.pc, true);
         int irAddressMode = (state.ir >> 2) & 0x07;  // Bits 3-5 of IR:  [ | | |X|X|X| | ]
@@ -1236,18 +1246,20 @@ public class Cpu implements InstructionTable {
                 break;
         }
 
-        delayLoop(state.ir);
+        int clockSteps = getInstructionClocks(state.ir);
+        cycleCount += clockSteps;
+        delayLoop(state.ir, clockSteps);
 
         // Peek ahead to the next instruction and arguments
         peekAhead();
     }
 
     private void peekAhead() throws MemoryAccessException {
-        state.nextIr = bus.read(state.pc, true);
+        state.nextIr = bus.read(state.pc, false);
         int nextInstSize = Cpu.instructionSizes[state.nextIr];
         for (int i = 1; i < nextInstSize; i++) {
             int nextRead = (state.pc + i) % bus.endAddress();
-            state.nextArgs[i-1] = bus.read(nextRead, true);
+            state.nextArgs[i-1] = bus.read(nextRead, false);
         }
     }
 
@@ -1257,11 +1269,13 @@ public class Cpu implements InstructionTable {
     }
 
     private void handleIrq(int returnPc) throws MemoryAccessException {
+        irqCount++;
         handleInterrupt(returnPc, IRQ_VECTOR_L, IRQ_VECTOR_H, false);
         clearIrq();
     }
 
     private void handleNmi() throws MemoryAccessException {
+        nmiCount++;
         handleInterrupt(state.pc, NMI_VECTOR_L, NMI_VECTOR_H, false);
         clearNmi();
     }
@@ -1453,6 +1467,35 @@ public class Cpu implements InstructionTable {
         this.clockPeriodInNs = clockPeriodInNs;
     }
 
+    /**
+     * @return The number of clock cycles executed since the CPU was created.
+     */
+    public long getCycleCount() {
+        return cycleCount;
+    }
+
+    /**
+     * @return The number of IRQs taken since the CPU was created.
+     */
+    public long getIrqCount() {
+        return irqCount;
+    }
+
+    /**
+     * @return The number of NMIs taken since the CPU was created.
+     */
+    public long getNmiCount() {
+        return nmiCount;
+    }
+
+    /**
+     * @return The total time, in nanoseconds, spent waiting to slow the
+     * CPU down to its simulated clock speed.
+     */
+    public long getThrottleNanos() {
+        return throttleNanos;
+    }
+
     /**
      * Return the current Cpu State.
      *
@@ -1885,27 +1928,35 @@ public class Cpu implements InstructionTable {
     /*
      * Perform a busy-loop until the instruction should complete on the wall clock
      */
-    private void delayLoop(int opcode) {
-        final int clockSteps;
-
-        if (behavior == CpuBehavior.NMOS_WITH_ROR_BUG ||
-            behavior == CpuBehavior.NMOS_6502) {
-            clockSteps = Cpu.instructionClocksNmos[0xff & opcode];
-        } else {
-            clockSteps = Cpu.instructionClocksCmos[0xff & opcode];
-        }
-
+    private void delayLoop(int opcode, int clockSteps) {
         if (clockSteps == 0) {
             logger.warn("Opcode {} has clock step of 0!", String.format("0x%02x", opcode));
             return;
         }
 
         long interval = clockSteps * clockPeriodInNs;
-        long end;
+        long end = System.nanoTime();
+        long waitStart = end;
 
-        do {
+        while (opBeginTime + interval >= end) {
             end = System.nanoTime();
-        } while (opBeginTime + interval >= end);
+        }
+
+        throttleNanos += end - waitStart;
+    }
+
+    /**
+     * @param opcode The opcode of an instruction.
+     * @return The number of clock cycles the instruction takes on the
+     * simulated CPU, not counting page crossing or branch penalties.
+     */
+    public int getInstructionClocks(int opcode) {
+        if (behavior == CpuBehavior.NMOS_WITH_ROR_BUG ||
+            behavior == CpuBehavior.NMOS_6502) {
+            return Cpu.instructionClocksNmos[0xff & opcode];
+        } else {
+            return Cpu.instructionClocksCmos[0xff & opcode];
+        }
     }
 
     /**
@@ -1915,6 +1966,18 @@ public class Cpu implements InstructionTable {
      * @return A string representing the mnemonic and operands of the instruction
      */
     public static String disassembleOp(int opCode, int[] args) {
+        return disassembleOp(0, opCode, args, null);
+    }
+
+    /**
+     * Return a formatted string representing an instruction and its
+     * operands, with labels in place of the addresses that have them.
+     *
+     * @param address The address of the instruction, for branch targets.
+     * @param symbols Labels to use, or null to show only addresses.
+     * @return A string representing the mnemonic and operands of the instruction
+     */
+    public static String disassembleOp(int address, int opCode, int[] args, SymbolTable symbols) {
         String mnemonic = opcodeNames[opCode];
 
         if (mnemonic == null) {
@@ -1925,48 +1988,65 @@ public class Cpu implements InstructionTable {
 
         switch (instructionModes[opCode]) {
             case ABS:
-                sb.append(" $").append(Utils.wordToHex(Utils.address(args[0], args[1])));
+                sb.append(' ').append(word(Utils.address(args[0], args[1]), symbols));
                 break;
             case AIX:
-                sb.append(" ($").append(Utils.wordToHex(Utils.address(args[0], args[1]))).append(",X)");
+                sb.append(" (").append(word(Utils.address(args[0], args[1]), symbols)).append(",X)");
                 break;
             case ABX:
-                sb.append(" $").append(Utils.wordToHex(Utils.address(args[0], args[1]))).append(",X");
+                sb.append(' ').append(word(Utils.address(args[0], args[1]), symbols)).append(",X");
                 break;
             case ABY:
-                sb.append(" $").append(Utils.wordToHex(Utils.address(args[0], args[1]))).append(",Y");
+                sb.append(' ').append(word(Utils.address(args[0], args[1]), symbols)).append(",Y");
                 break;
             case IMM:
                 sb.append(" #$").append(Utils.byteToHex(args[0]));
                 break;
             case IND:
-                sb.append(" ($").append(Utils.wordToHex(Utils.address(args[0], args[1]))).append(")");
+                sb.append(" (").append(word(Utils.address(args[0], args[1]), symbols)).append(")");
                 break;
             case ZPI:
-                sb.append(" ($").append(Utils.byteToHex(args[0])).append(")");
+                sb.append(" (").append(zeroPage(args[0], symbols)).append(")");
                 break;
             case XIN:
-                sb.append(" ($").append(Utils.byteToHex(args[0])).append(",X)");
+                sb.append(" (").append(zeroPage(args[0], symbols)).append(",X)");
                 break;
             case INY:
-                sb.append(" ($").append(Utils.byteToHex(args[0])).append("),Y");
+                sb.append(" (").append(zeroPage(args[0], symbols)).append("),Y");
                 break;
             case REL:
+                String target = symbols == null ? null : symbols.getLabel(address + 2 + (byte) args[0]);
+                if (target != null) {
+                    sb.append(' ').append(target);
+                } else {
+                    sb.append(" $").append(Utils.byteToHex(args[0]));
+                }
+                break;
             case ZPR:
             case ZPG:
-                sb.append(" $").append(Utils.byteToHex(args[0]));
+                sb.append(' ').append(zeroPage(args[0], symbols));
                 break;
             case ZPX:
-                sb.append(" $").append(Utils.byteToHex(args[0])).append(",X");
+                sb.append(' ').append(zeroPage(args[0], symbols)).append(",X");
                 break;
             case ZPY:
-                sb.append(" $").append(Utils.byteToHex(args[0])).append(",Y");
+                sb.append(' ').append(zeroPage(args[0], symbols)).append(",Y");
                 break;
         }
 
         return sb.toString();
     }
 
+    private static String word(int address, SymbolTable symbols) {
+        String label = symbols == null ? null : symbols.getLabel(address);
+        return label != null ? label : "$" + Utils.wordToHex(address);
+    }
+
+    private static String zeroPage(int address, SymbolTable symbols) {
+        String label = symbols == null ? null : symbols.getLabel(address);
+        return label != null ? label : "$" + Utils.byteToHex(address);
+    }
+
     /**
      * Return a formatted string representing the next instruction and
      * operands to be executed.
@@ -1974,7 +2054,7 @@ public class Cpu implements InstructionTable {
      * @return A string representing the mnemonic and operands of the instruction
      */
     public String disassembleNextOp() {
-        return Cpu.disassembleOp(state.nextIr, state.nextArgs);
+        return Cpu.disassembleOp(state.pc, state.nextIr, state.nextArgs, symbolTable);
     }
 
     /**
@@ -1982,14 +2062,25 @@ public class Cpu implements InstructionTable {
      * @return String containing the disassembled instruction and operands.
      */
     public String disassembleOpAtAddress(int address) throws MemoryAccessException {
-        int opCode = bus.read(address, true);
+        int opCode = bus.read(address, false);
         int[] args = new int[2];
         int size = Cpu.instructionSizes[opCode];
         for (int i = 1; i < size; i++) {
             int nextRead = (address + i) % bus.endAddress();
-            args[i-1] = bus.read(nextRead, true);
+            args[i-1] = bus.read(nextRead, false);
         }
 
-        return disassembleOp(opCode, args);
+        return disassembleOp(address, opCode, args, symbolTable);
+    }
+
+    /**
+     * Set the labels used when disassembling.
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable == null ? SymbolTable.EMPTY : symbolTable;
+    }
+
+    public SymbolTable getSymbolTable() {
+        return symbolTable;
     }
 }
@@ -163,6 +163,21 @@ public class CpuState {
         return status;
     }
 
+    /**
+     * Set the status flags from a Process Status Register byte.
+     *
+     * @param status The value of the Process Status Register.
+     */
+    public void setStatusFlag(int status) {
+        carryFlag = (status & Cpu.P_CARRY) != 0;
+        zeroFlag = (status & Cpu.P_ZERO) != 0;
+        irqDisableFlag = (status & Cpu.P_IRQ_DISABLE) != 0;
+        decimalModeFlag = (status & Cpu.P_DECIMAL) != 0;
+        breakFlag = (status & Cpu.P_BREAK) != 0;
+        overflowFlag = (status & Cpu.P_OVERFLOW) != 0;
+        negativeFlag = (status & Cpu.P_NEGATIVE) != 0;
+    }
+
     public String getInstructionByteStatus() {
         switch (Cpu.instructionSizes[ir]) {
             case 0:
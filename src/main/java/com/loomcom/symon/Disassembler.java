@@ -0,0 +1,362 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import com.loomcom.symon.exceptions.MemoryAccessException;
+import com.loomcom.symon.util.Utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Disassembles ranges of memory into listings, on a background thread if
+ * asked to, and finds the cross-references between them: which
+ * instructions jump, branch or call to each address.
+ * <p>
+ * Disassembly is a linear sweep, and is cached a page at a time. The bus
+ * counts writes to each page, so a cached page is only disassembled again
+ * once it, or the page an instruction spills over into, has been written
+ * to. A page also depends on where the instruction before it ended, so
+ * when that changes the page is disassembled again too. Going over 64K of
+ * unchanged memory only checks 256 page versions.
+ */
+public class Disassembler {
+
+    private static final int PAGES = 256;
+
+    private final Bus bus;
+    private final ExecutorService executor;
+
+    // Cached pages, indexed by page number. Only touched while holding
+    // the lock on this object.
+    private final Page[] pages = new Page[PAGES];
+    private SymbolTable symbolTable = SymbolTable.EMPTY;
+
+    // Reused for every instruction, to save allocating.
+    private final int[] args = new int[2];
+
+    public Disassembler(Bus bus) {
+        this.bus = bus;
+        this.executor = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "Disassembler");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Set the labels used in the listing. Every cached page is dropped.
+     */
+    public synchronized void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable == null ? SymbolTable.EMPTY : symbolTable;
+        Arrays.fill(pages, null);
+    }
+
+    /**
+     * Drop every cached page. Needed when memory is changed behind the
+     * bus's back, for example by filling RAM directly.
+     */
+    public synchronized void invalidate() {
+        Arrays.fill(pages, null);
+    }
+
+    /**
+     * Disassemble a range on the background thread.
+     *
+     * @return The listing, when it is ready.
+     */
+    public CompletableFuture<Listing> disassembleInBackground(int startAddress, int endAddress) {
+        return CompletableFuture.supplyAsync(() -> disassemble(startAddress, endAddress), executor);
+    }
+
+    /**
+     * Disassemble a range, using cached pages where memory hasn't changed.
+     * The listing starts at startAddress, and runs through the instruction
+     * that covers endAddress.
+     */
+    public synchronized Listing disassemble(int startAddress, int endAddress) {
+        startAddress &= 0xffff;
+        endAddress &= 0xffff;
+
+        Listing.Builder listing = new Listing.Builder();
+        int address = startAddress;
+        int firstPage = startAddress >>> 8;
+        int lastPage = endAddress >>> 8;
+
+        for (int pageNumber = firstPage; pageNumber <= lastPage; pageNumber++) {
+            Page page = getPage(pageNumber, address);
+            int from = page.indexOf(address);
+            for (int i = from; i < page.count; i++) {
+                if (page.addresses[i] > endAddress) {
+                    break;
+                }
+                listing.add(page.addresses[i], page.lengths[i], page.bytes[i], page.text[i]);
+            }
+            address = page.nextAddress;
+            // A long instruction at the very end of memory
+            if (address > 0xffff) {
+                break;
+            }
+        }
+
+        return listing.build();
+    }
+
+    /**
+     * Shut down the background thread.
+     */
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return The page, disassembled from the given entry address, from the
+     * cache if it is still good.
+     */
+    private Page getPage(int pageNumber, int entryAddress) {
+        int version = bus.getPageVersion(pageNumber);
+        int nextVersion = bus.getPageVersion(pageNumber + 1);
+        Page page = pages[pageNumber];
+        if (page != null && page.entryAddress == entryAddress && page.version == version &&
+            page.nextVersion == nextVersion) {
+            return page;
+        }
+
+        page = disassemblePage(pageNumber, entryAddress);
+        page.version = version;
+        page.nextVersion = nextVersion;
+        pages[pageNumber] = page;
+        return page;
+    }
+
+    private Page disassemblePage(int pageNumber, int entryAddress) {
+        int pageEnd = (pageNumber << 8) + 0xff;
+        Page page = new Page(entryAddress);
+        int address = entryAddress;
+
+        while (address <= pageEnd) {
+            int opcode;
+            int length;
+            String text;
+            int packed;
+            try {
+                opcode = bus.read(address, false);
+                length = Cpu.instructionSizes[opcode];
+                packed = opcode;
+                for (int i = 1; i < length; i++) {
+                    args[i - 1] = bus.read((address + i) & 0xffff, false);
+                    packed |= args[i - 1] << (8 * i);
+                }
+                text = Cpu.disassembleOp(address, opcode, args, symbolTable);
+            } catch (MemoryAccessException ex) {
+                length = 1;
+                packed = 0;
+                text = "???";
+            }
+            page.add(address, length, packed, text);
+            address += length;
+        }
+
+        page.nextAddress = address;
+        return page;
+    }
+
+    /**
+     * One page of disassembly, in parallel arrays.
+     */
+    private static class Page {
+        final int entryAddress;
+        int version;
+        int nextVersion;
+        int nextAddress;
+
+        int count = 0;
+        int[] addresses = new int[64];
+        int[] lengths = new int[64];
+        int[] bytes = new int[64];
+        String[] text = new String[64];
+
+        Page(int entryAddress) {
+            this.entryAddress = entryAddress;
+        }
+
+        void add(int address, int length, int packed, String line) {
+            if (count == addresses.length) {
+                int size = count * 2;
+                addresses = Arrays.copyOf(addresses, size);
+                lengths = Arrays.copyOf(lengths, size);
+                bytes = Arrays.copyOf(bytes, size);
+                text = Arrays.copyOf(text, size);
+            }
+            addresses[count] = address;
+            lengths[count] = length;
+            bytes[count] = packed;
+            text[count] = line;
+            count++;
+        }
+
+        /**
+         * @return The index of the first instruction at or after the address.
+         */
+        int indexOf(int address) {
+            int i = Arrays.binarySearch(addresses, 0, count, address);
+            return i >= 0 ? i : -i - 1;
+        }
+    }
+
+    /**
+     * A disassembled range of memory, with cross-references. Listings do
+     * not change once built.
+     */
+    public static class Listing {
+        private final int count;
+        private final int[] addresses;
+        private final int[] lengths;
+        private final int[] bytes;
+        private final String[] text;
+        private final Map<Integer, int[]> references;
+
+        private Listing(Builder b) {
+            this.count = b.count;
+            this.addresses = b.addresses;
+            this.lengths = b.lengths;
+            this.bytes = b.bytes;
+            this.text = b.text;
+            this.references = b.references;
+        }
+
+        public int size() {
+            return count;
+        }
+
+        public int getAddress(int index) {
+            return addresses[index];
+        }
+
+        public int getLength(int index) {
+            return lengths[index];
+        }
+
+        public int getOpcode(int index) {
+            return bytes[index] & 0xff;
+        }
+
+        /**
+         * @return The bytes of the instruction as hex, e.g. "20 00 C0".
+         */
+        public String getBytes(int index) {
+            StringBuilder sb = new StringBuilder(8);
+            for (int i = 0; i < lengths[index]; i++) {
+                if (i > 0) {
+                    sb.append(' ');
+                }
+                sb.append(Utils.byteToHex((bytes[index] >>> (8 * i)) & 0xff));
+            }
+            return sb.toString();
+        }
+
+        public String getText(int index) {
+            return text[index];
+        }
+
+        /**
+         * @return The index of the instruction that covers the address, or
+         * -1 if the address is before the listing.
+         */
+        public int indexOf(int address) {
+            int i = Arrays.binarySearch(addresses, 0, count, address);
+            return i >= 0 ? i : -i - 2;
+        }
+
+        /**
+         * @return The addresses of the instructions in the listing that
+         * jump, branch or call to the address, in address order.
+         */
+        public int[] getReferences(int address) {
+            int[] from = references.get(address);
+            return from == null ? new int[0] : from;
+        }
+
+        private static class Builder {
+            int count = 0;
+            int[] addresses = new int[1024];
+            int[] lengths = new int[1024];
+            int[] bytes = new int[1024];
+            String[] text = new String[1024];
+            Map<Integer, int[]> references = new HashMap<>();
+
+            void add(int address, int length, int packed, String line) {
+                if (count == addresses.length) {
+                    int size = count * 2;
+                    addresses = Arrays.copyOf(addresses, size);
+                    lengths = Arrays.copyOf(lengths, size);
+                    bytes = Arrays.copyOf(bytes, size);
+                    text = Arrays.copyOf(text, size);
+                }
+                addresses[count] = address;
+                lengths[count] = length;
+                bytes[count] = packed;
+                text[count] = line;
+                count++;
+
+                int target = target(address, packed);
+                if (target >= 0) {
+                    int[] from = references.get(target);
+                    from = from == null ? new int[1] : Arrays.copyOf(from, from.length + 1);
+                    from[from.length - 1] = address;
+                    references.put(target, from);
+                }
+            }
+
+            Listing build() {
+                return new Listing(this);
+            }
+        }
+
+        /**
+         * @return The address the instruction jumps, branches or calls to,
+         * or -1 if it doesn't, or the target is computed at run time.
+         */
+        static int target(int address, int packed) {
+            int opcode = packed & 0xff;
+            int operand = (packed >>> 8) & 0xffff;
+            if (opcode == 0x20 || opcode == 0x4c) {
+                // JSR, JMP absolute
+                return operand;
+            }
+            switch (InstructionTable.instructionModes[opcode]) {
+                case REL:
+                    return (address + 2 + (byte) operand) & 0xffff;
+                case ZPR:
+                    return (address + 3 + (byte) (operand >>> 8)) & 0xffff;
+                default:
+                    return -1;
+            }
+        }
+    }
+}
@@ -0,0 +1,255 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Crtc;
+import com.loomcom.symon.exceptions.MemoryAccessException;
+import com.loomcom.symon.ui.CrtcRenderer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.awt.image.Raster;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Captures the CRTC's display to a sequence of image files during a
+ * headless run, at a fixed rate in emulated time.
+ * <p>
+ * A frame is due every time the CPU has run for one frame period at the
+ * default 1 MHz clock, however fast the host is actually running it, so a
+ * program produces the same frames on any host. Frames are rendered on the
+ * CPU thread with a {@link CrtcRenderer}, which only redraws the cells that
+ * changed, and then copied and handed to a background thread to be encoded
+ * and written. A frame identical to the one before it is not copied or
+ * encoded again; the last file's contents are written again instead.
+ * <p>
+ * Frames are written to the directory as <code>frame-000000.png</code>,
+ * <code>frame-000001.png</code> and so on, or, in raw format, as
+ * <code>frame-000000.raw</code> files holding one byte per pixel, 0x00 for
+ * off and 0xFF for on, a row at a time from the top left. If the encoder
+ * falls more than {@value #MAX_PENDING_FRAMES} frames behind, the CPU
+ * waits for it.
+ */
+public class FrameCapture implements TraceSink, Closeable {
+
+    private final static Logger logger = LoggerFactory.getLogger(FrameCapture.class.getName());
+
+    public enum Format {
+        PNG("png"),
+        RAW("raw");
+
+        private final String extension;
+
+        Format(String extension) {
+            this.extension = extension;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+    }
+
+    public static final int DEFAULT_FRAME_RATE = 50;
+
+    static final int MAX_PENDING_FRAMES = 32;
+
+    private static final long NS_PER_SECOND = 1_000_000_000L;
+
+    private final Cpu cpu;
+    private final Crtc crtc;
+    private final CrtcRenderer renderer;
+    private final Path directory;
+    private final Format format;
+    private final int framesPerSecond;
+    private final long firstCycle;
+
+    private final ExecutorService encoder;
+    private final Semaphore pendingFrames = new Semaphore(MAX_PENDING_FRAMES);
+    private final AtomicLong framesWritten = new AtomicLong();
+
+    // Only touched on the CPU thread.
+    private long frameNumber = 0;
+    private long nextFrameCycle;
+    private BufferedImage lastFrame;
+    private boolean failed = false;
+
+    // Only touched on the encoder thread.
+    private BufferedImage lastEncodedFrame;
+    private byte[] lastEncodedBytes;
+
+    /**
+     * @param cpu             The CPU whose cycle count sets the frame times.
+     * @param crtc            The CRTC to capture.
+     * @param directory       Where to write the frames. Created if need be.
+     * @param format          The format to write frames in.
+     * @param framesPerSecond Frames to capture per second of emulated time.
+     * @throws IOException if the directory or character ROM can't be read.
+     */
+    public FrameCapture(Cpu cpu, Crtc crtc, Path directory, Format format, int framesPerSecond) throws IOException {
+        if (framesPerSecond <= 0) {
+            throw new IllegalArgumentException("Frame rate must be positive: " + framesPerSecond);
+        }
+        this.cpu = cpu;
+        this.crtc = crtc;
+        this.renderer = new CrtcRenderer(crtc);
+        this.directory = Files.createDirectories(directory);
+        this.format = format;
+        this.framesPerSecond = framesPerSecond;
+        this.firstCycle = cpu.getCycleCount();
+        this.nextFrameCycle = firstCycle;
+        this.encoder = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "FrameCapture");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Capture a frame if one is due. Called once per instruction.
+     */
+    @Override
+    public void record(CpuState state) {
+        if (failed || cpu.getCycleCount() < nextFrameCycle) {
+            return;
+        }
+
+        try {
+            captureFrame();
+        } catch (MemoryAccessException | IOException ex) {
+            logger.error("Unable to render frame {}, stopping capture: {}", frameNumber, ex.getMessage());
+            failed = true;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failed = true;
+        }
+    }
+
+    /**
+     * @return The number of frames captured so far, some of which may not
+     * have been written yet.
+     */
+    public long getFrameCount() {
+        return frameNumber;
+    }
+
+    /**
+     * @return The number of frames written to disk so far.
+     */
+    public long getFramesWritten() {
+        return framesWritten.get();
+    }
+
+    /**
+     * Wait for every captured frame to be written, and stop the encoder.
+     */
+    @Override
+    public void close() {
+        encoder.shutdown();
+        try {
+            if (!encoder.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.error("Timed out writing frames to {}", directory);
+                encoder.shutdownNow();
+            }
+        } catch (InterruptedException ex) {
+            encoder.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void captureFrame() throws MemoryAccessException, IOException, InterruptedException {
+        // The cursor blinks in emulated time too.
+        long frameTimeInMs = frameNumber * 1000 / framesPerSecond;
+        int blinkRate = crtc.getCursorBlinkRate();
+        boolean hideCursor = blinkRate > 0 && (frameTimeInMs / blinkRate) % 2 == 1;
+
+        // Only copy the image when something was drawn; encoded frames are
+        // never changed, so an unchanged frame can be shared.
+        if (renderer.render(hideCursor) > 0 || lastFrame == null) {
+            BufferedImage image = renderer.getImage();
+            lastFrame = new BufferedImage(image.getColorModel(), image.copyData(null), false, null);
+        }
+
+        final BufferedImage frame = lastFrame;
+        final Path path = directory.resolve(String.format(Locale.ENGLISH, "frame-%06d.%s", frameNumber,
+                                                          format.getExtension()));
+        pendingFrames.acquire();
+        encoder.execute(() -> {
+            try {
+                writeFrame(frame, path);
+            } finally {
+                pendingFrames.release();
+            }
+        });
+
+        frameNumber++;
+        nextFrameCycle = firstCycle + frameNumber * NS_PER_SECOND /
+                                      (Cpu.DEFAULT_CLOCK_PERIOD_IN_NS * framesPerSecond);
+    }
+
+    private void writeFrame(BufferedImage frame, Path path) {
+        try {
+            if (frame != lastEncodedFrame) {
+                lastEncodedBytes = encode(frame);
+                lastEncodedFrame = frame;
+            }
+            Files.write(path, lastEncodedBytes);
+            framesWritten.incrementAndGet();
+        } catch (IOException ex) {
+            logger.error("Unable to write frame {}: {}", path, ex.getMessage());
+        }
+    }
+
+    private byte[] encode(BufferedImage frame) throws IOException {
+        if (format == Format.PNG) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            ImageIO.write(frame, "png", out);
+            return out.toByteArray();
+        }
+
+        Raster raster = frame.getRaster();
+        int width = raster.getWidth();
+        int height = raster.getHeight();
+        byte[] bytes = new byte[width * height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            raster.getPixels(0, y, width, 1, row);
+            for (int x = 0; x < width; x++) {
+                bytes[y * width + x] = (byte) (row[x] == 0 ? 0x00 : 0xff);
+            }
+        }
+        return bytes;
+    }
+}
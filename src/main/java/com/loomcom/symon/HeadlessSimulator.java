@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Acia;
+import com.loomcom.symon.exceptions.MemoryAccessException;
+import com.loomcom.symon.machines.Machine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Runs a machine without any user interface, as fast as the host allows,
+ * for batch jobs such as gathering statistics or coverage. The ACIA is
+ * connected to standard input and output.
+ */
+public class HeadlessSimulator {
+
+    private final static Logger logger = LoggerFactory.getLogger(HeadlessSimulator.class.getName());
+
+    // How often to check for serial input, in instructions.
+    private static final int STEPS_BETWEEN_INPUT_POLLS = 1000;
+
+    private final Machine machine;
+    private final boolean haltOnBreak;
+    private final InputStream serialIn;
+    private final OutputStream serialOut;
+
+    private TraceSink traceSink;
+    private volatile boolean stopRequested = false;
+
+    public HeadlessSimulator(Machine machine, boolean haltOnBreak) {
+        this(machine, haltOnBreak, System.in, System.out);
+    }
+
+    public HeadlessSimulator(Machine machine, boolean haltOnBreak, InputStream serialIn, OutputStream serialOut) {
+        this.machine = machine;
+        this.haltOnBreak = haltOnBreak;
+        this.serialIn = serialIn;
+        this.serialOut = serialOut;
+
+        // Don't hold the CPU to a simulated clock speed.
+        machine.getCpu().setClockPeriodInNs(0);
+    }
+
+    public Machine getMachine() {
+        return machine;
+    }
+
+    /**
+     * Record every instruction executed to a sink, as well as to any
+     * sinks already added.
+     */
+    public void addTraceSink(TraceSink sink) {
+        traceSink = TraceSink.chain(traceSink, sink);
+    }
+
+    /**
+     * Reset the CPU through its reset vector.
+     */
+    public void reset() throws MemoryAccessException {
+        machine.getCpu().reset();
+    }
+
+    /**
+     * Load a program into memory, and point the CPU at its first byte.
+     */
+    public void loadProgram(byte[] program, int startAddress) throws MemoryAccessException {
+        for (int i = 0; i < program.length; i++) {
+            machine.getBus().write(startAddress + i, program[i] & 0xff);
+        }
+        logger.info("Loaded {} bytes at address 0x{}", program.length, Integer.toString(startAddress, 16));
+
+        machine.getCpu().reset();
+        machine.getCpu().setProgramCounter(startAddress);
+    }
+
+    /**
+     * Ask a running simulator to stop after the current instruction. May be
+     * called from any thread.
+     */
+    public void requestStop() {
+        stopRequested = true;
+    }
+
+    /**
+     * Run until the step limit is reached, a stop is requested, or, if
+     * halting on BRK, a BRK is executed.
+     *
+     * @param maxSteps The most instructions to execute, or 0 for no limit.
+     * @return The number of instructions executed.
+     */
+    public long run(long maxSteps) throws MemoryAccessException {
+        Cpu cpu = machine.getCpu();
+        Acia acia = machine.getAcia();
+        TraceSink sink = traceSink;
+        long steps = 0;
+        int stepsSinceInputPoll = 0;
+
+        while (!stopRequested && (maxSteps == 0 || steps < maxSteps)) {
+            cpu.step();
+            steps++;
+
+            if (sink != null) {
+                sink.record(cpu.getCpuState());
+            }
+
+            if (acia != null) {
+                if (acia.hasTxChar()) {
+                    writeSerial(acia.txRead(true));
+                }
+                if (++stepsSinceInputPoll >= STEPS_BETWEEN_INPUT_POLLS) {
+                    stepsSinceInputPoll = 0;
+                    if (!acia.hasRxChar()) {
+                        pollSerial(acia);
+                    }
+                }
+            }
+
+            if (haltOnBreak && cpu.getInstruction() == InstructionTable.BRK) {
+                break;
+            }
+        }
+
+        flushSerial();
+        return steps;
+    }
+
+    private void writeSerial(int data) {
+        try {
+            serialOut.write(data);
+            if (data == '\n') {
+                serialOut.flush();
+            }
+        } catch (IOException ex) {
+            logger.error("Unable to write serial output: {}", ex.getMessage());
+        }
+    }
+
+    private void flushSerial() {
+        try {
+            serialOut.flush();
+        } catch (IOException ex) {
+            logger.error("Unable to write serial output: {}", ex.getMessage());
+        }
+    }
+
+    private void pollSerial(Acia acia) {
+        try {
+            if (serialIn != null && serialIn.available() > 0) {
+                int data = serialIn.read();
+                if (data >= 0) {
+                    acia.rxWrite(data);
+                }
+            }
+        } catch (IOException ex) {
+            logger.error("Unable to read serial input: {}", ex.getMessage());
+        }
+    }
+}
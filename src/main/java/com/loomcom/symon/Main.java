@@ -25,11 +25,21 @@
 package com.loomcom.symon;
 
 import com.loomcom.symon.machines.*;
+import com.loomcom.symon.serial.TcpSerialServer;
 import org.apache.commons.cli.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.BufferedWriter;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
 import javax.swing.JOptionPane;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
@@ -53,6 +63,22 @@ public class Main {
         options.addOption(new Option("c", "cpu", true, "Specify CPU type."));
         options.addOption(new Option("r", "rom", true, "Specify ROM file."));
         options.addOption(new Option("b", "brk", false, "Halt on BRK"));
+        options.addOption(new Option("t", "tcp", true, "Serve the ACIA on a localhost TCP port instead of the console."));
+        options.addOption(new Option("f", "trace-file", true, "Stream the instruction trace to binary files with this prefix."));
+        options.addOption(new Option("n", "trace-segments", true, "Number of trace file segments to keep (default: all)."));
+        options.addOption(new Option("y", "symbols", true, "Load labels from a VICE label file, ld65 map file, or assembler listing."));
+        options.addOption(new Option("H", "headless", false, "Run without a user interface, with the ACIA on stdin and stdout."));
+        options.addOption(new Option("p", "program", true, "Load a program before running headless."));
+        options.addOption(new Option("a", "address", true, "Address to load the program at, in hex (default: 0300)."));
+        options.addOption(new Option(null, "start", true, "Address to start running a loaded program at, in hex (default: load address)."));
+        options.addOption(new Option("s", "steps", true, "Stop running headless after this many instructions."));
+        options.addOption(new Option(null, "opcode-stats", true, "Write opcode statistics from a headless run to this CSV file."));
+        options.addOption(new Option(null, "opcode-baseline", true, "Compare opcode statistics against this earlier CSV file."));
+        options.addOption(new Option(null, "coverage", true, "Write code coverage from a headless run to this LCOV file."));
+        options.addOption(new Option(null, "listing", true, "Assembler listing to map code coverage to. May be repeated."));
+        options.addOption(new Option(null, "capture-frames", true, "Capture the video display during a headless run to this directory."));
+        options.addOption(new Option(null, "frame-rate", true, "Frames to capture per emulated second (default: 50)."));
+        options.addOption(new Option(null, "frame-format", true, "Format to capture frames in, png or raw (default: png)."));
 
         CommandLineParser parser = new DefaultParser();
 
@@ -61,6 +87,10 @@ public class Main {
             InstructionTable.CpuBehavior cpuBehavior = null;
             String romFile = null;
             boolean haltOnBreak = false;
+            int tcpPort = -1;
+            String traceFile = null;
+            int traceSegments = 0;
+            SymbolTable symbolTable = null;
 
             if (line.hasOption("machine")) {
                 String machine = line.getOptionValue("machine").toLowerCase(Locale.ENGLISH);
@@ -109,6 +139,56 @@ public class Main {
                 haltOnBreak = true;
             }
 
+            if (line.hasOption("tcp")) {
+                try {
+                    tcpPort = Integer.parseInt(line.getOptionValue("tcp"));
+                } catch (NumberFormatException ex) {
+                    logger.error("Could not start Symon. Invalid TCP port {}", line.getOptionValue("tcp"));
+                    return;
+                }
+            }
+
+            if (line.hasOption("trace-file")) {
+                traceFile = line.getOptionValue("trace-file");
+            }
+
+            if (line.hasOption("trace-segments")) {
+                try {
+                    traceSegments = Integer.parseInt(line.getOptionValue("trace-segments"));
+                } catch (NumberFormatException ex) {
+                    logger.error("Could not start Symon. Invalid trace segment count {}", line.getOptionValue("trace-segments"));
+                    return;
+                }
+            }
+
+            if (line.hasOption("symbols")) {
+                try (Reader in = new FileReader(line.getOptionValue("symbols"))) {
+                    symbolTable = SymbolTable.read(in);
+                } catch (IOException ex) {
+                    logger.error("Could not start Symon. Unable to read symbols: {}", ex.getMessage());
+                    return;
+                }
+            }
+
+            if (line.hasOption("headless")) {
+                if (tcpPort >= 0) {
+                    logger.error("Could not start Symon. A headless run uses stdin and stdout for the ACIA, not --tcp.");
+                    return;
+                }
+                runHeadless(line,
+                            machineClass == null ? SymonMachine.class : machineClass,
+                            cpuBehavior == null ? InstructionTable.CpuBehavior.NMOS_6502 : cpuBehavior,
+                            romFile, haltOnBreak, traceFile, traceSegments);
+                return;
+            }
+
+            // One writer records across machine switches. A new writer would
+            // start again at the first segment, overwriting the old ones.
+            TraceFileWriter traceFileWriter = null;
+            if (traceFile != null) {
+                traceFileWriter = new TraceFileWriter(traceFile, traceSegments);
+            }
+
             while (true) {
                 if (machineClass == null) {
                     Object[] possibilities = {"Symon", "Multicomp", "Simple", "BenEater"};
@@ -139,6 +219,18 @@ public class Main {
 
                 final Simulator simulator = new Simulator(machineClass, cpuBehavior, romFile, haltOnBreak);
 
+                if (tcpPort >= 0) {
+                    simulator.setSerialBackend(TcpSerialServer.getInstance().open(tcpPort));
+                }
+
+                if (traceFileWriter != null) {
+                    simulator.setTraceFileWriter(traceFileWriter);
+                }
+
+                if (symbolTable != null) {
+                    simulator.setSymbolTable(symbolTable);
+                }
+
                 SwingUtilities.invokeLater(() -> {
                     try {
                         UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
@@ -163,4 +255,166 @@ public class Main {
             logger.error("Could not start Symon. Reason: {}", ex.getMessage());
         }
     }
+
+    /**
+     * Run a machine with no user interface until it halts, reaches the step
+     * limit, or is interrupted, then write out any statistics requested.
+     */
+    private static void runHeadless(CommandLine line, Class<?> machineClass,
+                                    InstructionTable.CpuBehavior cpuBehavior, String romFile,
+                                    boolean haltOnBreak, String traceFile, int traceSegments) throws Exception {
+        long maxSteps = 0;
+        int frameRate = FrameCapture.DEFAULT_FRAME_RATE;
+        int loadAddress = Preferences.DEFAULT_PROGRAM_LOAD_ADDRESS;
+        int startAddress;
+
+        try {
+            if (line.hasOption("steps")) {
+                maxSteps = Long.parseLong(line.getOptionValue("steps"));
+            }
+            if (line.hasOption("address")) {
+                loadAddress = Integer.parseInt(line.getOptionValue("address"), 16) & 0xffff;
+            }
+            startAddress = loadAddress;
+            if (line.hasOption("start")) {
+                startAddress = Integer.parseInt(line.getOptionValue("start"), 16) & 0xffff;
+            }
+            if (line.hasOption("frame-rate")) {
+                frameRate = Integer.parseInt(line.getOptionValue("frame-rate"));
+            }
+        } catch (NumberFormatException ex) {
+            logger.error("Could not start Symon. Invalid number {}", ex.getMessage());
+            return;
+        }
+
+        FrameCapture.Format frameFormat = FrameCapture.Format.PNG;
+        if (line.hasOption("frame-format")) {
+            try {
+                frameFormat = FrameCapture.Format.valueOf(line.getOptionValue("frame-format").toUpperCase(Locale.ENGLISH));
+            } catch (IllegalArgumentException ex) {
+                logger.error("Could not start Symon. Unknown frame format {}", line.getOptionValue("frame-format"));
+                return;
+            }
+        }
+        if (frameRate <= 0) {
+            logger.error("Could not start Symon. Invalid frame rate {}", frameRate);
+            return;
+        }
+
+        Machine machine = (Machine) machineClass.getConstructors()[0].newInstance(romFile);
+        machine.getCpu().setBehavior(cpuBehavior);
+
+        // Check the machine can do what was asked before creating any sinks,
+        // so that nothing is left open on an early return.
+        if (line.hasOption("capture-frames") && machine.getCrtc() == null) {
+            logger.error("Could not start Symon. The {} machine has no video display to capture.", machine.getName());
+            return;
+        }
+
+        final HeadlessSimulator simulator = new HeadlessSimulator(machine, haltOnBreak);
+
+        OpcodeStatistics opcodeStatistics = null;
+        if (line.hasOption("opcode-stats")) {
+            opcodeStatistics = new OpcodeStatistics();
+            simulator.addTraceSink(opcodeStatistics);
+        }
+
+        CodeCoverage coverage = null;
+        if (line.hasOption("coverage")) {
+            if (!line.hasOption("listing")) {
+                logger.error("Could not start Symon. Code coverage needs at least one --listing file.");
+                return;
+            }
+            coverage = new CodeCoverage();
+            simulator.addTraceSink(coverage);
+        }
+
+        simulator.reset();
+        if (line.hasOption("program")) {
+            simulator.loadProgram(Files.readAllBytes(Paths.get(line.getOptionValue("program"))), loadAddress);
+            machine.getCpu().setProgramCounter(startAddress);
+        }
+
+        FrameCapture frameCapture = null;
+        if (line.hasOption("capture-frames")) {
+            // Started after the reset, so the first frame is at the start of the run.
+            frameCapture = new FrameCapture(machine.getCpu(), machine.getCrtc(),
+                                            Paths.get(line.getOptionValue("capture-frames")), frameFormat, frameRate);
+            simulator.addTraceSink(frameCapture);
+        }
+
+        // Created last, once nothing else can fail before the run, so that
+        // the writer is always closed by the finally block below.
+        TraceFileWriter traceFileWriter = null;
+        if (traceFile != null) {
+            traceFileWriter = new TraceFileWriter(traceFile, traceSegments);
+            simulator.addTraceSink(traceFileWriter);
+        }
+
+        // On Ctrl-C, stop the simulator and wait for the results to be written.
+        final CountDownLatch finished = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            simulator.requestStop();
+            try {
+                finished.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+        }));
+
+        try {
+            long steps = simulator.run(maxSteps);
+            logger.info("Executed {} instructions", steps);
+        } finally {
+            if (traceFileWriter != null) {
+                traceFileWriter.close();
+            }
+            if (frameCapture != null) {
+                frameCapture.close();
+                logger.info("Wrote {} of {} frames to {}", frameCapture.getFramesWritten(),
+                            frameCapture.getFrameCount(), line.getOptionValue("capture-frames"));
+            }
+            if (opcodeStatistics != null) {
+                writeOpcodeStatistics(opcodeStatistics, line.getOptionValue("opcode-stats"),
+                                      line.getOptionValue("opcode-baseline"));
+            }
+            if (coverage != null) {
+                writeCoverage(coverage, line.getOptionValue("coverage"), line.getOptionValues("listing"));
+            }
+            finished.countDown();
+        }
+    }
+
+    private static void writeOpcodeStatistics(OpcodeStatistics statistics, String file, String baselineFile) {
+        long[] baseline = null;
+        if (baselineFile != null) {
+            try (Reader in = new FileReader(baselineFile)) {
+                baseline = OpcodeStatistics.readCsv(in);
+            } catch (IOException ex) {
+                logger.error("Unable to read opcode baseline {}: {}", baselineFile, ex.getMessage());
+            }
+        }
+
+        try (Writer out = new BufferedWriter(new FileWriter(file))) {
+            OpcodeStatistics.writeCsv(out, statistics.snapshot(), baseline);
+        } catch (IOException ex) {
+            logger.error("Unable to write opcode statistics {}: {}", file, ex.getMessage());
+        }
+    }
+
+    private static void writeCoverage(CodeCoverage coverage, String file, String[] listingFiles) {
+        try (Writer out = new BufferedWriter(new FileWriter(file))) {
+            for (String listingFile : listingFiles) {
+                AssemblerListing listing;
+                try (Reader in = new FileReader(listingFile)) {
+                    listing = AssemblerListing.read(in);
+                }
+                coverage.writeLcov(out, listing, listingFile);
+                logger.info("Coverage of {}: {} of {} instruction lines executed", listingFile,
+                            coverage.countCoveredLines(listing), listing.getInstructionLineCount());
+            }
+        } catch (IOException ex) {
+            logger.error("Unable to write code coverage {}: {}", file, ex.getMessage());
+        }
+    }
 }
@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counts how many times each opcode is executed, to show the real
+ * instruction mix of a program. Counts can be saved as snapshots and
+ * compared, and exported as CSV joined with each opcode's mnemonic and
+ * addressing mode.
+ */
+public class OpcodeStatistics implements TraceSink {
+
+    private static final String CSV_HEADER = "opcode,mnemonic,mode,count,percent";
+    private static final String CSV_DIFF_HEADER = CSV_HEADER + ",baseline,delta";
+
+    private final long[] counts = new long[256];
+
+    public void record(CpuState state) {
+        counts[state.ir]++;
+    }
+
+    /**
+     * Clear all counts.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+    }
+
+    public long getCount(int opcode) {
+        return counts[opcode];
+    }
+
+    /**
+     * @return A copy of the current counts, indexed by opcode.
+     */
+    public long[] snapshot() {
+        return counts.clone();
+    }
+
+    /**
+     * @param counts Counts indexed by opcode.
+     * @return The same counts summed by addressing mode, indexed by
+     * {@link InstructionTable.Mode#ordinal()}.
+     */
+    public static long[] countsByMode(long[] counts) {
+        long[] byMode = new long[InstructionTable.Mode.values().length];
+        for (int opcode = 0; opcode < 256; opcode++) {
+            byMode[InstructionTable.instructionModes[opcode].ordinal()] += counts[opcode];
+        }
+        return byMode;
+    }
+
+    /**
+     * @return The difference between two sets of counts, element by element.
+     */
+    public static long[] diff(long[] counts, long[] baseline) {
+        long[] delta = new long[counts.length];
+        for (int i = 0; i < counts.length; i++) {
+            delta[i] = counts[i] - baseline[i];
+        }
+        return delta;
+    }
+
+    public static long total(long[] counts) {
+        long total = 0;
+        for (long count : counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Write counts as CSV, one row per opcode executed, most frequent first.
+     *
+     * @param out      Where to write the CSV.
+     * @param counts   Counts indexed by opcode.
+     * @param baseline Counts to compare against, such as from an earlier
+     *                 run, or null. If given, opcodes executed in either are
+     *                 written, with the baseline count and the change.
+     * @throws IOException if the CSV can't be written.
+     */
+    public static void writeCsv(Writer out, long[] counts, long[] baseline) throws IOException {
+        long total = total(counts);
+
+        Integer[] opcodes = new Integer[256];
+        for (int i = 0; i < 256; i++) {
+            opcodes[i] = i;
+        }
+        Arrays.sort(opcodes, (a, b) -> Long.compare(counts[b], counts[a]));
+
+        out.write(baseline == null ? CSV_HEADER : CSV_DIFF_HEADER);
+        out.write('\n');
+        for (int opcode : opcodes) {
+            if (counts[opcode] == 0 && (baseline == null || baseline[opcode] == 0)) {
+                continue;
+            }
+            out.write(String.format(Locale.ROOT, "$%02X,%s,%s,%d,%.4f", opcode, InstructionTable.opcodeNames[opcode],
+                                    InstructionTable.instructionModes[opcode].name(), counts[opcode],
+                                    total == 0 ? 0.0 : 100.0 * counts[opcode] / total));
+            if (baseline != null) {
+                out.write(String.format(",%d,%d", baseline[opcode], counts[opcode] - baseline[opcode]));
+            }
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Read counts back from CSV written by {@link #writeCsv}.
+     *
+     * @param in The CSV to read.
+     * @return Counts indexed by opcode.
+     * @throws IOException if the CSV can't be read or is not in the
+     *                     expected format.
+     */
+    public static long[] readCsv(Reader in) throws IOException {
+        long[] counts = new long[256];
+        BufferedReader reader = new BufferedReader(in);
+        String header = reader.readLine();
+        if (header == null || !header.startsWith(CSV_HEADER)) {
+            throw new IOException("Not an opcode statistics file");
+        }
+
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.trim().isEmpty()) {
+                continue;
+            }
+            String[] fields = line.split(",");
+            try {
+                int opcode = TraceFileDecoder.parseHex(fields[0]) & 0xff;
+                counts[opcode] = Long.parseLong(fields[3]);
+            } catch (NumberFormatException | ArrayIndexOutOfBoundsException ex) {
+                throw new IOException("Bad opcode statistics line: " + line);
+            }
+        }
+        return counts;
+    }
+}
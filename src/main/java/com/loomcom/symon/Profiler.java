@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import com.loomcom.symon.exceptions.MemoryAccessException;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Counts, for every address, how many times the instruction there was
+ * executed and how many clock cycles it used. The counts are kept in flat
+ * arrays indexed by address, so recording an instruction costs two array
+ * updates and the profiler can be left running for as long as needed.
+ * <p>
+ * Cycles are taken from the CPU's instruction timing table, and do not
+ * include page crossing or branch penalties.
+ */
+public class Profiler implements TraceSink {
+
+    private static final int ADDRESS_SPACE = 0x10000;
+
+    // Executed addresses separated by fewer bytes than this are reported
+    // as one range, so operand bytes don't split straight-line code.
+    private static final int MAX_RANGE_GAP = 3;
+
+    private final Cpu cpu;
+
+    private final long[] executions = new long[ADDRESS_SPACE];
+    private final long[] cycles = new long[ADDRESS_SPACE];
+
+    private long totalExecutions = 0;
+    private long totalCycles = 0;
+
+    public Profiler(Cpu cpu) {
+        this.cpu = cpu;
+    }
+
+    public void record(CpuState state) {
+        int clocks = cpu.getInstructionClocks(state.ir);
+        executions[state.lastPc]++;
+        cycles[state.lastPc] += clocks;
+        totalExecutions++;
+        totalCycles += clocks;
+    }
+
+    /**
+     * Clear all counts.
+     */
+    public void reset() {
+        Arrays.fill(executions, 0);
+        Arrays.fill(cycles, 0);
+        totalExecutions = 0;
+        totalCycles = 0;
+    }
+
+    public long getExecutions(int address) {
+        return executions[address];
+    }
+
+    public long getCycles(int address) {
+        return cycles[address];
+    }
+
+    public long getTotalExecutions() {
+        return totalExecutions;
+    }
+
+    public long getTotalCycles() {
+        return totalCycles;
+    }
+
+    /**
+     * @param limit The maximum number of addresses to return.
+     * @return The executed addresses using the most cycles, hottest first.
+     */
+    public List<Integer> getHotAddresses(int limit) {
+        List<Integer> addresses = new ArrayList<>();
+        for (int address = 0; address < ADDRESS_SPACE; address++) {
+            if (executions[address] > 0) {
+                addresses.add(address);
+            }
+        }
+        addresses.sort(Comparator.comparingLong((Integer address) -> cycles[address]).reversed()
+                                 .thenComparingInt(address -> address));
+        return addresses.size() > limit ? addresses.subList(0, limit) : addresses;
+    }
+
+    /**
+     * @param limit The maximum number of ranges to return.
+     * @return Ranges of executed code, hottest first.
+     */
+    public List<Range> getHotRanges(int limit) {
+        List<Range> ranges = new ArrayList<>();
+        Range current = null;
+        for (int address = 0; address < ADDRESS_SPACE; address++) {
+            if (executions[address] == 0) {
+                continue;
+            }
+            if (current == null || address - current.endAddress > MAX_RANGE_GAP) {
+                current = new Range(address);
+                ranges.add(current);
+            }
+            current.endAddress = address;
+            current.executions += executions[address];
+            current.cycles += cycles[address];
+        }
+        ranges.sort(Comparator.comparingLong((Range range) -> range.cycles).reversed()
+                              .thenComparingInt(range -> range.startAddress));
+        return ranges.size() > limit ? ranges.subList(0, limit) : ranges;
+    }
+
+    /**
+     * Write a plain text report of the hottest ranges and addresses.
+     *
+     * @param out   Where to write the report.
+     * @param limit The maximum number of ranges, and of addresses, to list.
+     * @throws IOException if the report can't be written.
+     */
+    public void writeReport(Writer out, int limit) throws IOException {
+        out.write(String.format("Instructions: %d%nCycles: %d%n%n", totalExecutions, totalCycles));
+
+        out.write(String.format("Hot ranges%n"));
+        out.write(String.format("%-11s  %14s  %14s  %6s  %s%n", "Range", "Executions", "Cycles", "%", "Label"));
+        for (Range range : getHotRanges(limit)) {
+            out.write(String.format("$%04X-$%04X  %14d  %14d  %6.2f  %s",
+                                    range.startAddress, range.endAddress, range.executions, range.cycles,
+                                    percentOfTotal(range.cycles), label(range.startAddress)).stripTrailing());
+            out.write(String.format("%n"));
+        }
+
+        out.write(String.format("%nHot addresses%n"));
+        out.write(String.format("%-5s  %-16s  %14s  %14s  %6s  %s%n", "Addr", "Instruction", "Executions", "Cycles", "%",
+                                "Label"));
+        for (int address : getHotAddresses(limit)) {
+            String instruction;
+            try {
+                instruction = cpu.disassembleOpAtAddress(address);
+            } catch (MemoryAccessException ex) {
+                instruction = "???";
+            }
+            out.write(String.format("$%04X  %-16s  %14d  %14d  %6.2f  %s",
+                                    address, instruction, executions[address], cycles[address],
+                                    percentOfTotal(cycles[address]), label(address)).stripTrailing());
+            out.write(String.format("%n"));
+        }
+        out.flush();
+    }
+
+    private String label(int address) {
+        String label = cpu.getSymbolTable().describe(address);
+        return label == null ? "" : label;
+    }
+
+    private double percentOfTotal(long count) {
+        return totalCycles == 0 ? 0.0 : 100.0 * count / totalCycles;
+    }
+
+    /**
+     * A run of executed code, with the counts of all the instructions in it.
+     */
+    public static class Range {
+        public final int startAddress;
+        public int endAddress;
+        public long executions;
+        public long cycles;
+
+        Range(int startAddress) {
+            this.startAddress = startAddress;
+            this.endAddress = startAddress;
+        }
+    }
+}
@@ -23,9 +23,11 @@
 
 package com.loomcom.symon;
 
+import com.loomcom.symon.devices.Acia;
 import com.loomcom.symon.devices.Memory;
 import com.loomcom.symon.exceptions.*;
 import com.loomcom.symon.machines.Machine;
+import com.loomcom.symon.serial.SerialBackend;
 import com.loomcom.symon.ui.*;
 import com.loomcom.symon.ui.Console;
 import org.slf4j.Logger;
@@ -73,14 +75,9 @@ public class Simulator {
     // The simulated machine
     private final Machine machine;
 
-    // Number of CPU steps between CRT repaints.
-    // TODO: Dynamically refresh the value at runtime based on performance figures to reach ~ 30fps.
-    private static final long STEPS_BETWEEN_CRTC_REFRESHES = 2500;
-
     // A counter to keep track of the number of UI updates that have been
     // requested
     private int stepsSinceLastUpdate = 0;
-    private int stepsSinceLastCrtcRefresh = 0;
 
     // The number of steps to run per click of the "Step" button
     private int stepsPerClick = 1;
@@ -97,6 +94,51 @@ public class Simulator {
      */
     private final TraceLog traceLog;
 
+    /**
+     * If set, every instruction is also streamed to disk.
+     */
+    private TraceFileWriter traceFileWriter;
+
+    /**
+     * Where each executed instruction is recorded, or null if neither trace
+     * capture nor profiling is turned on. This is rebuilt whenever either
+     * is switched on or off or the capture filter changes, so the run loop
+     * only ever has to check it for null.
+     */
+    private volatile TraceSink traceSink;
+
+    private boolean traceCaptureEnabled = false;
+    private TraceFilterDialog traceFilterDialog;
+
+    /**
+     * Counts executions and cycles for each address while profiling is on.
+     */
+    private final Profiler profiler;
+    private boolean profilingEnabled = false;
+
+    /**
+     * Charges cycles to guest call stacks while call stack profiling is on.
+     */
+    private final CallStackProfiler callStackProfiler;
+    private boolean callStackProfilingEnabled = false;
+
+    /**
+     * Counts executions of each opcode while opcode counting is on.
+     */
+    private final OpcodeStatistics opcodeStatistics;
+    private boolean opcodeCountingEnabled = false;
+
+    /**
+     * Records which bytes have been executed while coverage is on.
+     */
+    private final CodeCoverage coverage;
+    private boolean coverageEnabled = false;
+
+    /**
+     * Throughput and health metrics, published over JMX.
+     */
+    private final SimulatorMetrics metrics;
+
     /**
      * The Memory Window shows the contents of one page of memory.
      */
@@ -106,10 +148,24 @@ public class Simulator {
 
     private final BreakpointsWindow breakpointsWindow;
 
+    private final WatchpointsWindow watchpointsWindow;
+
+    private final OpcodeStatisticsWindow opcodeStatisticsWindow;
+
+    private final Disassembler disassembler;
+
+    private final DisassemblyWindow disassemblyWindow;
+
     private SimulatorMenu menuBar;
 
     private RunLoop runLoop;
     private Console console;
+
+    /**
+     * The device at the far end of the ACIA's serial line. Unless another
+     * backend is set before the UI is shown, this is the console.
+     */
+    private SerialBackend serialBackend;
     private StatusPanel statusPane;
 
     private JButton runStopButton;
@@ -122,6 +178,8 @@ public class Simulator {
 
     private final Breakpoints breakpoints;
 
+    private final Watchpoints watchpoints;
+
     private final Object commandMonitorObject = new Object();
 
     private MainCommand command = MainCommand.NONE;
@@ -146,14 +204,31 @@ public class Simulator {
                      String romFile, boolean haltOnBreak) throws Exception {
         this.haltOnBreak = haltOnBreak;
         this.breakpoints = new Breakpoints(this);
+        this.watchpoints = new Watchpoints();
 
         this.machine = (Machine) machineClass.getConstructors()[0].newInstance(romFile);
         this.machine.getCpu().setBehavior(cpuType);
 
+        // Only attach watchpoints to the bus while there are any, so
+        // that memory accesses don't check them otherwise.
+        watchpoints.setCpu(machine.getCpu());
+        watchpoints.addTableModelListener(e -> machine.getBus().setWatchpoints(
+                watchpoints.getRowCount() > 0 ? watchpoints : null));
+
         // Initialize final fields in the constructor.
         this.traceLog = new TraceLog();
+        this.profiler = new Profiler(machine.getCpu());
+        this.callStackProfiler = new CallStackProfiler(machine.getCpu());
+        this.opcodeStatistics = new OpcodeStatistics();
+        this.coverage = new CodeCoverage();
+        this.metrics = new SimulatorMetrics(machine, traceLog.getTraceBuffer());
+        this.metrics.register();
         this.memoryWindow = new MemoryWindow(machine.getBus());
         this.breakpointsWindow = new BreakpointsWindow(breakpoints, mainWindow);
+        this.watchpointsWindow = new WatchpointsWindow(watchpoints, mainWindow);
+        this.opcodeStatisticsWindow = new OpcodeStatisticsWindow(opcodeStatistics);
+        this.disassembler = new Disassembler(machine.getBus());
+        this.disassemblyWindow = new DisassemblyWindow(disassembler);
 
         if (machine.getCrtc() != null) {
             videoWindow = new VideoWindow(machine.getCrtc(), 2, 2);
@@ -177,9 +252,15 @@ public class Simulator {
 
         console.setBorderWidth(CONSOLE_BORDER_WIDTH);
 
+        if (serialBackend == null) {
+            serialBackend = console;
+        }
+
         // File Chooser
         fileChooser = new JFileChooser(System.getProperty("user.dir"));
         preferences = new PreferencesDialog(mainWindow, true, haltOnBreak);
+        traceFilterDialog = new TraceFilterDialog(mainWindow, machine.getBus(), filter -> updateTraceSink());
+        updateTraceSink();
 
         // Panel for Console and Buttons
         JPanel consoleContainer = new JPanel();
@@ -264,6 +345,114 @@ public class Simulator {
         handleReset(false);
     }
 
+    /**
+     * Attach the ACIA to something other than the console. Must be called
+     * before the UI is shown.
+     *
+     * @param serialBackend The serial backend to attach.
+     */
+    public void setSerialBackend(SerialBackend serialBackend) {
+        this.serialBackend = serialBackend;
+    }
+
+    /**
+     * Stream the instruction trace to a set of binary files, as well as
+     * to the Trace Log window.
+     *
+     * @param traceFileWriter The writer to record to. It is closed when the
+     *                        simulator quits, but not when switching
+     *                        machines, so that one writer can record the
+     *                        whole session.
+     */
+    public void setTraceFileWriter(TraceFileWriter traceFileWriter) {
+        this.traceFileWriter = traceFileWriter;
+        this.traceCaptureEnabled = true;
+    }
+
+    /**
+     * Use labels from a symbol table in the disassembly shown by the trace
+     * log, the breakpoints window, the disassembly window, and the
+     * profiler reports.
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        machine.getCpu().setSymbolTable(symbolTable);
+        traceLog.setSymbolTable(symbolTable);
+        breakpoints.setSymbolTable(symbolTable);
+        disassemblyWindow.setSymbolTable(symbolTable);
+    }
+
+    /**
+     * Turn instruction trace capture on or off.
+     */
+    private void setTraceCaptureEnabled(boolean enabled) {
+        traceCaptureEnabled = enabled;
+        updateTraceSink();
+    }
+
+    /**
+     * Turn the execution profiler on or off. Counts are kept while it is
+     * off, until explicitly reset.
+     */
+    private void setProfilingEnabled(boolean enabled) {
+        profilingEnabled = enabled;
+        updateTraceSink();
+    }
+
+    /**
+     * Turn the call stack profiler on or off.
+     */
+    private void setCallStackProfilingEnabled(boolean enabled) {
+        callStackProfilingEnabled = enabled;
+        updateTraceSink();
+    }
+
+    /**
+     * Turn opcode counting on or off.
+     */
+    private void setOpcodeCountingEnabled(boolean enabled) {
+        opcodeCountingEnabled = enabled;
+        updateTraceSink();
+    }
+
+    /**
+     * Turn code coverage recording on or off.
+     */
+    private void setCoverageEnabled(boolean enabled) {
+        coverageEnabled = enabled;
+        updateTraceSink();
+    }
+
+    /**
+     * Rebuild the trace sink from the capture setting, the capture filter,
+     * the places the trace is recorded to, and the profilers.
+     */
+    private void updateTraceSink() {
+        TraceSink sink = null;
+
+        if (traceCaptureEnabled) {
+            TraceSink capture = TraceSink.chain(traceLog::append, traceFileWriter);
+            sink = traceFilterDialog.getFilter().apply(capture);
+        }
+
+        if (profilingEnabled) {
+            sink = TraceSink.chain(sink, profiler);
+        }
+
+        if (callStackProfilingEnabled) {
+            sink = TraceSink.chain(sink, callStackProfiler);
+        }
+
+        if (opcodeCountingEnabled) {
+            sink = TraceSink.chain(sink, opcodeStatistics);
+        }
+
+        if (coverageEnabled) {
+            sink = TraceSink.chain(sink, coverage);
+        }
+
+        traceSink = sink;
+    }
+
     public MainCommand waitForCommand() {
         synchronized (commandMonitorObject) {
             try {
@@ -291,15 +480,35 @@ public class Simulator {
         runLoop = null;
     }
 
+    /**
+     * Stop the run loop, if there is one, and wait for its thread to exit.
+     * Once this returns, nothing else is stepping the CPU or reading the
+     * serial buffers.
+     */
+    private void stopRunLoopAndWait() {
+        RunLoop loop = runLoop;
+        runLoop = null;
+        if (loop == null) {
+            return;
+        }
+
+        loop.requestStop();
+        loop.interrupt();
+        try {
+            loop.join();
+        } catch (InterruptedException ex) {
+            logger.error("Interrupted while waiting for the run loop to stop.");
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /*
      * Perform a reset.
      */
     private void handleReset(boolean isColdReset) {
-        if (runLoop != null && runLoop.isRunning()) {
-            runLoop.requestStop();
-            runLoop.interrupt();
-            runLoop = null;
-        }
+        // The run thread consumes the serial input buffers, so it must be
+        // finished before they can be reset from here.
+        stopRunLoopAndWait();
 
         try {
             logger.debug("Reset requested. Resetting CPU.");
@@ -307,12 +516,17 @@ public class Simulator {
             machine.getCpu().reset();
             // Clear the console.
             console.reset();
+            if (serialBackend != console) {
+                serialBackend.reset();
+            }
             // Reset the trace log.
             traceLog.reset();
             // If we're doing a cold reset, clear the memory.
             if (isColdReset) {
                 Memory mem = machine.getRam();
                 if (mem != null) {
+                    // Changes every bus page version, so the disassembly
+                    // and the video display are redrawn from the new RAM.
                     mem.fill(0);
                 }
             }
@@ -327,6 +541,7 @@ public class Simulator {
      * Step the requested number of times, and immediately refresh the UI.
      */
     private void handleStep(int numSteps) {
+        metrics.runStarted();
         try {
             for (int i = 0; i < numSteps; i++) {
                 step();
@@ -360,29 +575,26 @@ public class Simulator {
     private void step() throws MemoryAccessException {
         machine.getCpu().step();
 
-        traceLog.append(machine.getCpu().getCpuState());
-
-        // Read from the ACIA and immediately update the console if there's
-        // output ready.
-        if (machine.getAcia() != null && machine.getAcia().hasTxChar()) {
-            // This is thread-safe
-            console.print(Character.toString((char) machine.getAcia().txRead(true)));
-            console.repaint();
+        TraceSink sink = traceSink;
+        if (sink != null) {
+            sink.record(machine.getCpu().getCpuState());
         }
 
-        // If a key has been pressed, fill the ACIA.
-        try {
-            if (machine.getAcia() != null && console.hasInput()) {
-                machine.getAcia().rxWrite(console.readInputChar());
+        Acia acia = machine.getAcia();
+        if (acia != null) {
+            // Read from the ACIA and immediately pass it down the line if
+            // there's output ready and the other end has room for it.
+            if (acia.hasTxChar() && serialBackend.canOutput()) {
+                serialBackend.output(acia.txRead(true));
             }
-        } catch (FifoUnderrunException ex) {
-            logger.error("Console type-ahead buffer underrun!");
-        }
 
-        if (videoWindow != null && stepsSinceLastCrtcRefresh++ > STEPS_BETWEEN_CRTC_REFRESHES) {
-            stepsSinceLastCrtcRefresh = 0;
-            if (videoWindow.isVisible()) {
-                videoWindow.repaint();
+            // If input is waiting and the ACIA has room, fill the ACIA.
+            try {
+                if (!acia.hasRxChar() && serialBackend.hasInput()) {
+                    acia.rxWrite(serialBackend.readInput());
+                }
+            } catch (FifoUnderrunException ex) {
+                logger.error("Serial input buffer underrun!");
             }
         }
 
@@ -391,6 +603,7 @@ public class Simulator {
         // with requests. Limit the number of ui updates that can be performed.
         if (stepsSinceLastUpdate++ > MAX_STEPS_BETWEEN_UPDATES) {
             updateVisibleState();
+            metrics.publish(false);
             stepsSinceLastUpdate = 0;
         }
     }
@@ -421,7 +634,10 @@ public class Simulator {
      * The main run thread.
      */
     class RunLoop extends Thread {
-        private boolean isRunning = false;
+        private volatile boolean isRunning = false;
+        // Set from other threads. Kept apart from isRunning, so that a stop
+        // requested before the thread gets going is not lost.
+        private volatile boolean stopRequested = false;
         private boolean haltOnRts = false;
         // The number of JSR instructions we've seen since being asked to
         // step over a subroutine. While stepping over, this is incremented
@@ -433,6 +649,7 @@ public class Simulator {
         }
 
         public void requestStop() {
+            this.stopRequested = true;
             this.isRunning = false;
         }
 
@@ -448,6 +665,12 @@ public class Simulator {
             }
             this.isRunning = true;
 
+            // Measure rates from now, not from before the pause.
+            metrics.runStarted();
+
+            // Forget accesses made while stopped, such as loading a program.
+            watchpoints.takeHit();
+
             SwingUtilities.invokeLater(() -> {
                 // Don't allow step while the simulator is running
                 stepButton.setEnabled(false);
@@ -477,6 +700,13 @@ public class Simulator {
                 logger.error("Exception in main simulator run thread. Exiting run.", ex);
             }
 
+            metrics.publish(true);
+
+            final Watchpoints.Hit watchpointHit = watchpoints.takeHit();
+            if (watchpointHit != null) {
+                logger.info("Watchpoint: {}", watchpointHit);
+            }
+
             SwingUtilities.invokeLater(() -> {
                 statusPane.updateState();
                 memoryWindow.updateState();
@@ -487,6 +717,18 @@ public class Simulator {
                 if (traceLog.isVisible()) {
                     traceLog.refresh();
                 }
+                if (opcodeStatisticsWindow.isVisible()) {
+                    opcodeStatisticsWindow.refresh();
+                }
+                if (disassemblyWindow.isVisible()) {
+                    disassemblyWindow.refresh(machine.getCpu().getProgramCounter());
+                }
+                // Show the new hit counts.
+                breakpoints.refresh();
+                watchpoints.refresh();
+                if (watchpointHit != null) {
+                    watchpointsWindow.showHit(watchpointHit);
+                }
                 menuBar.simulatorDidStop();
                 traceLog.simulatorDidStop();
             });
@@ -501,15 +743,19 @@ public class Simulator {
             var instruction = machine.getCpu().getInstruction();
 
             var stepOverHalt = this.haltOnRts && this.callStackDepth == 0 && instruction == RTS;
-            var breakpointHalt = breakpoints.contains(machine.getCpu().getProgramCounter());
+            var breakpointHalt = breakpoints.shouldBreak(machine.getCpu().getCpuState(), machine.getBus());
             var brkHalt = preferences.getHaltOnBreak() && instruction == BRK;
+            var watchpointHalt = watchpoints.hasHit();
 
-            return isRunning && !(stepOverHalt || breakpointHalt || brkHalt);
+            return !stopRequested && !(stepOverHalt || breakpointHalt || brkHalt || watchpointHalt);
         }
     }
 
-    public String disassembleOpAtAddress(int address) throws MemoryAccessException {
-        return machine.getCpu().disassembleOpAtAddress(address);
+    /**
+     * Read a byte of memory without the side effects of a CPU access.
+     */
+    public int peekMemory(int address) throws MemoryAccessException {
+        return machine.getBus().read(address, false);
     }
 
     class LoadProgramAction extends AbstractAction {
@@ -624,6 +870,28 @@ public class Simulator {
         }
     }
 
+    class LoadSymbolsAction extends AbstractAction {
+        public LoadSymbolsAction() {
+            super("Load Symbols...", null);
+            putValue(SHORT_DESCRIPTION, "Load labels from a VICE label file, ld65 map file, or assembler listing");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            int retVal = fileChooser.showOpenDialog(mainWindow);
+            if (retVal == JFileChooser.APPROVE_OPTION) {
+                File f = fileChooser.getSelectedFile();
+                try (Reader in = new FileReader(f)) {
+                    SymbolTable symbolTable = SymbolTable.read(in);
+                    setSymbolTable(symbolTable);
+                    logger.info("Loaded {} symbols from `{}'", symbolTable.size(), f.getName());
+                } catch (IOException ex) {
+                    logger.error("Unable to read symbol file: {}", ex.getMessage());
+                    JOptionPane.showMessageDialog(mainWindow, ex.getMessage(), "Failure", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }
+    }
+
     class ShowPrefsAction extends AbstractAction {
         public ShowPrefsAction() {
             super("Preferences...", null);
@@ -644,12 +912,18 @@ public class Simulator {
         }
 
         public void actionPerformed(ActionEvent actionEvent) {
-            if (runLoop != null) {
-                runLoop.requestStop();
-            }
+            // The trace file writer is kept open for the next machine, so
+            // the run thread must be finished before it is handed over.
+            stopRunLoopAndWait();
 
+            serialBackend.close();
+            metrics.unregister();
             memoryWindow.dispose();
             traceLog.dispose();
+            opcodeStatisticsWindow.dispose();
+            disassemblyWindow.dispose();
+            disassembler.shutdown();
+            watchpointsWindow.dispose();
             if (videoWindow != null) {
                 videoWindow.dispose();
             }
@@ -670,9 +944,10 @@ public class Simulator {
         }
 
         public void actionPerformed(ActionEvent actionEvent) {
-            if (runLoop != null && runLoop.isRunning()) {
-                runLoop.requestStop();
-                runLoop.interrupt();
+            stopRunLoopAndWait();
+            serialBackend.close();
+            if (traceFileWriter != null) {
+                traceFileWriter.close();
             }
             System.exit(0);
         }
@@ -747,6 +1022,162 @@ public class Simulator {
         }
     }
 
+    class ToggleTraceCaptureAction extends AbstractAction {
+        public ToggleTraceCaptureAction() {
+            super("Capture Trace", null);
+            putValue(SHORT_DESCRIPTION, "Record each instruction executed to the trace");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            setTraceCaptureEnabled(((AbstractButton) actionEvent.getSource()).isSelected());
+        }
+    }
+
+    class ShowTraceFilterAction extends AbstractAction {
+        public ShowTraceFilterAction() {
+            super("Trace Capture Filter...", null);
+            putValue(SHORT_DESCRIPTION, "Choose which instructions are captured to the trace");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            traceFilterDialog.getDialog().setVisible(true);
+        }
+    }
+
+    class ToggleProfilerAction extends AbstractAction {
+        public ToggleProfilerAction() {
+            super("Profile Execution", null);
+            putValue(SHORT_DESCRIPTION, "Count executions and cycles for each address");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            setProfilingEnabled(((AbstractButton) actionEvent.getSource()).isSelected());
+        }
+    }
+
+    class ToggleCallStackProfilerAction extends AbstractAction {
+        public ToggleCallStackProfilerAction() {
+            super("Profile Call Stacks", null);
+            putValue(SHORT_DESCRIPTION, "Count cycles for each guest call stack");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            setCallStackProfilingEnabled(((AbstractButton) actionEvent.getSource()).isSelected());
+        }
+    }
+
+    class ToggleOpcodeCountingAction extends AbstractAction {
+        public ToggleOpcodeCountingAction() {
+            super("Count Opcodes", null);
+            putValue(SHORT_DESCRIPTION, "Count executions of each opcode");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            setOpcodeCountingEnabled(((AbstractButton) actionEvent.getSource()).isSelected());
+        }
+    }
+
+    class ToggleCoverageAction extends AbstractAction {
+        public ToggleCoverageAction() {
+            super("Record Coverage", null);
+            putValue(SHORT_DESCRIPTION, "Record which bytes of code are executed");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            setCoverageEnabled(((AbstractButton) actionEvent.getSource()).isSelected());
+        }
+    }
+
+    class SaveCoverageAction extends AbstractAction {
+        public SaveCoverageAction() {
+            super("Save Coverage Report...", null);
+            putValue(SHORT_DESCRIPTION, "Map coverage to an assembler listing and save it as LCOV");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            fileChooser.setDialogTitle("Choose an assembler listing");
+            int retVal = fileChooser.showOpenDialog(mainWindow);
+            fileChooser.setDialogTitle(null);
+            if (retVal != JFileChooser.APPROVE_OPTION) {
+                return;
+            }
+            File listingFile = fileChooser.getSelectedFile();
+
+            retVal = fileChooser.showSaveDialog(mainWindow);
+            if (retVal == JFileChooser.APPROVE_OPTION) {
+                File f = fileChooser.getSelectedFile();
+                try (Reader in = new FileReader(listingFile);
+                     Writer out = new BufferedWriter(new FileWriter(f))) {
+                    coverage.writeLcov(out, AssemblerListing.read(in), listingFile.getPath());
+                } catch (IOException ex) {
+                    logger.error("Unable to save coverage report: {}", ex.getMessage());
+                    JOptionPane.showMessageDialog(mainWindow, ex.getMessage(), "Failure", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }
+    }
+
+    class ResetProfileAction extends AbstractAction {
+        public ResetProfileAction() {
+            super("Reset Profile", null);
+            putValue(SHORT_DESCRIPTION, "Clear the execution and call stack profiles, and coverage");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            // The run thread updates the profiles without locking, so they
+            // can only be cleared while it is stopped. The menu item is
+            // disabled while running; this catches a run that is starting.
+            if (runLoop != null && runLoop.isAlive()) {
+                return;
+            }
+            profiler.reset();
+            callStackProfiler.reset();
+            coverage.reset();
+        }
+    }
+
+    class SaveCallStacksAction extends AbstractAction {
+        public SaveCallStacksAction() {
+            super("Save Flame Graph Stacks...", null);
+            putValue(SHORT_DESCRIPTION, "Save the call stack profile in collapsed stack format");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            int retVal = fileChooser.showSaveDialog(mainWindow);
+            if (retVal == JFileChooser.APPROVE_OPTION) {
+                File f = fileChooser.getSelectedFile();
+                try (Writer out = new BufferedWriter(new FileWriter(f))) {
+                    callStackProfiler.writeCollapsedStacks(out);
+                } catch (IOException ex) {
+                    logger.error("Unable to save call stack profile: {}", ex.getMessage());
+                    JOptionPane.showMessageDialog(mainWindow, ex.getMessage(), "Failure", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }
+    }
+
+    class SaveProfileAction extends AbstractAction {
+        private static final int REPORT_LIMIT = 100;
+
+        public SaveProfileAction() {
+            super("Save Profile Report...", null);
+            putValue(SHORT_DESCRIPTION, "Save a report of the hottest code");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            int retVal = fileChooser.showSaveDialog(mainWindow);
+            if (retVal == JFileChooser.APPROVE_OPTION) {
+                File f = fileChooser.getSelectedFile();
+                try (Writer out = new BufferedWriter(new FileWriter(f))) {
+                    profiler.writeReport(out, REPORT_LIMIT);
+                } catch (IOException ex) {
+                    logger.error("Unable to save profile report: {}", ex.getMessage());
+                    JOptionPane.showMessageDialog(mainWindow, ex.getMessage(), "Failure", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        }
+    }
+
     class ToggleMemoryWindowAction extends AbstractAction {
         public ToggleMemoryWindowAction() {
             super("Memory Window", null);
@@ -760,6 +1191,38 @@ public class Simulator {
         }
     }
 
+    class ToggleOpcodeStatisticsWindowAction extends AbstractAction {
+        public ToggleOpcodeStatisticsWindowAction() {
+            super("Opcode Statistics", null);
+            putValue(SHORT_DESCRIPTION, "Show or Hide the Opcode Statistics Window");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            synchronized (opcodeStatisticsWindow) {
+                if (!opcodeStatisticsWindow.isVisible()) {
+                    opcodeStatisticsWindow.refresh();
+                }
+                opcodeStatisticsWindow.setVisible(!opcodeStatisticsWindow.isVisible());
+            }
+        }
+    }
+
+    class ToggleDisassemblyWindowAction extends AbstractAction {
+        public ToggleDisassemblyWindowAction() {
+            super("Disassembly", null);
+            putValue(SHORT_DESCRIPTION, "Show or Hide the Disassembly Window");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            synchronized (disassemblyWindow) {
+                if (!disassemblyWindow.isVisible()) {
+                    disassemblyWindow.refresh(machine.getCpu().getProgramCounter());
+                }
+                disassemblyWindow.setVisible(!disassemblyWindow.isVisible());
+            }
+        }
+    }
+
     class ToggleVideoWindowAction extends AbstractAction {
         public ToggleVideoWindowAction() {
             super("Video Window", null);
@@ -786,10 +1249,24 @@ public class Simulator {
         }
     }
 
+    class ToggleWatchpointWindowAction extends AbstractAction {
+        public ToggleWatchpointWindowAction() {
+            super("Watchpoints...", null);
+            putValue(SHORT_DESCRIPTION, "Show or Hide Watchpoints");
+        }
+
+        public void actionPerformed(ActionEvent actionEvent) {
+            synchronized (watchpointsWindow) {
+                watchpointsWindow.setVisible(!watchpointsWindow.isVisible());
+            }
+        }
+    }
+
     class SimulatorMenu extends JMenuBar {
         // Menu Items
         private JMenuItem loadProgramItem;
         private JMenuItem loadRomItem;
+        private JMenuItem resetProfileItem;
 
         /**
          * Create a new SimulatorMenu instance.
@@ -806,6 +1283,7 @@ public class Simulator {
             if (loadRomItem != null) {
                 loadRomItem.setEnabled(false);
             }
+            resetProfileItem.setEnabled(false);
         }
 
         /**
@@ -816,6 +1294,7 @@ public class Simulator {
             if (loadRomItem != null) {
                 loadRomItem.setEnabled(true);
             }
+            resetProfileItem.setEnabled(true);
         }
 
         private void initMenu() {
@@ -835,6 +1314,8 @@ public class Simulator {
                 fileMenu.add(loadRomItem);
             }
 
+            fileMenu.add(new JMenuItem(new LoadSymbolsAction()));
+
             JMenuItem prefsItem = new JMenuItem(new ShowPrefsAction());
             fileMenu.add(prefsItem);
 
@@ -883,6 +1364,24 @@ public class Simulator {
             });
             viewMenu.add(showMemoryTable);
 
+            final JCheckBoxMenuItem showOpcodeStatistics = new JCheckBoxMenuItem(new ToggleOpcodeStatisticsWindowAction());
+            opcodeStatisticsWindow.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    showOpcodeStatistics.setSelected(false);
+                }
+            });
+            viewMenu.add(showOpcodeStatistics);
+
+            final JCheckBoxMenuItem showDisassembly = new JCheckBoxMenuItem(new ToggleDisassemblyWindowAction());
+            disassemblyWindow.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    showDisassembly.setSelected(false);
+                }
+            });
+            viewMenu.add(showDisassembly);
+
             if (videoWindow != null) {
                 final JCheckBoxMenuItem showVideoWindow = new JCheckBoxMenuItem(new ToggleVideoWindowAction());
                 videoWindow.addWindowListener(new WindowAdapter() {
@@ -938,6 +1437,40 @@ public class Simulator {
             });
             simulatorMenu.add(showBreakpoints);
 
+            // "Watchpoints"
+            final JCheckBoxMenuItem showWatchpoints = new JCheckBoxMenuItem(new ToggleWatchpointWindowAction());
+            watchpointsWindow.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosing(WindowEvent e) {
+                    showWatchpoints.setSelected(false);
+                }
+            });
+            simulatorMenu.add(showWatchpoints);
+
+            // Trace capture
+            simulatorMenu.addSeparator();
+            final JCheckBoxMenuItem traceCaptureItem = new JCheckBoxMenuItem(new ToggleTraceCaptureAction());
+            traceCaptureItem.setSelected(traceCaptureEnabled);
+            simulatorMenu.add(traceCaptureItem);
+            simulatorMenu.add(new JMenuItem(new ShowTraceFilterAction()));
+
+            // "Profiler" sub-menu
+            JMenu profilerMenu = new JMenu("Profiler");
+            profilerMenu.add(new JCheckBoxMenuItem(new ToggleProfilerAction()));
+            profilerMenu.add(new JMenuItem(new SaveProfileAction()));
+            profilerMenu.addSeparator();
+            profilerMenu.add(new JCheckBoxMenuItem(new ToggleCallStackProfilerAction()));
+            profilerMenu.add(new JMenuItem(new SaveCallStacksAction()));
+            profilerMenu.addSeparator();
+            profilerMenu.add(new JCheckBoxMenuItem(new ToggleOpcodeCountingAction()));
+            profilerMenu.addSeparator();
+            profilerMenu.add(new JCheckBoxMenuItem(new ToggleCoverageAction()));
+            profilerMenu.add(new JMenuItem(new SaveCoverageAction()));
+            profilerMenu.addSeparator();
+            resetProfileItem = new JMenuItem(new ResetProfileAction());
+            profilerMenu.add(resetProfileItem);
+            simulatorMenu.add(profilerMenu);
+
             add(simulatorMenu);
         }
 
@@ -983,6 +1516,13 @@ public class Simulator {
             if (traceLog.shouldUpdate()) {
                 traceLog.refresh();
             }
+            if (opcodeStatisticsWindow.isVisible()) {
+                opcodeStatisticsWindow.refresh();
+            }
+            if (disassemblyWindow.isVisible()) {
+                disassemblyWindow.refresh(machine.getCpu().getProgramCounter());
+            }
+            metrics.uiRefreshed();
         });
     }
 
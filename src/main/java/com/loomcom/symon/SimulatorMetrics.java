@@ -0,0 +1,313 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Acia;
+import com.loomcom.symon.devices.Device;
+import com.loomcom.symon.devices.SdController;
+import com.loomcom.symon.machines.Machine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+/**
+ * Throughput and health metrics for one simulated machine, published as
+ * an MBean named <code>com.loomcom.symon:type=Simulator,name=&lt;machine&gt;</code>.
+ * <p>
+ * The counters themselves are plain longs kept by the CPU and devices,
+ * and are only touched by the thread stepping the CPU. That thread calls
+ * {@link #publish(boolean)} now and then, and once per publishing interval
+ * it copies the counters into an immutable snapshot that other threads
+ * read. Nothing on the per-instruction path is shared or synchronized.
+ */
+public class SimulatorMetrics implements SimulatorMetricsMBean {
+
+    private final static Logger logger = LoggerFactory.getLogger(SimulatorMetrics.class.getName());
+
+    static final long PUBLISH_INTERVAL_NS = 1000000000L;
+
+    private final Machine machine;
+    private final TraceBuffer traceBuffer;
+    private final SdController sdController;
+    private ObjectName objectName;
+
+    // Only written by the Swing event thread.
+    private volatile long uiRefreshes = 0;
+
+    // Only touched by the thread stepping the CPU.
+    private long instructions = 0;
+    private long lastStepCounter = 0;
+
+    // What the next rates are measured from: the counters at the last
+    // publish, or at the start of the current run, whichever is later.
+    private long rateTime = System.nanoTime();
+    private long rateInstructions = 0;
+    private long rateCycles = 0;
+    private long rateThrottleNanos = 0;
+    private long rateUiRefreshes = 0;
+
+    private volatile Snapshot snapshot = new Snapshot();
+
+    public SimulatorMetrics(Machine machine, TraceBuffer traceBuffer) {
+        this.machine = machine;
+        this.traceBuffer = traceBuffer;
+
+        SdController sd = null;
+        for (Device device : machine.getBus().getDevices()) {
+            if (device instanceof SdController) {
+                sd = (SdController) device;
+            }
+        }
+        this.sdController = sd;
+    }
+
+    /**
+     * Register this as an MBean with the platform MBean server.
+     */
+    public void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            objectName = new ObjectName("com.loomcom.symon:type=Simulator,name=" +
+                                        ObjectName.quote(machine.getName()));
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(this, objectName);
+        } catch (JMException ex) {
+            logger.warn("Unable to register simulator metrics: {}", ex.getMessage());
+            objectName = null;
+        }
+    }
+
+    public void unregister() {
+        if (objectName == null) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+        } catch (JMException ex) {
+            logger.warn("Unable to unregister simulator metrics: {}", ex.getMessage());
+        }
+        objectName = null;
+    }
+
+    /**
+     * Note that the UI has been refreshed. Must be called on the Swing
+     * event thread.
+     */
+    public void uiRefreshed() {
+        uiRefreshes++;
+    }
+
+    /**
+     * Note that the CPU is about to start running after a pause, so that
+     * rates are measured from now rather than over the time it was
+     * stopped. Nothing is published. Must be called by the thread that
+     * will step the CPU.
+     */
+    public void runStarted() {
+        Cpu cpu = machine.getCpu();
+        countInstructions(cpu);
+        rateTime = System.nanoTime();
+        rateInstructions = instructions;
+        rateCycles = cpu.getCycleCount();
+        rateThrottleNanos = cpu.getThrottleNanos();
+        rateUiRefreshes = uiRefreshes;
+    }
+
+    /**
+     * Publish a new snapshot if the publishing interval has passed. Must be
+     * called by the thread stepping the CPU.
+     *
+     * @param force Publish now, even if the interval has not passed.
+     */
+    public void publish(boolean force) {
+        long now = System.nanoTime();
+        long elapsed = now - rateTime;
+        if (!force && elapsed < PUBLISH_INTERVAL_NS) {
+            return;
+        }
+
+        Cpu cpu = machine.getCpu();
+        countInstructions(cpu);
+
+        Snapshot next = new Snapshot();
+        next.time = now;
+        next.instructions = instructions;
+        next.cycles = cpu.getCycleCount();
+        next.throttleNanos = cpu.getThrottleNanos();
+        next.irqCount = cpu.getIrqCount();
+        next.nmiCount = cpu.getNmiCount();
+        next.uiRefreshes = uiRefreshes;
+
+        Acia acia = machine.getAcia();
+        if (acia != null) {
+            next.aciaBytesIn = acia.getBytesReceived();
+            next.aciaBytesOut = acia.getBytesTransmitted();
+        }
+
+        if (sdController != null) {
+            next.sdSectorsRead = sdController.getSectorsRead();
+            next.sdSectorsWritten = sdController.getSectorsWritten();
+        }
+
+        if (traceBuffer != null) {
+            next.traceBufferFill = 100.0 * traceBuffer.size() / traceBuffer.getCapacity();
+        }
+
+        if (elapsed > 0) {
+            double seconds = elapsed / 1e9;
+            next.instructionsPerSecond = (next.instructions - rateInstructions) / seconds;
+            next.effectiveMhz = (next.cycles - rateCycles) / seconds / 1e6;
+            next.throttlePercent = 100.0 * (next.throttleNanos - rateThrottleNanos) / elapsed;
+            next.uiRefreshRate = (next.uiRefreshes - rateUiRefreshes) / seconds;
+        }
+
+        rateTime = now;
+        rateInstructions = next.instructions;
+        rateCycles = next.cycles;
+        rateThrottleNanos = next.throttleNanos;
+        rateUiRefreshes = next.uiRefreshes;
+
+        snapshot = next;
+    }
+
+    private void countInstructions(Cpu cpu) {
+        // The CPU's step counter starts over when the CPU is reset.
+        long stepCounter = cpu.getCpuState().stepCounter;
+        instructions += stepCounter >= lastStepCounter ? stepCounter - lastStepCounter : stepCounter;
+        lastStepCounter = stepCounter;
+    }
+
+    /**
+     * @return The current snapshot, with its rates zeroed if nothing has
+     * been published for a while, i.e. the simulator is stopped.
+     */
+    private Snapshot current() {
+        Snapshot s = snapshot;
+        if (System.nanoTime() - s.time > 2 * PUBLISH_INTERVAL_NS) {
+            return s.stopped();
+        }
+        return s;
+    }
+
+    public long getInstructions() {
+        return current().instructions;
+    }
+
+    public long getCycles() {
+        return current().cycles;
+    }
+
+    public double getInstructionsPerSecond() {
+        return current().instructionsPerSecond;
+    }
+
+    public double getEffectiveMhz() {
+        return current().effectiveMhz;
+    }
+
+    public long getThrottleNanos() {
+        return current().throttleNanos;
+    }
+
+    public double getThrottlePercent() {
+        return current().throttlePercent;
+    }
+
+    public long getIrqCount() {
+        return current().irqCount;
+    }
+
+    public long getNmiCount() {
+        return current().nmiCount;
+    }
+
+    public long getAciaBytesIn() {
+        return current().aciaBytesIn;
+    }
+
+    public long getAciaBytesOut() {
+        return current().aciaBytesOut;
+    }
+
+    public long getSdSectorsRead() {
+        return current().sdSectorsRead;
+    }
+
+    public long getSdSectorsWritten() {
+        return current().sdSectorsWritten;
+    }
+
+    public double getTraceBufferFill() {
+        return current().traceBufferFill;
+    }
+
+    public double getUiRefreshRate() {
+        return current().uiRefreshRate;
+    }
+
+    /**
+     * The values published at one point in time.
+     */
+    private static class Snapshot {
+        long time = System.nanoTime();
+        long instructions;
+        long cycles;
+        long throttleNanos;
+        long irqCount;
+        long nmiCount;
+        long aciaBytesIn;
+        long aciaBytesOut;
+        long sdSectorsRead;
+        long sdSectorsWritten;
+        long uiRefreshes;
+        double traceBufferFill;
+        double instructionsPerSecond;
+        double effectiveMhz;
+        double throttlePercent;
+        double uiRefreshRate;
+
+        Snapshot stopped() {
+            Snapshot s = new Snapshot();
+            s.time = time;
+            s.instructions = instructions;
+            s.cycles = cycles;
+            s.throttleNanos = throttleNanos;
+            s.irqCount = irqCount;
+            s.nmiCount = nmiCount;
+            s.aciaBytesIn = aciaBytesIn;
+            s.aciaBytesOut = aciaBytesOut;
+            s.sdSectorsRead = sdSectorsRead;
+            s.sdSectorsWritten = sdSectorsWritten;
+            s.uiRefreshes = uiRefreshes;
+            s.traceBufferFill = traceBufferFill;
+            return s;
+        }
+    }
+}
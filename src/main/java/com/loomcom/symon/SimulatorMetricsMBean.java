@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+/**
+ * Management interface for watching a running simulator over JMX, e.g.
+ * with JConsole or VisualVM. Counts are totals since the simulator was
+ * started; rates are measured over the most recent publishing interval.
+ */
+public interface SimulatorMetricsMBean {
+
+    long getInstructions();
+
+    long getCycles();
+
+    double getInstructionsPerSecond();
+
+    /**
+     * @return Simulated clock cycles executed per microsecond of wall time.
+     */
+    double getEffectiveMhz();
+
+    /**
+     * @return Total time spent waiting to hold the CPU to its clock speed.
+     */
+    long getThrottleNanos();
+
+    /**
+     * @return The share of wall time spent waiting to hold the CPU to its
+     * clock speed.
+     */
+    double getThrottlePercent();
+
+    long getIrqCount();
+
+    long getNmiCount();
+
+    long getAciaBytesIn();
+
+    long getAciaBytesOut();
+
+    long getSdSectorsRead();
+
+    long getSdSectorsWritten();
+
+    /**
+     * @return How full the Trace Log's buffer is, as a percentage.
+     */
+    double getTraceBufferFill();
+
+    /**
+     * @return Status and memory window refreshes per second.
+     */
+    double getUiRefreshRate();
+}
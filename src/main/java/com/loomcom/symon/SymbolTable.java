@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Labels for addresses, loaded from a symbol file, for symbolic
+ * disassembly.
+ * <p>
+ * Three kinds of file are read:
+ * <ul>
+ *     <li>VICE label files, which are also what {@code ld65 -Ln} writes:
+ *     {@code al C:C000 .reset}</li>
+ *     <li>ld65 map files ({@code ld65 -m}), from their exports list.</li>
+ *     <li>AS65 and ca65 listings, as read by {@link AssemblerListing}.</li>
+ * </ul>
+ * The table is two parallel arrays sorted by address, so a lookup is a
+ * binary search over an int array, with no boxing or hashing, and is cheap
+ * enough to do for every instruction a trace shows. Where an address has
+ * more than one label, the first one read is kept.
+ */
+public class SymbolTable {
+
+    public static final SymbolTable EMPTY = new SymbolTable(new TreeMap<>());
+
+    // Labels this far below an address are used to describe it, as in
+    // "table+12".
+    private static final int MAX_OFFSET = 0x100;
+
+    // VICE: "al C:C000 .reset" or "al 00C000 .reset"
+    private static final Pattern VICE_LINE =
+            Pattern.compile("^al\\s+(?:[A-Za-z]:)?([0-9A-Fa-f]{1,6})\\s+\\.?(\\S+)\\s*$");
+
+    // ld65 map file exports: "reset    00C000 RLA    nmi    00FFFA RLA"
+    private static final Pattern MAP_EXPORT =
+            Pattern.compile("(\\S+)\\s+([0-9A-Fa-f]{6})\\s+[A-Z]{2,3}");
+
+    private final int[] addresses;
+    private final String[] names;
+
+    private SymbolTable(TreeMap<Integer, String> symbols) {
+        addresses = new int[symbols.size()];
+        names = new String[symbols.size()];
+        int i = 0;
+        for (Map.Entry<Integer, String> entry : symbols.entrySet()) {
+            addresses[i] = entry.getKey();
+            names[i] = entry.getValue();
+            i++;
+        }
+    }
+
+    /**
+     * Read a symbol file, working out which kind it is line by line.
+     *
+     * @param in The file to read.
+     * @return The symbols read.
+     * @throws IOException if the file can't be read.
+     */
+    public static SymbolTable read(Reader in) throws IOException {
+        TreeMap<Integer, String> symbols = new TreeMap<>();
+        BufferedReader reader = new BufferedReader(in);
+        boolean inExports = false;
+        int lineNumber = 0;
+        String line;
+
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+
+            Matcher m = VICE_LINE.matcher(line);
+            if (m.matches()) {
+                symbols.putIfAbsent(Integer.parseInt(m.group(1), 16) & 0xffff, m.group(2));
+                continue;
+            }
+
+            if (line.startsWith("Exports list")) {
+                inExports = true;
+                continue;
+            }
+            if (inExports) {
+                if (line.trim().isEmpty() || line.startsWith("Imports list")) {
+                    inExports = false;
+                } else {
+                    m = MAP_EXPORT.matcher(line);
+                    while (m.find()) {
+                        symbols.putIfAbsent(Integer.parseInt(m.group(2), 16) & 0xffff, m.group(1));
+                    }
+                }
+                continue;
+            }
+
+            AssemblerListing.Line listingLine = AssemblerListing.parseLine(lineNumber, line);
+            if (listingLine != null && listingLine.label != null) {
+                symbols.putIfAbsent(listingLine.address, listingLine.label);
+            }
+        }
+
+        return new SymbolTable(symbols);
+    }
+
+    public int size() {
+        return addresses.length;
+    }
+
+    /**
+     * @return The label at exactly this address, or null.
+     */
+    public String getLabel(int address) {
+        int i = Arrays.binarySearch(addresses, address & 0xffff);
+        return i >= 0 ? names[i] : null;
+    }
+
+    /**
+     * @return The label at this address, or the nearest label below it with
+     * an offset, such as "table+12", or null if there is none close by.
+     */
+    public String describe(int address) {
+        address &= 0xffff;
+        int i = Arrays.binarySearch(addresses, address);
+        if (i >= 0) {
+            return names[i];
+        }
+        int below = -i - 2;
+        if (below < 0 || address - addresses[below] > MAX_OFFSET) {
+            return null;
+        }
+        return names[below] + "+" + (address - addresses[below]);
+    }
+
+    /**
+     * @return The address of the label, or -1 if there is no such label.
+     */
+    public int getAddress(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return addresses[i];
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+/**
+ * A fixed-size history of executed instructions, stored as parallel
+ * primitive arrays rather than as one <code>CpuState</code> object per
+ * instruction. Recording an instruction copies a handful of values into
+ * preallocated arrays and never allocates; turning an entry back into
+ * text is left until it is displayed.
+ * <p>
+ * Entries are addressed by a sequence number that counts every
+ * instruction recorded since the last reset. Only the most recent
+ * <code>capacity</code> entries are retained.
+ * <p>
+ * There is a single writer, the thread running the CPU. Readers may run on
+ * other threads; an entry is only guaranteed to be intact if it is still
+ * within the retained window after it has been read (see
+ * {@link #isRetained(long)}).
+ */
+public class TraceBuffer implements TraceSink {
+
+    private final int capacity;
+
+    private final char[] pc;
+    private final byte[] ir;
+    private final char[] args;
+    private final byte[] a;
+    private final byte[] x;
+    private final byte[] y;
+    private final byte[] sp;
+    private final byte[] p;
+
+    // Total number of entries recorded. Written only by the CPU thread,
+    // after the entry's fields are stored.
+    private volatile long count = 0;
+
+    public TraceBuffer(int capacity) {
+        this.capacity = capacity;
+        this.pc = new char[capacity];
+        this.ir = new byte[capacity];
+        this.args = new char[capacity];
+        this.a = new byte[capacity];
+        this.x = new byte[capacity];
+        this.y = new byte[capacity];
+        this.sp = new byte[capacity];
+        this.p = new byte[capacity];
+    }
+
+    @Override
+    public void record(CpuState state) {
+        long n = count;
+        int i = (int) (n % capacity);
+        pc[i] = (char) state.lastPc;
+        ir[i] = (byte) state.ir;
+        args[i] = (char) (state.args[0] | (state.args[1] << 8));
+        a[i] = (byte) state.a;
+        x[i] = (byte) state.x;
+        y[i] = (byte) state.y;
+        sp[i] = (byte) state.sp;
+        p[i] = (byte) state.getStatusFlag();
+        count = n + 1;
+    }
+
+    /**
+     * Discard all entries. Must not be called while the CPU is running.
+     */
+    public void reset() {
+        count = 0;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return The sequence number one past the most recent entry.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return The sequence number of the oldest retained entry.
+     */
+    public long getFirst() {
+        return Math.max(0, count - capacity);
+    }
+
+    /**
+     * @return The number of entries currently retained.
+     */
+    public int size() {
+        return (int) Math.min(count, capacity);
+    }
+
+    /**
+     * @param index An entry's sequence number.
+     * @return true if the entry has not yet been overwritten.
+     */
+    public boolean isRetained(long index) {
+        long n = count;
+        return index < n && index >= n - capacity;
+    }
+
+    public int getPc(long index) {
+        return pc[slot(index)];
+    }
+
+    public int getIr(long index) {
+        return ir[slot(index)] & 0xff;
+    }
+
+    public int getArg(long index, int arg) {
+        return (args[slot(index)] >> (arg * 8)) & 0xff;
+    }
+
+    public int getA(long index) {
+        return a[slot(index)] & 0xff;
+    }
+
+    public int getX(long index) {
+        return x[slot(index)] & 0xff;
+    }
+
+    public int getY(long index) {
+        return y[slot(index)] & 0xff;
+    }
+
+    public int getSp(long index) {
+        return sp[slot(index)] & 0xff;
+    }
+
+    public int getP(long index) {
+        return p[slot(index)] & 0xff;
+    }
+
+    /**
+     * Copy an entry into a CpuState, for formatting.
+     *
+     * @param index An entry's sequence number.
+     * @param state The state to fill in.
+     */
+    public void copyTo(long index, CpuState state) {
+        int i = slot(index);
+        state.lastPc = pc[i];
+        state.ir = ir[i] & 0xff;
+        state.args[0] = args[i] & 0xff;
+        state.args[1] = args[i] >> 8;
+        state.a = a[i] & 0xff;
+        state.x = x[i] & 0xff;
+        state.y = y[i] & 0xff;
+        state.sp = sp[i] & 0xff;
+        state.setStatusFlag(p[i]);
+    }
+
+    /**
+     * @param index An entry's sequence number.
+     * @return The entry formatted for the trace log.
+     */
+    public String toTraceEvent(long index) {
+        CpuState state = new CpuState();
+        copyTo(index, state);
+        return state.toTraceEvent();
+    }
+
+    private int slot(long index) {
+        return (int) (index % capacity);
+    }
+}
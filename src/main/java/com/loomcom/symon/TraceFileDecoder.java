@@ -0,0 +1,150 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import org.apache.commons.cli.*;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Offline decoder for binary trace files. Prints each recorded
+ * instruction in the same format as the Trace Log window, optionally
+ * limited to an address range or a set of opcodes.
+ * <p>
+ * Usage:
+ * <pre>
+ *   java -cp symon.jar com.loomcom.symon.TraceFileDecoder [-from ADDR] [-to ADDR] [-opcode OPS] PREFIX|FILE...
+ * </pre>
+ * <code>OPS</code> is a comma separated list of mnemonics (e.g.
+ * <code>JSR,RTS</code>) and/or hex opcodes (e.g. <code>$20</code>).
+ */
+public class TraceFileDecoder {
+
+    private final TraceFilter filter = new TraceFilter(null);
+
+    public void setAddressRange(int fromAddress, int toAddress) {
+        filter.setAddressRange(fromAddress, toAddress);
+    }
+
+    /**
+     * Only decode instructions matching the given opcodes.
+     *
+     * @param spec A comma separated list of mnemonics and/or hex opcodes.
+     */
+    public void setOpcodes(String spec) {
+        filter.setOpcodes(spec);
+    }
+
+    /**
+     * @param state A decoded record.
+     * @return true if the record passes the filters.
+     */
+    public boolean matches(CpuState state) {
+        return filter.matches(state);
+    }
+
+    /**
+     * Decode a trace, writing every matching record.
+     *
+     * @param reader The trace to decode.
+     * @param out    Where to write the decoded records.
+     * @return The number of records written.
+     * @throws IOException if the trace can't be read or the output written.
+     */
+    public long decode(TraceFileReader reader, Writer out) throws IOException {
+        CpuState state = new CpuState();
+        long written = 0;
+        while (reader.next(state)) {
+            if (matches(state)) {
+                out.write(String.format("%12d  ", state.stepCounter));
+                out.write(state.toTraceEvent());
+                written++;
+            }
+        }
+        out.flush();
+        return written;
+    }
+
+    static int parseHex(String value) {
+        String digits = value.trim().toUpperCase(Locale.ENGLISH);
+        if (digits.startsWith("$")) {
+            digits = digits.substring(1);
+        } else if (digits.startsWith("0X")) {
+            digits = digits.substring(2);
+        }
+        return Integer.parseInt(digits, 16);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption(new Option("f", "from", true, "Lowest instruction address to show (hex)."));
+        options.addOption(new Option("t", "to", true, "Highest instruction address to show (hex)."));
+        options.addOption(new Option("o", "opcode", true, "Comma separated mnemonics or hex opcodes to show."));
+
+        CommandLine line;
+        try {
+            line = new DefaultParser().parse(options, args);
+        } catch (ParseException ex) {
+            System.err.println(ex.getMessage());
+            new HelpFormatter().printHelp("TraceFileDecoder [options] PREFIX|FILE...", options);
+            return;
+        }
+
+        if (line.getArgList().isEmpty()) {
+            new HelpFormatter().printHelp("TraceFileDecoder [options] PREFIX|FILE...", options);
+            return;
+        }
+
+        TraceFileDecoder decoder = new TraceFileDecoder();
+        decoder.setAddressRange(parseHex(line.getOptionValue("from", "0")),
+                                parseHex(line.getOptionValue("to", "FFFF")));
+        if (line.hasOption("opcode")) {
+            decoder.setOpcodes(line.getOptionValue("opcode"));
+        }
+
+        // Each argument is either a segment file, or the prefix the
+        // trace was written with.
+        List<Path> segments = new ArrayList<>();
+        for (String arg : line.getArgList()) {
+            List<Path> found = TraceFileReader.findSegments(arg);
+            if (found.isEmpty()) {
+                segments.add(Paths.get(arg));
+            } else {
+                segments.addAll(found);
+            }
+        }
+
+        try (TraceFileReader reader = new TraceFileReader(segments)) {
+            decoder.decode(reader, new BufferedWriter(new OutputStreamWriter(System.out)));
+        }
+    }
+}
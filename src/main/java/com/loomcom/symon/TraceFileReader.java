@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * Reads back the segment files written by {@link TraceFileWriter}, one
+ * record at a time. Each segment must carry on from where the one before
+ * it ended; reading stops at the first segment that doesn't, since it
+ * can't belong to the same trace.
+ */
+public class TraceFileReader implements Closeable {
+
+    private final static Logger logger = LoggerFactory.getLogger(TraceFileReader.class.getName());
+
+    private final Iterator<Path> segments;
+
+    // The sequence number the next segment must start at, or -1 before
+    // the first segment has been read.
+    private long nextSequence = -1;
+    private boolean ended = false;
+
+    private ByteBuffer segment;
+    private long segmentRecords;
+    private long segmentFirstSequence;
+    private long recordIndex;
+
+    /**
+     * @param segments The segment files to read, oldest first.
+     */
+    public TraceFileReader(List<Path> segments) {
+        this.segments = segments.iterator();
+    }
+
+    /**
+     * Find the segment files written with a given prefix.
+     *
+     * @param prefix The path prefix the trace was written with.
+     * @return The segment files, oldest first.
+     * @throws IOException if the directory can't be listed.
+     */
+    public static List<Path> findSegments(String prefix) throws IOException {
+        Path base = Paths.get(prefix).toAbsolutePath();
+        Path directory = base.getParent();
+        String pattern = base.getFileName().toString() + ".[0-9][0-9][0-9][0-9][0-9][0-9]";
+
+        List<Path> paths = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, pattern)) {
+            for (Path path : stream) {
+                paths.add(path);
+            }
+        }
+        Collections.sort(paths);
+        return paths;
+    }
+
+    /**
+     * Read the next record.
+     *
+     * @param state The CpuState to fill in with the record's contents.
+     * @return false if there are no more records.
+     * @throws IOException if a segment can't be read or is not a trace file.
+     */
+    public boolean next(CpuState state) throws IOException {
+        while (segment == null || recordIndex >= segmentRecords) {
+            if (ended || !segments.hasNext()) {
+                return false;
+            }
+            Path path = segments.next();
+            openSegment(path);
+            if (nextSequence >= 0 && segmentFirstSequence != nextSequence) {
+                logger.warn("{} starts at record {}, not {}. Ignoring it and any later segments.",
+                            path, segmentFirstSequence, nextSequence);
+                segment = null;
+                ended = true;
+                return false;
+            }
+            nextSequence = segmentFirstSequence + segmentRecords;
+        }
+
+        int offset = TraceFileWriter.HEADER_SIZE + (int) recordIndex * TraceFileWriter.RECORD_SIZE;
+        state.lastPc = segment.getShort(offset) & 0xffff;
+        state.ir = segment.get(offset + 2) & 0xff;
+        state.args[0] = segment.get(offset + 3) & 0xff;
+        state.args[1] = segment.get(offset + 4) & 0xff;
+        state.a = segment.get(offset + 5) & 0xff;
+        state.x = segment.get(offset + 6) & 0xff;
+        state.y = segment.get(offset + 7) & 0xff;
+        state.sp = segment.get(offset + 8) & 0xff;
+        state.setStatusFlag(segment.get(offset + 9));
+        state.stepCounter = segmentFirstSequence + recordIndex;
+        recordIndex++;
+        return true;
+    }
+
+    @Override
+    public void close() {
+        segment = null;
+    }
+
+    private void openSegment(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path)) {
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+
+        byte[] magic = new byte[TraceFileWriter.MAGIC.length];
+        if (segment.limit() < TraceFileWriter.HEADER_SIZE) {
+            throw new IOException(path + " is not a trace file.");
+        }
+        segment.get(magic);
+        if (!Arrays.equals(magic, TraceFileWriter.MAGIC)) {
+            throw new IOException(path + " is not a trace file.");
+        }
+        int version = segment.getShort(8);
+        int recordSize = segment.getShort(10);
+        if (version != TraceFileWriter.VERSION || recordSize != TraceFileWriter.RECORD_SIZE) {
+            throw new IOException(path + " has unsupported trace format version " + version);
+        }
+
+        segmentFirstSequence = segment.getLong(TraceFileWriter.FIRST_SEQUENCE_OFFSET);
+        segmentRecords = segment.getLong(TraceFileWriter.RECORD_COUNT_OFFSET);
+        recordIndex = 0;
+
+        if (segmentRecords == 0) {
+            // The segment was not closed, so find the end of the records
+            // by looking for the first one without bit 5 of P set.
+            long capacity = (segment.limit() - TraceFileWriter.HEADER_SIZE) / TraceFileWriter.RECORD_SIZE;
+            while (segmentRecords < capacity &&
+                   (segment.get(TraceFileWriter.HEADER_SIZE + (int) segmentRecords * TraceFileWriter.RECORD_SIZE + 9) & 0x20) != 0) {
+                segmentRecords++;
+            }
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Streams the instruction trace to disk as fixed-size binary records.
+ * <p>
+ * The trace is split into segment files named <code>PREFIX.000000</code>,
+ * <code>PREFIX.000001</code> and so on. Each segment is memory-mapped and
+ * filled front to back, so every page is written exactly once and the
+ * kernel writes it back in the background. When a segment is full, the
+ * next one is started; if a maximum number of segments is set, the oldest
+ * is deleted, so the files hold a rolling window of the most recent
+ * instructions.
+ * <p>
+ * Each segment begins with a {@value #HEADER_SIZE} byte header:
+ * <pre>
+ *   0  8 bytes  magic, "SYMTRACE"
+ *   8  2 bytes  format version
+ *  10  2 bytes  record size
+ *  12  4 bytes  reserved
+ *  16  8 bytes  sequence number of the first record
+ *  24  8 bytes  number of records, or 0 if the segment was not closed
+ * </pre>
+ * followed by {@value #RECORD_SIZE} byte records, little-endian:
+ * <pre>
+ *   0  2 bytes  PC of the instruction
+ *   2  1 byte   opcode
+ *   3  2 bytes  operands
+ *   5  1 byte   A
+ *   6  1 byte   X
+ *   7  1 byte   Y
+ *   8  1 byte   SP
+ *   9  1 byte   P
+ * </pre>
+ * Bit 5 of P is always set, so a zero P byte marks the end of the records
+ * in a segment that was not closed cleanly. Any segments already on disk
+ * with the same prefix are deleted when the writer is created.
+ */
+public class TraceFileWriter implements TraceSink, Closeable {
+
+    private final static Logger logger = LoggerFactory.getLogger(TraceFileWriter.class.getName());
+
+    static final byte[] MAGIC = {'S', 'Y', 'M', 'T', 'R', 'A', 'C', 'E'};
+    static final int VERSION = 1;
+
+    public static final int HEADER_SIZE = 32;
+    public static final int RECORD_SIZE = 10;
+
+    static final int FIRST_SEQUENCE_OFFSET = 16;
+    static final int RECORD_COUNT_OFFSET = 24;
+
+    // 40 MB per segment
+    public static final int DEFAULT_SEGMENT_RECORDS = 4 * 1024 * 1024;
+
+    private final String prefix;
+    private final int segmentRecords;
+    private final int maxSegments;
+
+    private final Deque<Path> segments = new ArrayDeque<>();
+    private int segmentNumber = 0;
+    private long sequence = 0;
+
+    private MappedByteBuffer segment;
+    private long segmentFirstSequence;
+
+    /**
+     * @param prefix         Path prefix for the segment files.
+     * @param segmentRecords The number of records in each segment.
+     * @param maxSegments    The number of segments to keep, or 0 to keep all.
+     * @throws IOException if old segments with the same prefix can't be
+     *                     deleted, or the first segment can't be created.
+     */
+    public TraceFileWriter(String prefix, int segmentRecords, int maxSegments) throws IOException {
+        if (segmentRecords <= 0 || HEADER_SIZE + (long) segmentRecords * RECORD_SIZE > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Invalid trace segment size " + segmentRecords);
+        }
+        this.prefix = prefix;
+        this.segmentRecords = segmentRecords;
+        this.maxSegments = maxSegments;
+
+        // Segments left by an earlier, longer trace would otherwise be read
+        // back as part of this one.
+        for (Path old : TraceFileReader.findSegments(prefix)) {
+            Files.delete(old);
+        }
+
+        openSegment();
+    }
+
+    public TraceFileWriter(String prefix, int maxSegments) throws IOException {
+        this(prefix, DEFAULT_SEGMENT_RECORDS, maxSegments);
+    }
+
+    /**
+     * @param prefix The path prefix.
+     * @param number The segment number.
+     * @return The path of a segment file.
+     */
+    static Path segmentPath(String prefix, int number) {
+        return Paths.get(String.format("%s.%06d", prefix, number));
+    }
+
+    @Override
+    public void record(CpuState state) {
+        if (segment == null) {
+            return;
+        }
+
+        if (!segment.hasRemaining()) {
+            try {
+                closeSegment();
+                openSegment();
+            } catch (IOException ex) {
+                logger.error("Could not start a new trace segment. Trace file recording stopped.", ex);
+                segment = null;
+                return;
+            }
+        }
+
+        segment.putShort((short) state.lastPc);
+        segment.put((byte) state.ir);
+        segment.put((byte) state.args[0]);
+        segment.put((byte) state.args[1]);
+        segment.put((byte) state.a);
+        segment.put((byte) state.x);
+        segment.put((byte) state.y);
+        segment.put((byte) state.sp);
+        segment.put((byte) state.getStatusFlag());
+        sequence++;
+    }
+
+    /**
+     * @return The number of records written since the trace was started.
+     */
+    public long getRecordCount() {
+        return sequence;
+    }
+
+    /**
+     * Finish the current segment. Nothing more will be recorded.
+     */
+    @Override
+    public void close() {
+        if (segment != null) {
+            closeSegment();
+            segment.force();
+            segment = null;
+        }
+    }
+
+    private void openSegment() throws IOException {
+        Path path = segmentPath(prefix, segmentNumber++);
+        long size = HEADER_SIZE + (long) segmentRecords * RECORD_SIZE;
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                                                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            // The mapping stays valid after the channel is closed.
+            segment = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        }
+        segment.order(ByteOrder.LITTLE_ENDIAN);
+
+        segmentFirstSequence = sequence;
+        segment.put(MAGIC);
+        segment.putShort((short) VERSION);
+        segment.putShort((short) RECORD_SIZE);
+        segment.putInt(0);
+        segment.putLong(segmentFirstSequence);
+        segment.putLong(0);
+
+        segments.addLast(path);
+        if (maxSegments > 0 && segments.size() > maxSegments) {
+            Path oldest = segments.removeFirst();
+            try {
+                Files.deleteIfExists(oldest);
+            } catch (IOException ex) {
+                logger.warn("Could not delete old trace segment {}", oldest);
+            }
+        }
+
+        logger.debug("Writing trace segment {}", path);
+    }
+
+    private void closeSegment() {
+        segment.putLong(RECORD_COUNT_OFFSET, sequence - segmentFirstSequence);
+    }
+}
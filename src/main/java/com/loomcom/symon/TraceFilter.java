@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import com.loomcom.symon.exceptions.MemoryAccessException;
+import com.loomcom.symon.util.Utils;
+
+import java.util.Locale;
+
+/**
+ * Decides which executed instructions are worth recording in a trace.
+ * An instruction is recorded only if it passes every filter that is set:
+ * its address must fall within a range, its opcode must be in a set, and,
+ * optionally, it must read or write an I/O device rather than memory.
+ * <p>
+ * A filter with nothing set accepts every instruction, and
+ * {@link #apply(TraceSink)} hands back the sink unwrapped, so it costs
+ * nothing to have one in place.
+ */
+public class TraceFilter {
+
+    private final Bus bus;
+
+    private int fromAddress = 0x0000;
+    private int toAddress = 0xffff;
+    private boolean[] opcodes = null;
+    private String opcodeSpec = "";
+    private boolean ioOnly = false;
+
+    /**
+     * @param bus The bus used to tell I/O devices from memory. May be null
+     *            if I/O filtering is not wanted, e.g. when decoding offline.
+     */
+    public TraceFilter(Bus bus) {
+        this.bus = bus;
+    }
+
+    public void setAddressRange(int fromAddress, int toAddress) {
+        this.fromAddress = fromAddress;
+        this.toAddress = toAddress;
+    }
+
+    public int getFromAddress() {
+        return fromAddress;
+    }
+
+    public int getToAddress() {
+        return toAddress;
+    }
+
+    /**
+     * Only accept instructions matching the given opcodes.
+     *
+     * @param spec A comma separated list of mnemonics and/or hex opcodes,
+     *             or null or an empty string to accept any opcode.
+     */
+    public void setOpcodes(String spec) {
+        if (spec == null || spec.trim().isEmpty()) {
+            opcodes = null;
+            opcodeSpec = "";
+            return;
+        }
+
+        boolean[] opcodes = new boolean[256];
+        for (String op : spec.split(",")) {
+            op = op.trim().toUpperCase(Locale.ENGLISH);
+            if (op.startsWith("$") || op.startsWith("0X")) {
+                opcodes[TraceFileDecoder.parseHex(op) & 0xff] = true;
+            } else {
+                boolean found = false;
+                for (int i = 0; i < 256; i++) {
+                    if (op.equals(InstructionTable.opcodeNames[i])) {
+                        opcodes[i] = true;
+                        found = true;
+                    }
+                }
+                if (!found) {
+                    throw new IllegalArgumentException("Unknown opcode " + op);
+                }
+            }
+        }
+        this.opcodes = opcodes;
+        this.opcodeSpec = spec.trim();
+    }
+
+    /**
+     * @return The opcodes accepted, as given to {@link #setOpcodes(String)}.
+     */
+    public String getOpcodes() {
+        return opcodeSpec;
+    }
+
+    /**
+     * Only accept instructions that read or write an I/O device.
+     */
+    public void setIoOnly(boolean ioOnly) {
+        if (ioOnly && bus == null) {
+            throw new IllegalStateException("I/O filtering needs a bus");
+        }
+        this.ioOnly = ioOnly;
+    }
+
+    public boolean isIoOnly() {
+        return ioOnly;
+    }
+
+    /**
+     * @return true if this filter accepts every instruction.
+     */
+    public boolean acceptsAll() {
+        return fromAddress <= 0x0000 && toAddress >= 0xffff && opcodes == null && !ioOnly;
+    }
+
+    /**
+     * @param state The state of the CPU just after executing an instruction.
+     * @return true if the instruction passes the filters.
+     */
+    public boolean matches(CpuState state) {
+        if (state.lastPc < fromAddress || state.lastPc > toAddress) {
+            return false;
+        }
+        if (opcodes != null && !opcodes[state.ir]) {
+            return false;
+        }
+        if (ioOnly) {
+            int address = operandAddress(state);
+            return address >= 0 && bus.isIoAddress(address);
+        }
+        return true;
+    }
+
+    /**
+     * Put this filter in front of a sink.
+     *
+     * @param sink The sink to record accepted instructions to.
+     * @return A sink that records only accepted instructions, or the sink
+     * itself if every instruction is accepted.
+     */
+    public TraceSink apply(TraceSink sink) {
+        if (acceptsAll()) {
+            return sink;
+        }
+        return state -> {
+            if (matches(state)) {
+                sink.record(state);
+            }
+        };
+    }
+
+    /**
+     * Work out the data address an executed instruction accessed. Indirect
+     * pointers are read back from the bus without side effects.
+     *
+     * @return The address, or -1 if the instruction does not access data
+     * in memory.
+     */
+    private int operandAddress(CpuState state) {
+        int[] args = state.args;
+        InstructionTable.Mode mode = InstructionTable.instructionModes[state.ir];
+
+        // JMP and JSR take an address operand, but only jump to it.
+        if (state.ir == 0x4c || state.ir == InstructionTable.JSR) {
+            return -1;
+        }
+
+        try {
+            switch (mode) {
+                case ZPG:
+                case ZPR:
+                    return args[0];
+                case ZPX:
+                    return (args[0] + state.x) & 0xff;
+                case ZPY:
+                    return (args[0] + state.y) & 0xff;
+                case ABS:
+                    return Utils.address(args[0], args[1]);
+                case ABX:
+                    return (Utils.address(args[0], args[1]) + state.x) & 0xffff;
+                case ABY:
+                    return (Utils.address(args[0], args[1]) + state.y) & 0xffff;
+                case ZPI:
+                    return readPointer(args[0]);
+                case XIN:
+                    return readPointer((args[0] + state.x) & 0xff);
+                case INY:
+                    return (readPointer(args[0]) + state.y) & 0xffff;
+                default:
+                    return -1;
+            }
+        } catch (MemoryAccessException ex) {
+            return -1;
+        }
+    }
+
+    private int readPointer(int zeroPageAddress) throws MemoryAccessException {
+        return Utils.address(bus.read(zeroPageAddress, false), bus.read((zeroPageAddress + 1) & 0xff, false));
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+/**
+ * Something that records each instruction as the CPU executes it.
+ */
+public interface TraceSink {
+
+    /**
+     * Record the instruction that was just executed. This is called from
+     * the simulator run loop once per instruction, so implementations must
+     * be cheap and must not keep a reference to the state.
+     *
+     * @param state The CPU state after executing the instruction.
+     */
+    void record(CpuState state);
+
+    /**
+     * Combine two sinks into one that records to both, in order.
+     *
+     * @param first  The first sink, or null.
+     * @param second The second sink, or null.
+     * @return A sink recording to both, or whichever one is not null.
+     */
+    static TraceSink chain(TraceSink first, TraceSink second) {
+        if (first == null) {
+            return second;
+        }
+        if (second == null) {
+            return first;
+        }
+        return state -> {
+            first.record(state);
+            second.record(state);
+        };
+    }
+}
@@ -0,0 +1,287 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon;
+
+import com.loomcom.symon.util.Utils;
+
+import javax.swing.table.AbstractTableModel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data watchpoints, which halt the simulator when the CPU reads or writes
+ * a range of addresses, or changes the value stored there. Also the table
+ * model the Watchpoints Window shows them with.
+ * <p>
+ * The bus checks every access against a 256 entry table of flags, one
+ * per page, so an access to a page with no watchpoints costs a single
+ * array lookup. Only accesses to watched pages look at the per-address
+ * flags. A watched access counts its hits against an array of the
+ * watchpoints that is copied when they change, so the bus neither locks
+ * nor allocates.
+ */
+public class Watchpoints extends AbstractTableModel {
+
+    public static final int READ = 0x01;
+    public static final int WRITE = 0x02;
+    public static final int CHANGE = 0x04;
+
+    /**
+     * A watchpoint on a range of addresses.
+     */
+    public static class Watchpoint {
+        private final int startAddress;
+        private final int endAddress;
+        private final int kinds;
+        private volatile long hits;
+
+        /**
+         * @param startAddress First address watched.
+         * @param endAddress   Last address watched.
+         * @param kinds        What to watch for: any of {@link #READ},
+         *                     {@link #WRITE} and {@link #CHANGE}.
+         */
+        public Watchpoint(int startAddress, int endAddress, int kinds) {
+            this.startAddress = Math.min(startAddress, endAddress) & 0xffff;
+            this.endAddress = Math.max(startAddress, endAddress) & 0xffff;
+            this.kinds = kinds & (READ | WRITE | CHANGE);
+        }
+
+        public int getStartAddress() {
+            return startAddress;
+        }
+
+        public int getEndAddress() {
+            return endAddress;
+        }
+
+        public int getKinds() {
+            return kinds;
+        }
+
+        public long getHits() {
+            return hits;
+        }
+
+        boolean contains(int address) {
+            return address >= startAddress && address <= endAddress;
+        }
+    }
+
+    /**
+     * A watched access that has happened.
+     */
+    public static class Hit {
+        public final int kind;
+        public final int address;
+        public final int oldValue;
+        public final int value;
+        public final int pc;
+
+        Hit(int kind, int address, int oldValue, int value, int pc) {
+            this.kind = kind;
+            this.address = address;
+            this.oldValue = oldValue;
+            this.value = value;
+            this.pc = pc;
+        }
+
+        @Override
+        public String toString() {
+            String where = " $" + Utils.wordToHex(address) + " at PC $" + Utils.wordToHex(pc);
+            switch (kind) {
+                case READ:
+                    return "Read $" + Utils.byteToHex(value) + " from" + where;
+                case WRITE:
+                    return "Wrote $" + Utils.byteToHex(value) + " to" + where;
+                default:
+                    return "Changed $" + Utils.byteToHex(oldValue) + " to $" + Utils.byteToHex(value) +
+                           " in" + where;
+            }
+        }
+    }
+
+    private static final String[] COLUMN_NAMES = {"Range", "Watch", "Hits"};
+
+    private final List<Watchpoint> watchpoints = new ArrayList<>();
+
+    // Rebuilt whenever the watchpoints change, and read by the bus.
+    private volatile Watchpoint[] watchpointArray = new Watchpoint[0];
+    private volatile byte[] pageFlags = new byte[256];
+    private volatile byte[] addressFlags = new byte[0x10000];
+
+    private Cpu cpu;
+
+    // Only touched by the thread running the CPU.
+    private Hit hit;
+
+    /**
+     * @param cpu The CPU, used to find the PC of the instruction that made
+     *            a watched access. May be null.
+     */
+    public void setCpu(Cpu cpu) {
+        this.cpu = cpu;
+    }
+
+    /**
+     * @return The flags of all watchpoints on the page.
+     */
+    public int getPageFlags(int page) {
+        return pageFlags[page & 0xff];
+    }
+
+    /**
+     * Called by the bus after the CPU reads from an address on a page with
+     * a read watchpoint.
+     */
+    void checkRead(int address, int value) {
+        if ((addressFlags[address] & READ) != 0) {
+            trigger(READ, address, value, value);
+        }
+    }
+
+    /**
+     * Called by the bus when writing to an address on a page with a write
+     * or change watchpoint.
+     *
+     * @param oldValue The value before the write, or -1 if not known.
+     */
+    void checkWrite(int address, int oldValue, int value) {
+        int flags = addressFlags[address];
+        if ((flags & WRITE) != 0) {
+            trigger(WRITE, address, oldValue, value);
+        } else if ((flags & CHANGE) != 0 && oldValue != value) {
+            trigger(CHANGE, address, oldValue, value);
+        }
+    }
+
+    /**
+     * @return True if a change watchpoint covers the address, so the bus
+     * must read the old value before writing.
+     */
+    boolean needsOldValue(int address) {
+        return (addressFlags[address] & CHANGE) != 0;
+    }
+
+    private void trigger(int kind, int address, int oldValue, int value) {
+        int pc = cpu == null ? 0 : cpu.getCpuState().lastPc;
+        for (Watchpoint watchpoint : watchpointArray) {
+            if ((watchpoint.kinds & kind) != 0 && watchpoint.contains(address)) {
+                watchpoint.hits++;
+            }
+        }
+        if (hit == null) {
+            hit = new Hit(kind, address, oldValue, value, pc);
+        }
+    }
+
+    /**
+     * @return True if a watched access has happened since the last call
+     * to {@link #takeHit()}.
+     */
+    public boolean hasHit() {
+        return hit != null;
+    }
+
+    /**
+     * @return The first watched access since the last call, or null.
+     */
+    public Hit takeHit() {
+        Hit h = hit;
+        hit = null;
+        return h;
+    }
+
+    public synchronized void addWatchpoint(Watchpoint watchpoint) {
+        watchpoints.add(watchpoint);
+        rebuildFlags();
+        fireTableDataChanged();
+    }
+
+    public synchronized void removeWatchpointAtIndex(int index) {
+        if (index < 0 || index >= watchpoints.size()) {
+            return;
+        }
+        watchpoints.remove(index);
+        rebuildFlags();
+        fireTableDataChanged();
+    }
+
+    private void rebuildFlags() {
+        byte[] pages = new byte[256];
+        byte[] addresses = new byte[0x10000];
+        for (Watchpoint watchpoint : watchpoints) {
+            for (int address = watchpoint.startAddress; address <= watchpoint.endAddress; address++) {
+                addresses[address] |= watchpoint.kinds;
+                pages[address >>> 8] |= watchpoint.kinds;
+            }
+        }
+        // Publish the watchpoints and address flags first, so a page is
+        // never flagged without them.
+        watchpointArray = watchpoints.toArray(new Watchpoint[0]);
+        addressFlags = addresses;
+        pageFlags = pages;
+    }
+
+    public void refresh() {
+        fireTableDataChanged();
+    }
+
+    @Override
+    public String getColumnName(int index) {
+        return COLUMN_NAMES[index];
+    }
+
+    @Override
+    public synchronized int getRowCount() {
+        return watchpoints.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public synchronized Object getValueAt(int rowIndex, int columnIndex) {
+        Watchpoint watchpoint = watchpoints.get(rowIndex);
+        switch (columnIndex) {
+            case 0:
+                if (watchpoint.startAddress == watchpoint.endAddress) {
+                    return "$" + Utils.wordToHex(watchpoint.startAddress);
+                }
+                return "$" + Utils.wordToHex(watchpoint.startAddress) + "-$" + Utils.wordToHex(watchpoint.endAddress);
+            case 1:
+                StringBuilder sb = new StringBuilder();
+                sb.append((watchpoint.kinds & READ) != 0 ? 'R' : '-');
+                sb.append((watchpoint.kinds & WRITE) != 0 ? 'W' : '-');
+                sb.append((watchpoint.kinds & CHANGE) != 0 ? 'C' : '-');
+                return sb.toString();
+            case 2:
+                return Long.toString(watchpoint.hits);
+            default:
+                return null;
+        }
+    }
+}
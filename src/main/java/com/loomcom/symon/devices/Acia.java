@@ -58,6 +58,12 @@ public abstract class Acia extends Device {
     boolean rxFull  = false;
     boolean txEmpty = true;
 
+    /**
+     * Running totals for metrics
+     */
+    private long bytesReceived    = 0;
+    private long bytesTransmitted = 0;
+
 
     public Acia(int address, int size, String name) throws MemoryRangeException {
         super(address, address + size - 1, name);
@@ -123,6 +129,7 @@ public abstract class Acia extends Device {
         }
 
         rxFull = true;
+        bytesReceived++;
 
         if (receiveIrqEnabled) {
             interrupt = true;
@@ -148,6 +155,21 @@ public abstract class Acia extends Device {
         lastTxWrite = System.nanoTime();
         txChar = data;
         txEmpty = false;
+        bytesTransmitted++;
+    }
+
+    /**
+     * @return The number of bytes received from the serial line.
+     */
+    public synchronized long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /**
+     * @return The number of bytes written by the CPU for transmission.
+     */
+    public synchronized long getBytesTransmitted() {
+        return bytesTransmitted;
     }
 
     /**
@@ -160,7 +182,6 @@ public abstract class Acia extends Device {
     /**
      * @return true if there is character data in the RX register.
      */
-    @SuppressWarnings("unused")
     public boolean hasRxChar() {
         return rxFull;
     }
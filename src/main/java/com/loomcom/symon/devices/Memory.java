@@ -26,6 +26,7 @@ package com.loomcom.symon.devices;
 import java.io.*;
 import java.util.*;
 
+import com.loomcom.symon.Bus;
 import com.loomcom.symon.exceptions.*;
 
 public class Memory extends Device {
@@ -87,6 +88,7 @@ public class Memory extends Device {
                 while (dis.available() != 0) {
                     mem[i++] = dis.readUnsignedByte();
                 }
+                invalidateBusPages();
             }
         } else {
             throw new IOException("Cannot open file " + file);
@@ -100,6 +102,18 @@ public class Memory extends Device {
 
     public void fill(int val) {
         Arrays.fill(this.mem, val);
+        invalidateBusPages();
+    }
+
+    /**
+     * Memory changed here doesn't go through the bus, so tell the bus,
+     * if there is one, that its pages may have changed.
+     */
+    private void invalidateBusPages() {
+        Bus bus = getBus();
+        if (bus != null) {
+            bus.invalidatePageVersions();
+        }
     }
 
     public String toString() {
@@ -61,6 +61,9 @@ public class SdController extends Device {
     private int readPosition = 0;
     private int writePosition = 0;
 
+    private long sectorsRead = 0;
+    private long sectorsWritten = 0;
+
 
     public SdController(int address) throws MemoryRangeException {
         super(address, address + CONTROLLER_SIZE - 1, "SDCONTROLLER");
@@ -114,6 +117,7 @@ public class SdController extends Device {
     private void prepareRead() {
         this.status = Status.READ;
         this.readPosition = 0;
+        this.sectorsRead++;
         computePosition();
 
         if (sdImageFile != null) {
@@ -174,11 +178,26 @@ public class SdController extends Device {
                 }
             }
 
+            this.sectorsWritten++;
             this.status = Status.IDLE;
         }
 
     }
 
+    /**
+     * @return The number of sectors the CPU has asked to read.
+     */
+    public long getSectorsRead() {
+        return sectorsRead;
+    }
+
+    /**
+     * @return The number of sectors the CPU has written.
+     */
+    public long getSectorsWritten() {
+        return sectorsWritten;
+    }
+
     private int readStatus() {
         switch (this.status) {
             case IDLE:
@@ -27,6 +27,10 @@ package com.loomcom.symon.jterminal;
 import com.loomcom.symon.jterminal.vt100.Vt100TerminalModel;
 
 import java.awt.*;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.HashMap;
+import java.util.Map;
 import javax.swing.JComponent;
 import javax.swing.JScrollBar;
 
@@ -68,6 +72,34 @@ public class JTerminal extends JComponent {
 	 */
 	private int maxDescender;
 
+	/**
+	 * Pre-rendered glyphs, one strip per foreground and background color
+	 * pair. Emptied when the font or the display scale changes.
+	 */
+	private final Map<Long, GlyphStrip> glyphStrips = new HashMap<>();
+
+	/**
+	 * The most recently used glyph strip. Neighbouring cells are nearly
+	 * always the same colors, so this saves most map lookups.
+	 */
+	private GlyphStrip lastGlyphStrip;
+
+	/**
+	 * The display scale the glyph strips were rendered at.
+	 */
+	private double glyphScale = 1.0;
+
+	/**
+	 * Used to draw characters which have no pre-rendered glyph.
+	 */
+	private final char[] charBuffer = new char[1];
+
+	/**
+	 * Where the cursor was drawn, so that it can be erased when it moves.
+	 */
+	private int paintedCursorRow = -1;
+	private int paintedCursorColumn = -1;
+
 	public JTerminal(Font font) {
 		this(new Vt100TerminalModel(), font);
 	}
@@ -86,7 +118,10 @@ public class JTerminal extends JComponent {
 	public void setFont(Font font) {
 		this.font = font;
 		setCellWidthAndHeight(font);
+		glyphStrips.clear();
+		lastGlyphStrip = null;
 		revalidate();
+		repaint();
 	}
 
 	public Font getFont() {
@@ -108,6 +143,10 @@ public class JTerminal extends JComponent {
 		model.print(str);
 	}
 
+	public void print(char[] chars, int offset, int length) {
+		model.print(chars, offset, length);
+	}
+
 	public Dimension getMinimumSize() {
 		return new Dimension(model.getColumns() * cellWidth + borderWidth * 2,
 				model.getRows() * cellHeight + borderWidth * 2);
@@ -121,36 +160,187 @@ public class JTerminal extends JComponent {
 		return getMinimumSize();
 	}
 
-	public void paint(Graphics g) {
-		g.setFont(font);
+	/**
+	 * Repaints only the rows which have changed since the last call, along
+	 * with the rows the cursor has moved from and to. Call this after
+	 * printing, instead of {@link #repaint()}.
+	 */
+	public void repaintDirtyRows() {
+		int start = scrollBar == null ? 0 : scrollBar.getValue();
+		int visibleRows = Math.min(model.getRows(), model.getBufferSize() - start);
+
+		int first = Integer.MAX_VALUE;
+		int last = -1;
+		for (int row = 0; row < visibleRows; row++) {
+			if (model.isRowDirty(start + row)) {
+				first = Math.min(first, row);
+				last = row;
+			}
+		}
+		model.clearDirtyRows();
+
+		int cursorRow = model.getCursorRow();
+		int cursorColumn = model.getCursorColumn();
+		if (cursorRow != paintedCursorRow || cursorColumn != paintedCursorColumn) {
+			int oldRow = paintedCursorRow - start;
+			if (oldRow >= 0 && oldRow < visibleRows) {
+				first = Math.min(first, oldRow);
+				last = Math.max(last, oldRow);
+			}
+			int newRow = cursorRow - start;
+			if (newRow >= 0 && newRow < visibleRows) {
+				first = Math.min(first, newRow);
+				last = Math.max(last, newRow);
+			}
+		}
 
-		int width = model.getColumns();
-		int height = model.getBufferSize();
+		if (last >= 0) {
+			repaint(0, borderWidth + first * cellHeight, getWidth(), (last - first + 1) * cellHeight);
+		}
+	}
 
-		g.setColor(model.getDefaultBackgroundColor());
-		g.fillRect(0, 0, width * cellWidth + borderWidth * 2, height * cellHeight + borderWidth * 2);
+	public void paint(Graphics g) {
+		Graphics2D g2 = (Graphics2D) g;
+		setGlyphScale(g2.getTransform());
 
+		int columns = model.getColumns();
 		int start = scrollBar == null ? 0 : scrollBar.getValue();
-		for (int y = start; y < height; y++) {
-			for (int x = 0; x < width; x++) {
-				TerminalCell cell = model.getCell(x, y);
-				boolean cursorHere = (model.getCursorRow() == y) && (model.getCursorColumn() == x);
+		int visibleRows = Math.min(model.getRows(), model.getBufferSize() - start);
 
-				if ((cursorHere) && (cell == null)) {
-					cell = new TerminalCell(' ', model.getDefaultBackgroundColor(), model.getDefaultForegroundColor());
+		Rectangle clip = g.getClipBounds();
+		if (clip == null) {
+			clip = new Rectangle(0, 0, getWidth(), getHeight());
+		}
+
+		g.setColor(model.getDefaultBackgroundColor());
+		g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+		// Only draw the rows and columns inside the clip.
+		int firstRow = Math.max(0, (clip.y - borderWidth) / cellHeight);
+		int lastRow = Math.min(visibleRows - 1, (clip.y + clip.height - 1 - borderWidth) / cellHeight);
+		int firstColumn = Math.max(0, (clip.x - borderWidth) / cellWidth);
+		int lastColumn = Math.min(columns - 1, (clip.x + clip.width - 1 - borderWidth) / cellWidth);
+
+		int cursorRow = model.getCursorRow();
+		int cursorColumn = model.getCursorColumn();
+
+		for (int row = firstRow; row <= lastRow; row++) {
+			int y = start + row;
+			int py = row * cellHeight + borderWidth;
+			for (int x = firstColumn; x <= lastColumn; x++) {
+				boolean empty = model.isCellEmpty(x, y);
+				boolean cursorHere = (cursorRow == y) && (cursorColumn == x);
+				int px = x * cellWidth + borderWidth;
+
+				if (cursorHere) {
+					if (empty) {
+						drawGlyph(g, ' ', model.getDefaultBackgroundColor(), model.getDefaultForegroundColor(), px, py);
+					} else {
+						drawGlyph(g, model.getCharacter(x, y), model.getBackgroundColor(x, y),
+								model.getForegroundColor(x, y), px, py);
+					}
+				} else if (!empty) {
+					drawGlyph(g, model.getCharacter(x, y), model.getForegroundColor(x, y),
+							model.getBackgroundColor(x, y), px, py);
 				}
+			}
+		}
 
-				if (cell != null) {
-					int px = x * cellWidth + borderWidth;
-					int py = (y - start) * cellHeight + borderWidth;
+		paintedCursorRow = cursorRow;
+		paintedCursorColumn = cursorColumn;
+	}
 
-					g.setColor(cursorHere ? cell.getForegroundColor() : cell.getBackgroundColor());
-					g.fillRect(px, py, cellWidth, cellHeight);
+	/**
+	 * Draws one cell, from the glyph cache if the character is in it.
+	 */
+	private void drawGlyph(Graphics g, char ch, Color foreground, Color background, int px, int py) {
+		if (ch >= GlyphStrip.GLYPHS) {
+			g.setColor(background);
+			g.fillRect(px, py, cellWidth, cellHeight);
+			g.setColor(foreground);
+			charBuffer[0] = ch;
+			g.drawChars(charBuffer, 0, 1, px, py + cellHeight - maxDescender);
+			return;
+		}
+
+		GlyphStrip strip = lastGlyphStrip;
+		if (strip == null || !strip.foreground.equals(foreground) || !strip.background.equals(background)) {
+			long key = ((long) foreground.getRGB() << 32) | (background.getRGB() & 0xffffffffL);
+			strip = glyphStrips.get(key);
+			if (strip == null) {
+				strip = new GlyphStrip(foreground, background);
+				glyphStrips.put(key, strip);
+			}
+			lastGlyphStrip = strip;
+		}
+
+		int sx = strip.getGlyph(ch);
+		g.drawImage(strip.image, px, py, px + cellWidth, py + cellHeight,
+				sx, 0, sx + strip.glyphWidth, strip.glyphHeight, null);
+	}
+
+	/**
+	 * Glyphs are rendered at the display's scale, so that they stay sharp
+	 * on high-DPI screens.
+	 */
+	private void setGlyphScale(AffineTransform transform) {
+		double scale = transform.getScaleX();
+		if (scale <= 0) {
+			scale = 1.0;
+		}
+		if (scale != glyphScale) {
+			glyphScale = scale;
+			glyphStrips.clear();
+			lastGlyphStrip = null;
+		}
+	}
+
+	/**
+	 * A row of glyphs for the first 256 characters, in one foreground and
+	 * background color. Each glyph is rendered the first time it is drawn.
+	 */
+	private class GlyphStrip {
+
+		static final int GLYPHS = 256;
+
+		final Color foreground;
+		final Color background;
+		final BufferedImage image;
+		final int glyphWidth;
+		final int glyphHeight;
+		private final boolean[] rendered = new boolean[GLYPHS];
+
+		GlyphStrip(Color foreground, Color background) {
+			this.foreground = foreground;
+			this.background = background;
+			this.glyphWidth = (int) Math.ceil(cellWidth * glyphScale);
+			this.glyphHeight = (int) Math.ceil(cellHeight * glyphScale);
+			this.image = new BufferedImage(glyphWidth * GLYPHS, glyphHeight, BufferedImage.TYPE_INT_RGB);
+		}
 
-					g.setColor(cursorHere ? cell.getBackgroundColor() : cell.getForegroundColor());
-					g.drawChars(new char[] { cell.getCharacter() }, 0, 1, px, py + cellHeight - maxDescender);
+		/**
+		 * @return The x position of the character's glyph in the image.
+		 */
+		int getGlyph(char ch) {
+			int sx = ch * glyphWidth;
+			if (!rendered[ch]) {
+				Graphics2D g = image.createGraphics();
+				Object hints = Toolkit.getDefaultToolkit().getDesktopProperty("awt.font.desktophints");
+				if (hints instanceof Map) {
+					g.addRenderingHints((Map<?, ?>) hints);
 				}
+				g.translate(sx, 0);
+				g.scale(glyphScale, glyphScale);
+				g.setColor(background);
+				g.fillRect(0, 0, cellWidth, cellHeight);
+				g.setColor(foreground);
+				g.setFont(font);
+				charBuffer[0] = ch;
+				g.drawChars(charBuffer, 0, 1, 0, cellHeight - maxDescender);
+				g.dispose();
+				rendered[ch] = true;
 			}
+			return sx;
 		}
 	}
 
@@ -92,6 +92,59 @@ public interface TerminalModel {
 	 */
     TerminalCell getCell(int column, int row);
 
+	/**
+	 * Checks if a cell is empty, without creating a {@link TerminalCell}.
+	 * @param column The column.
+	 * @param row The row.
+	 * @return {@code true} if nothing has been printed in the cell.
+	 * @throws IndexOutOfBoundsException if the column and/or row number(s) are
+	 * out of bounds.
+	 */
+	default boolean isCellEmpty(int column, int row) {
+		return getCell(column, row) == null;
+	}
+
+	/**
+	 * Gets the character in a cell, without creating a {@link TerminalCell}.
+	 * @param column The column.
+	 * @param row The row.
+	 * @return The character, which is undefined if the cell is empty.
+	 * @throws IndexOutOfBoundsException if the column and/or row number(s) are
+	 * out of bounds.
+	 */
+	default char getCharacter(int column, int row) {
+		TerminalCell cell = getCell(column, row);
+		return cell == null ? ' ' : cell.getCharacter();
+	}
+
+	/**
+	 * Gets the foreground color of a cell, without creating a
+	 * {@link TerminalCell}.
+	 * @param column The column.
+	 * @param row The row.
+	 * @return The foreground color, or {@code null} if the cell is empty.
+	 * @throws IndexOutOfBoundsException if the column and/or row number(s) are
+	 * out of bounds.
+	 */
+	default Color getForegroundColor(int column, int row) {
+		TerminalCell cell = getCell(column, row);
+		return cell == null ? null : cell.getForegroundColor();
+	}
+
+	/**
+	 * Gets the background color of a cell, without creating a
+	 * {@link TerminalCell}.
+	 * @param column The column.
+	 * @param row The row.
+	 * @return The background color, or {@code null} if the cell is empty.
+	 * @throws IndexOutOfBoundsException if the column and/or row number(s) are
+	 * out of bounds.
+	 */
+	default Color getBackgroundColor(int column, int row) {
+		TerminalCell cell = getCell(column, row);
+		return cell == null ? null : cell.getBackgroundColor();
+	}
+
 	/**
 	 * Prints the specified string to the terminal at the cursor position,
 	 * interpreting any escape sequences/special ASCII codes the model may
@@ -101,6 +154,17 @@ public interface TerminalModel {
 	 */
     void print(String str);
 
+	/**
+	 * Prints characters from an array, in the same way as
+	 * {@link #print(String)}.
+	 * @param chars The characters.
+	 * @param offset The index of the first character to print.
+	 * @param length The number of characters to print.
+	 */
+	default void print(char[] chars, int offset, int length) {
+		print(new String(chars, offset, length));
+	}
+
 	/**
 	 * Gets the number of columns.
 	 * @return The number of columns.
@@ -157,5 +221,21 @@ public interface TerminalModel {
 	 */
 	Color getDefaultForegroundColor();
 
+	/**
+	 * Checks if a row has changed since the dirty rows were last cleared.
+	 * Models which don't keep track of this report every row as dirty.
+	 * @param row The row.
+	 * @return {@code true} if the row needs repainting.
+	 */
+	default boolean isRowDirty(int row) {
+		return true;
+	}
+
+	/**
+	 * Marks every row as clean.
+	 */
+	default void clearDirtyRows() {
+	}
+
 }
 
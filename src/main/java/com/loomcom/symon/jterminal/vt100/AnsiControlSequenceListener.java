@@ -40,5 +40,39 @@ public interface AnsiControlSequenceListener {
 	 */
 	void parsedString(String str);
 
+	/**
+	 * Called when a control sequence has been parsed, without creating an
+	 * {@link AnsiControlSequence}. The parameters array is reused, so it
+	 * is only valid during the call. By default this calls
+	 * {@link #parsedControlSequence(AnsiControlSequence)}.
+	 * @param command The command character.
+	 * @param parameters The numeric parameters, where an empty parameter
+	 * is -1.
+	 * @param count The number of parameters.
+	 */
+	default void parsedControlSequence(char command, int[] parameters, int count) {
+		// Like String.split(), leave out trailing empty parameters.
+		while (count > 0 && parameters[count - 1] < 0) {
+			count--;
+		}
+		String[] strings = new String[count];
+		for (int i = 0; i < count; i++) {
+			strings[i] = parameters[i] < 0 ? "" : Integer.toString(parameters[i]);
+		}
+		parsedControlSequence(new AnsiControlSequence(command, strings));
+	}
+
+	/**
+	 * Called when a run of text has been parsed, without creating a
+	 * {@link String}. The characters are only valid during the call. By
+	 * default this calls {@link #parsedString(String)}.
+	 * @param text The characters.
+	 * @param offset The index of the first character of the run.
+	 * @param length The number of characters in the run.
+	 */
+	default void parsedText(char[] text, int offset, int length) {
+		parsedString(new String(text, offset, length));
+	}
+
 }
 
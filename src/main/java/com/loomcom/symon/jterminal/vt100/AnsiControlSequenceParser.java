@@ -22,20 +22,29 @@
 
 package com.loomcom.symon.jterminal.vt100;
 
-import java.io.IOException;
-import java.io.Reader;
-import java.io.StringReader;
-
 /**
- * A class which parses {@link AnsiControlSequence}s from {@link String}(s).
+ * A class which parses {@link AnsiControlSequence}s from {@link String}(s)
+ * or arrays of characters.
+ * <p>
+ * The parser is a state machine which keeps its state between calls, so a
+ * control sequence may be split across any number of them. Runs of text
+ * are passed to the listener as ranges of the input, and numeric
+ * parameters are parsed into a reused array, so parsing does not
+ * allocate.
  * @author Graham Edgecombe
  */
 public class AnsiControlSequenceParser {
 
 	/**
-	 * The multibyte control sequence introducer.
+	 * The escape character, which starts the multibyte control sequence
+	 * introducer.
+	 */
+	private static final char ESCAPE = 27;
+
+	/**
+	 * The second character of the multibyte control sequence introducer.
 	 */
-	private static final char[] MULTI_CSI = new char[] { 27, '[' };
+	private static final char MULTI_CSI_SECOND = '[';
 
 	/**
 	 * The single-byte control sequence introducer.
@@ -43,16 +52,74 @@ public class AnsiControlSequenceParser {
 	private static final char SINGLE_CSI = 155;
 
 	/**
-	 * The buffer of data from the last call to "parse()". This is
-	 * populated with data if an escape sequence is not complete.
+	 * The most parameters a control sequence may have. Any more are
+	 * ignored.
+	 */
+	private static final int MAX_PARAMETERS = 16;
+
+	/**
+	 * The largest value a parameter may have. Larger values are clamped.
+	 */
+	private static final int MAX_PARAMETER_VALUE = 9999;
+
+	/**
+	 * A lone escape character, passed as text when it turns out not to
+	 * start a control sequence.
+	 */
+	private static final char[] ESCAPE_TEXT = { ESCAPE };
+
+	/**
+	 * Parsing plain text.
+	 */
+	private static final int STATE_TEXT = 0;
+
+	/**
+	 * The last call ended with an escape character.
 	 */
-	private StringBuilder buffer = new StringBuilder();
+	private static final int STATE_ESCAPE = 1;
+
+	/**
+	 * Parsing the parameters of a control sequence.
+	 */
+	private static final int STATE_PARAMETERS = 2;
 
 	/**
 	 * The ANSI control sequence listener.
 	 */
 	private final AnsiControlSequenceListener listener;
 
+	/**
+	 * The current state.
+	 */
+	private int state = STATE_TEXT;
+
+	/**
+	 * The parameters of the control sequence being parsed. An empty
+	 * parameter is -1.
+	 */
+	private final int[] parameters = new int[MAX_PARAMETERS];
+
+	/**
+	 * The number of parameters parsed so far.
+	 */
+	private int parameterCount;
+
+	/**
+	 * The value of the parameter being parsed, or -1 if it has no digits
+	 * yet.
+	 */
+	private int parameterValue;
+
+	/**
+	 * Set once the control sequence has any parameter characters.
+	 */
+	private boolean hasParameters;
+
+	/**
+	 * Holds the characters of strings passed to {@link #parse(String)}.
+	 */
+	private char[] chars = new char[256];
+
 	/**
 	 * Creates the ANSI control sequence parser.
 	 * @param listener The listener.
@@ -66,88 +133,111 @@ public class AnsiControlSequenceParser {
 	 * @param str The string to parse.
 	 */
 	public void parse(String str) {
-		if (buffer.length() > 0) {
-			str = buffer.toString().concat(str);
-			buffer = new StringBuilder();
-		}
-        try {
-            try (Reader reader = new StringReader(str)) {
-                parse(reader);
-            }
-		} catch (IOException ex) {
-			/* ignore */
+		int length = str.length();
+		if (chars.length < length) {
+			chars = new char[Math.max(length, chars.length * 2)];
 		}
+		str.getChars(0, length, chars, 0);
+		parse(chars, 0, length);
 	}
 
 	/**
-	 * Parses characters from the specified character reader.
-	 * @param reader The character reader.
-	 * @throws IOException if an I/O error occurs.
-	 */
-	private void parse(Reader reader) throws IOException {
-		StringBuilder text = new StringBuilder();
-		int character;
-		while ((character = reader.read()) != -1) {
-			boolean introducedControlSequence = false;
-			if (character == SINGLE_CSI) {
-				introducedControlSequence = true;
-			} else if (character == MULTI_CSI[0]) {
-				int nextCharacter = reader.read();
-				if (nextCharacter == -1) {
-					buffer.append((char) character);
-					break;
-				} else if (nextCharacter == MULTI_CSI[1]) {
-					introducedControlSequence = true;
-				} else {
-					text.append((char) character);
-					text.append((char) nextCharacter);
-				}
+	 * Parses characters from an array.
+	 * @param input The characters.
+	 * @param offset The index of the first character to parse.
+	 * @param length The number of characters to parse.
+	 */
+	public void parse(char[] input, int offset, int length) {
+		int end = offset + length;
+		int textStart = offset;
+		int i = offset;
+
+		if (state == STATE_ESCAPE && i < end) {
+			if (input[i] == MULTI_CSI_SECOND) {
+				startControlSequence();
 			} else {
-				text.append((char) character);
+				// Not a control sequence after all, so the escape and
+				// the character after it are both text.
+				state = STATE_TEXT;
+				listener.parsedText(ESCAPE_TEXT, 0, 1);
 			}
+			i++;
+		}
 
-			if (introducedControlSequence) {
-				if (text.length() > 0) {
-					listener.parsedString(text.toString());
-					text = new StringBuilder();
+		while (i < end) {
+			char ch = input[i];
+
+			if (state == STATE_PARAMETERS) {
+				if (ch >= '0' && ch <= '9') {
+					int value = (parameterValue < 0 ? 0 : parameterValue * 10) + (ch - '0');
+					parameterValue = Math.min(value, MAX_PARAMETER_VALUE);
+					hasParameters = true;
+				} else if (ch == ';') {
+					endParameter();
+					hasParameters = true;
+				} else if ((ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z')) {
+					if (hasParameters) {
+						endParameter();
+					}
+					state = STATE_TEXT;
+					listener.parsedControlSequence(ch, parameters, parameterCount);
+					textStart = i + 1;
 				}
-				parseControlSequence(reader);
+				// Anything else, such as the '?' of private sequences, is
+				// ignored.
+				i++;
+				continue;
+			}
+
+			if (ch == SINGLE_CSI) {
+				emitText(input, textStart, i);
+				startControlSequence();
+				i++;
+			} else if (ch == ESCAPE) {
+				if (i + 1 == end) {
+					emitText(input, textStart, i);
+					state = STATE_ESCAPE;
+					i++;
+					textStart = i;
+				} else if (input[i + 1] == MULTI_CSI_SECOND) {
+					emitText(input, textStart, i);
+					startControlSequence();
+					i += 2;
+				} else {
+					// Both the escape and the next character are text.
+					i += 2;
+				}
+			} else {
+				i++;
 			}
 		}
 
-		if (text.length() > 0) {
-			listener.parsedString(text.toString());
+		if (state == STATE_TEXT) {
+			emitText(input, textStart, end);
 		}
 	}
 
 	/**
-	 * Parses a control sequence.
-	 * @param reader The character reader.
-	 * @throws IOException if an I/O error occurs.
+	 * Passes a run of text to the listener, if it isn't empty.
 	 */
-	private void parseControlSequence(Reader reader) throws IOException {
-		boolean finishedSequence = false;
-		StringBuilder parameters = new StringBuilder();
-		int character;
-		while ((character = reader.read()) != -1) {
-			if ((character >= 'a' && character <= 'z') || (character >= 'A' && character <= 'Z')) {
-				String[] array = parameters.toString().split(";");
-				AnsiControlSequence seq = new AnsiControlSequence((char) character, array);
-				listener.parsedControlSequence(seq);
-
-				finishedSequence = true;
-				break;
-			} else {
-				parameters.append((char) character);
-			}
+	private void emitText(char[] input, int start, int end) {
+		if (end > start) {
+			listener.parsedText(input, start, end - start);
 		}
-		if (!finishedSequence) {
-			// not an ideal solution if they used the two byte CSI, but it's
-			// easier and cleaner than keeping track of it
-			buffer.append(SINGLE_CSI);
-			buffer.append(parameters);
+	}
+
+	private void startControlSequence() {
+		state = STATE_PARAMETERS;
+		parameterCount = 0;
+		parameterValue = -1;
+		hasParameters = false;
+	}
+
+	private void endParameter() {
+		if (parameterCount < MAX_PARAMETERS) {
+			parameters[parameterCount++] = parameterValue;
 		}
+		parameterValue = -1;
 	}
 
 }
-
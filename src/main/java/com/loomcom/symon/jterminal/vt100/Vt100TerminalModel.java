@@ -23,6 +23,7 @@
 package com.loomcom.symon.jterminal.vt100;
 
 import java.awt.Color;
+import java.util.Arrays;
 
 import com.loomcom.symon.jterminal.AbstractTerminalModel;
 import com.loomcom.symon.jterminal.TerminalCell;
@@ -55,9 +56,17 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 
 		@Override
 		public void parsedControlSequence(AnsiControlSequence seq) {
-			char command = seq.getCommand();
+			String[] strings = seq.getParameters();
+			int[] parameters = new int[strings.length];
+			for (int i = 0; i < strings.length; i++) {
+				parameters[i] = strings[i].isEmpty() ? -1 : Integer.parseInt(strings[i]);
+			}
+			parsedControlSequence(seq.getCommand(), parameters, parameters.length);
+		}
+
+		@Override
+		public void parsedControlSequence(char command, int[] parameters, int count) {
 			int n;
-			String[] parameters = seq.getParameters();
 
 			switch (command) {
 			case 'A':
@@ -65,8 +74,8 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 			case 'C':
 			case 'D':
 				n = 1;
-				if (parameters.length == 1) {
-					n = Integer.parseInt(parameters[0]);
+				if (count == 1 && parameters[0] >= 0) {
+					n = parameters[0];
 				}
 				if (command == 'A') {
 					moveCursorUp(n);
@@ -81,8 +90,8 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 			case 'E':
 			case 'F':
 				n = 1;
-				if (parameters.length == 1) {
-					n = Integer.parseInt(parameters[0]);
+				if (count == 1 && parameters[0] >= 0) {
+					n = parameters[0];
 				}
 				if (command == 'E') {
 					moveCursorDown(n);
@@ -92,21 +101,21 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 				setCursorColumn(0);
 				break;
 			case 'G':
-				if (parameters.length == 1) {
-					n = Integer.parseInt(parameters[0]);
+				if (count == 1 && parameters[0] >= 0) {
+					n = parameters[0];
 					setCursorColumn(n - 1);
 				}
 				break;
 			case 'H':
 			case 'f':
-				if (parameters.length == 2) {
+				if (count == 2) {
 					n = 1;
 					int m = 1;
-					if (parameters[0].length() > 0) {
-						n = Integer.parseInt(parameters[0]);
+					if (parameters[0] >= 0) {
+						n = parameters[0];
 					}
-					if (parameters[1].length() > 0) {
-						m = Integer.parseInt(parameters[1]);
+					if (parameters[1] >= 0) {
+						m = parameters[1];
 					}
 					setCursorRow(n - 1);
 					setCursorColumn(m - 1);
@@ -114,15 +123,16 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 				break;
 			case 'J':
 				n = 0;
-				if (parameters.length == 1) {
-					n = Integer.parseInt(parameters[0]);
+				if (count == 1 && parameters[0] >= 0) {
+					n = parameters[0];
 				}
 				if (n == 0) {
 					int row = cursorRow;
 					int column = cursorColumn;
 					while(row < rows) {
+						dirtyRows[row] = true;
 						while(column < columns) {
-							cells[row][column] = null;
+							cells[rowOffset(row) + column] = EMPTY;
 							column++;
 						}
 						column = 0;
@@ -132,8 +142,9 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 					int row = cursorRow;
 					int column = cursorColumn;
 					while(row >= 0) {
+						dirtyRows[row] = true;
 						while(column >= 0) {
-							cells[row][column] = null;
+							cells[rowOffset(row) + column] = EMPTY;
 							column--;
 						}
 						column = columns - 1;
@@ -145,48 +156,55 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 				break;
 			case 'K':
 				n = 0;
-				if (parameters.length == 1) {
-					n = Integer.parseInt(parameters[0]);
+				if (count == 1 && parameters[0] >= 0) {
+					n = parameters[0];
 				}
 				if (n == 0) {
 					for (int row = cursorRow; row < rows; row++) {
-						cells[row][cursorColumn] = null;
+						cells[rowOffset(row) + cursorColumn] = EMPTY;
+						dirtyRows[row] = true;
 					}
 				} else if (n == 1) {
 					for (int row = cursorRow; row >= 0; row--) {
-						cells[row][cursorColumn] = null;
+						cells[rowOffset(row) + cursorColumn] = EMPTY;
+						dirtyRows[row] = true;
 					}
 				} else if (n == 2) {
-					for (int column = 0; column < columns; column++) {
-						cells[cursorRow][column] = null;
-					}
+					Arrays.fill(cells, rowOffset(cursorRow), rowOffset(cursorRow) + columns, EMPTY);
+					dirtyRows[cursorRow] = true;
 				}
 				break;
 			case 'm':
-				if (parameters.length == 0) {
-					parameters = new String[] { "0" };
+				if (count == 0) {
+					resetSgr();
 				}
-				for (String parameter : parameters) {
-					if (parameter.equals("0")) {
-						foregroundColor = DEFAULT_FOREGROUND_COLOR;
-						backgroundColor = DEFAULT_BACKGROUND_COLOR;
-						backgroundBold = DEFAULT_BACKGROUND_BOLD;
-						foregroundBold = DEFAULT_FOREGROUND_BOLD;
-					} else if (parameter.equals("2")) {
+				for (int i = 0; i < count; i++) {
+					int parameter = parameters[i];
+					if (parameter == 0) {
+						resetSgr();
+					} else if (parameter == 2) {
 						backgroundBold = true;
 						foregroundBold = true;
-					} else if (parameter.equals("22")) {
+					} else if (parameter == 22) {
 						backgroundBold = false;
 						foregroundBold = false;
-					} else if ((parameter.startsWith("3") || parameter.startsWith("4")) && parameter.length() == 2) {
-						int color = Integer.parseInt(parameter.substring(1));
-						if (parameter.startsWith("3")) {
+					} else if (parameter >= 30 && parameter <= 49) {
+						int color = parameter % 10;
+						// 9 selects the default color. 8, extended color,
+						// isn't supported.
+						if (color == 9) {
+							color = parameter < 40 ? DEFAULT_FOREGROUND_COLOR : DEFAULT_BACKGROUND_COLOR;
+						} else if (color > 7) {
+							continue;
+						}
+						if (parameter < 40) {
 							foregroundColor = color;
-						} else if (parameter.startsWith("4")) {
+						} else {
 							backgroundColor = color;
 						}
 					}
 				}
+				updateCurrentColors();
 				break;
 			case 'u':
 				if (savedCursorColumn != -1 && savedCursorRow != -1) {
@@ -203,7 +221,13 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 
 		@Override
 		public void parsedString(String str) {
-			for (char ch : str.toCharArray()) {
+			parsedText(str.toCharArray(), 0, str.length());
+		}
+
+		@Override
+		public void parsedText(char[] text, int offset, int length) {
+			for (int i = offset; i < offset + length; i++) {
+				char ch = text[i];
 				switch (ch) {
 				case '\0':
 					continue;
@@ -219,7 +243,8 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 				case 8:   // ASCII Backspace
 				case 127: // ASCII Delete
 					if (cursorColumn > 0) {
-						cells[cursorRow][--cursorColumn] = null;
+						cells[rowOffset(cursorRow) + --cursorColumn] = EMPTY;
+						dirtyRows[cursorRow] = true;
 					}
 					continue;
 				case 7:
@@ -233,19 +258,19 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 				}
 
 				if (cursorRow >= bufferSize) {
-					for (int i = 1; i < bufferSize; i++) {
-						System.arraycopy(cells[i], 0, cells[i - 1], 0, columns);
-					}
-					for (int i = 0; i < columns; i++) {
-						cells[bufferSize - 1][i] = null;
-					}
+					// The oldest row becomes the new last row, so nothing
+					// needs to be copied.
+					head = (head + 1 == bufferSize) ? 0 : head + 1;
+					int last = rowOffset(bufferSize - 1);
+					Arrays.fill(cells, last, last + columns, EMPTY);
+					// Every row has moved.
+					allRowsDirty = true;
 					cursorRow--;
 				}
 
-				Color back = backgroundBold ? SgrColor.COLOR_BRIGHT[backgroundColor] : SgrColor.COLOR_NORMAL[backgroundColor];
-				Color fore = foregroundBold ? SgrColor.COLOR_BRIGHT[foregroundColor] : SgrColor.COLOR_NORMAL[foregroundColor];
 				if (ch != '\n') {
-					cells[cursorRow][cursorColumn++] = new TerminalCell(ch, back, fore);
+					cells[rowOffset(cursorRow) + cursorColumn++] = currentColors | ch;
+					dirtyRows[cursorRow] = true;
 				}
 			}
 		}
@@ -287,6 +312,23 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 	 */
 	private static final int DEFAULT_BACKGROUND_COLOR = 0;
 
+	/**
+	 * An empty cell. Palette index 0 is never used, so no printed
+	 * character packs to this value.
+	 */
+	private static final int EMPTY = 0;
+
+	/**
+	 * The palette index of the first SGR color. The eight normal colors
+	 * come first, then the eight bright ones.
+	 */
+	private static final int SGR_PALETTE_START = 1;
+
+	/**
+	 * The most colors the palette can hold, including the unused index 0.
+	 */
+	private static final int MAX_PALETTE_SIZE = 256;
+
 	/**
 	 * The ANSI control sequence listener.
 	 */
@@ -303,9 +345,44 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 	private BellStrategy bellStrategy = new NopBellStrategy();
 
 	/**
-	 * The array of cells.
+	 * The cells, row by row, starting at the {@link #head} row. Each cell is packed into an int: the
+	 * character in the low 16 bits, then the palette index of the
+	 * foreground color, then that of the background color. Bold is
+	 * folded into the palette index, as the bright SGR colors.
+	 */
+	private int[] cells;
+
+	/**
+	 * The colors cells refer to. The SGR colors are always present;
+	 * any other colors given to {@link #setCell} are added as needed.
 	 */
-	private TerminalCell[][] cells;
+	private final Color[] palette = new Color[MAX_PALETTE_SIZE];
+
+	/**
+	 * The number of palette entries in use.
+	 */
+	private int paletteSize;
+
+	/**
+	 * The packed colors of the next character printed.
+	 */
+	private int currentColors;
+
+	/**
+	 * Rows which have changed since they were last painted.
+	 */
+	private boolean[] dirtyRows;
+
+	/**
+	 * Set when the buffer scrolls, since that moves every row.
+	 */
+	private boolean allRowsDirty;
+
+	/**
+	 * The index in the cell array of the top row of the buffer. The rows
+	 * form a ring, so scrolling just moves the head.
+	 */
+	private int head = 0;
 
 	/**
 	 * The number of columns.
@@ -398,7 +475,17 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 	 * Initializes the terminal model.
 	 */
 	private void init() {
-		cells = new TerminalCell[bufferSize][columns];
+		paletteSize = SGR_PALETTE_START;
+		for (Color color : SgrColor.COLOR_NORMAL) {
+			palette[paletteSize++] = color;
+		}
+		for (int i = 0; i < SgrColor.COLOR_NORMAL.length; i++) {
+			palette[paletteSize++] = SgrColor.COLOR_BRIGHT[i];
+		}
+		updateCurrentColors();
+		cells = new int[bufferSize * columns];
+		dirtyRows = new boolean[bufferSize];
+		allRowsDirty = true;
 	}
 
 	@Override
@@ -427,12 +514,74 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 		cursorColumn = column;
 	}
 
-	@Override
-	public TerminalCell getCell(int column, int row) {
+	/**
+	 * Gets the index in the cell array of the first cell of a row.
+	 * @param row The row, counting from the top of the buffer.
+	 */
+	private int rowOffset(int row) {
+		int index = head + row;
+		if (index >= bufferSize) {
+			index -= bufferSize;
+		}
+		return index * columns;
+	}
+
+	/**
+	 * Returns the SGR state to the default colors.
+	 */
+	private void resetSgr() {
+		foregroundColor = DEFAULT_FOREGROUND_COLOR;
+		backgroundColor = DEFAULT_BACKGROUND_COLOR;
+		backgroundBold = DEFAULT_BACKGROUND_BOLD;
+		foregroundBold = DEFAULT_FOREGROUND_BOLD;
+	}
+
+	/**
+	 * Packs the colors the SGR state selects, ready to be combined with a
+	 * character.
+	 */
+	private void updateCurrentColors() {
+		int fore = SGR_PALETTE_START + foregroundColor + (foregroundBold ? SgrColor.COLOR_NORMAL.length : 0);
+		int back = SGR_PALETTE_START + backgroundColor + (backgroundBold ? SgrColor.COLOR_NORMAL.length : 0);
+		currentColors = (fore << 16) | (back << 24);
+	}
+
+	/**
+	 * Gets the palette index of a color, adding it if it isn't there yet.
+	 * @throws IllegalStateException if the palette is full.
+	 */
+	private int paletteIndex(Color color) {
+		for (int i = SGR_PALETTE_START; i < paletteSize; i++) {
+			if (palette[i].equals(color)) {
+				return i;
+			}
+		}
+		if (paletteSize == MAX_PALETTE_SIZE) {
+			throw new IllegalStateException("Too many colors");
+		}
+		palette[paletteSize] = color;
+		return paletteSize++;
+	}
+
+	/**
+	 * Gets the packed value of a cell.
+	 * @throws IndexOutOfBoundsException if the column and/or row number(s) are
+	 * out of bounds.
+	 */
+	private int getPackedCell(int column, int row) {
 		if (column < 0 || row < 0 || column >= columns || row >= bufferSize) {
 			throw new IndexOutOfBoundsException();
 		}
-		return cells[row][column];
+		return cells[rowOffset(row) + column];
+	}
+
+	@Override
+	public TerminalCell getCell(int column, int row) {
+		int cell = getPackedCell(column, row);
+		if (cell == EMPTY) {
+			return null;
+		}
+		return new TerminalCell((char) cell, palette[(cell >>> 24) & 0xff], palette[(cell >>> 16) & 0xff]);
 	}
 
 	@Override
@@ -440,7 +589,45 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 		if (column < 0 || row < 0 || column >= columns || row >= bufferSize) {
 			throw new IndexOutOfBoundsException();
 		}
-		cells[row][column] = cell;
+		int packed = EMPTY;
+		if (cell != null) {
+			packed = cell.getCharacter()
+					| (paletteIndex(cell.getForegroundColor()) << 16)
+					| (paletteIndex(cell.getBackgroundColor()) << 24);
+		}
+		cells[rowOffset(row) + column] = packed;
+		dirtyRows[row] = true;
+	}
+
+	@Override
+	public boolean isCellEmpty(int column, int row) {
+		return getPackedCell(column, row) == EMPTY;
+	}
+
+	@Override
+	public char getCharacter(int column, int row) {
+		return (char) getPackedCell(column, row);
+	}
+
+	@Override
+	public Color getForegroundColor(int column, int row) {
+		int cell = getPackedCell(column, row);
+		return cell == EMPTY ? null : palette[(cell >>> 16) & 0xff];
+	}
+
+	@Override
+	public Color getBackgroundColor(int column, int row) {
+		int cell = getPackedCell(column, row);
+		return cell == EMPTY ? null : palette[(cell >>> 24) & 0xff];
+	}
+
+	@Override
+	public void clear() {
+		for (int row = 0; row < rows; row++) {
+			int offset = rowOffset(row);
+			Arrays.fill(cells, offset, offset + columns, EMPTY);
+			dirtyRows[row] = true;
+		}
 	}
 
 	@Override
@@ -451,6 +638,11 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 		parser.parse(str);
 	}
 
+	@Override
+	public void print(char[] chars, int offset, int length) {
+		parser.parse(chars, offset, length);
+	}
+
 	@Override
 	public int getColumns() {
 		return columns;
@@ -474,6 +666,20 @@ public class Vt100TerminalModel extends AbstractTerminalModel {
 		this.bellStrategy = strategy;
 	}
 
+	@Override
+	public boolean isRowDirty(int row) {
+		if (row < 0 || row >= bufferSize) {
+			throw new IndexOutOfBoundsException();
+		}
+		return allRowsDirty || dirtyRows[row];
+	}
+
+	@Override
+	public void clearDirtyRows() {
+		Arrays.fill(dirtyRows, false);
+		allRowsDirty = false;
+	}
+
 	@Override
 	public Color getDefaultBackgroundColor() {
 		final int bg = DEFAULT_BACKGROUND_COLOR;
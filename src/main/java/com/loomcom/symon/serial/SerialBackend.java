@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon.serial;
+
+import com.loomcom.symon.exceptions.FifoUnderrunException;
+
+/**
+ * The far end of the simulated serial line. The run loop polls a
+ * SerialBackend to move bytes between the ACIA and whatever is attached
+ * to it, such as the Swing console or a TCP client.
+ */
+public interface SerialBackend {
+
+    /**
+     * @return true if there is at least one byte waiting to be received.
+     */
+    boolean hasInput();
+
+    /**
+     * Remove and return the oldest received byte.
+     *
+     * @return The received byte.
+     * @throws FifoUnderrunException if there was no input waiting.
+     */
+    int readInput() throws FifoUnderrunException;
+
+    /**
+     * @return true if the backend can accept another byte of output.
+     */
+    boolean canOutput();
+
+    /**
+     * Transmit one byte to the far end of the line.
+     *
+     * @param data The byte to transmit.
+     */
+    void output(int data);
+
+    /**
+     * Discard any buffered input and output. The input buffer is read by
+     * the simulator's run thread, so this must only be called while that
+     * thread is stopped.
+     */
+    void reset();
+
+    /**
+     * Release any resources held by the backend.
+     */
+    default void close() {
+    }
+}
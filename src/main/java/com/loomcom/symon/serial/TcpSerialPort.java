@@ -0,0 +1,373 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon.serial;
+
+import com.loomcom.symon.exceptions.FifoUnderrunException;
+import com.loomcom.symon.util.IntRingBuffer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A serial backend that exposes the ACIA as a TCP listener, so that a
+ * telnet client can act as the terminal. One client may be connected at
+ * a time; further connections are refused until it disconnects.
+ * <p>
+ * Received and transmitted bytes pass through bounded queues. When the
+ * receive queue fills, the port stops reading from the socket and lets
+ * TCP flow control push back on the client. When the transmit queue
+ * fills, {@link #canOutput()} returns false and the byte stays in the
+ * ACIA until there is room.
+ * <p>
+ * Each queue is a lock-free ring with one producer and one consumer: the
+ * selector thread fills the receive queue and drains the transmit queue,
+ * and the simulator run thread does the opposite. Clearing a queue is
+ * always done on its consumer's thread.
+ */
+public class TcpSerialPort implements SerialBackend {
+
+    private final static Logger logger = LoggerFactory.getLogger(TcpSerialPort.class.getName());
+
+    private static final int QUEUE_SIZE = 1024;
+
+    // Telnet protocol bytes
+    private static final int IAC  = 255;
+    private static final int DONT = 254;
+    private static final int WILL = 251;
+    private static final int SB   = 250;
+    private static final int SE   = 240;
+
+    private static final int OPT_ECHO = 1;
+    private static final int OPT_SUPPRESS_GO_AHEAD = 3;
+
+    // Ask the client for character-at-a-time mode with remote echo,
+    // which is what a dumb serial terminal would give us.
+    private static final byte[] TELNET_NEGOTIATION = {
+            (byte) IAC, (byte) WILL, OPT_ECHO,
+            (byte) IAC, (byte) WILL, OPT_SUPPRESS_GO_AHEAD
+    };
+
+    private enum TelnetState {
+        DATA,
+        COMMAND,
+        OPTION,
+        SUBNEGOTIATION,
+        SUBNEGOTIATION_COMMAND
+    }
+
+    private final TcpSerialServer server;
+    private final ServerSocketChannel serverChannel;
+
+    private final IntRingBuffer rxQueue = new IntRingBuffer(QUEUE_SIZE);
+    private final IntRingBuffer txQueue = new IntRingBuffer(QUEUE_SIZE);
+
+    // Only touched by the selector thread.
+    private final ByteBuffer readBuffer = ByteBuffer.allocate(QUEUE_SIZE);
+    private final ByteBuffer writeBuffer = ByteBuffer.allocate(QUEUE_SIZE);
+    private SelectionKey clientKey;
+    private TelnetState telnetState = TelnetState.DATA;
+    private boolean lastWasCr = false;
+
+    private volatile SocketChannel client;
+
+    TcpSerialPort(TcpSerialServer server, ServerSocketChannel serverChannel) {
+        this.server = server;
+        this.serverChannel = serverChannel;
+    }
+
+    /**
+     * @return The local TCP port this backend is listening on.
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return true if a client is currently connected.
+     */
+    public boolean isConnected() {
+        return client != null;
+    }
+
+    @Override
+    public boolean hasInput() {
+        return !rxQueue.isEmpty();
+    }
+
+    @Override
+    public int readInput() throws FifoUnderrunException {
+        int data = rxQueue.pop();
+
+        // If that made room in a full queue, the selector thread may have
+        // stopped reading from the socket.
+        if (rxQueue.length() == rxQueue.capacity() - 1) {
+            server.submit(this::resumeReading);
+        }
+
+        return data;
+    }
+
+    @Override
+    public boolean canOutput() {
+        return client == null || !txQueue.isFull();
+    }
+
+    @Override
+    public void output(int data) {
+        // With nobody on the other end of the line, output goes nowhere.
+        if (client == null) {
+            return;
+        }
+
+        // Only wake the selector when the queue goes from empty to
+        // non-empty; otherwise it is already waiting to write.
+        if (txQueue.push(data) && txQueue.length() == 1) {
+            server.submit(this::resumeWriting);
+        }
+    }
+
+    @Override
+    public void reset() {
+        rxQueue.reset();
+        server.submit(() -> {
+            txQueue.reset();
+            resumeReading();
+        });
+    }
+
+    /**
+     * Stop listening and drop any connected client. Blocks until the
+     * listening socket has been released, so that the port can be bound
+     * again straight away.
+     */
+    @Override
+    public void close() {
+        CompletableFuture<Void> closed = new CompletableFuture<>();
+        server.submit(() -> {
+            disconnect();
+            try {
+                serverChannel.close();
+                // Flush the cancelled keys so the socket is really closed.
+                server.getSelector().selectNow();
+            } catch (IOException ex) {
+                logger.warn("Could not close serial port listener.", ex);
+            }
+            closed.complete(null);
+        });
+        closed.join();
+    }
+
+    /*
+     * Everything below runs on the selector thread.
+     */
+
+    void listen() {
+        try {
+            serverChannel.register(server.getSelector(), SelectionKey.OP_ACCEPT, this);
+        } catch (ClosedChannelException ex) {
+            logger.warn("Serial port listener was closed before it could be registered.");
+        }
+    }
+
+    void handle(SelectionKey key) {
+        try {
+            if (key.isAcceptable()) {
+                accept();
+                return;
+            }
+            if (key.isReadable()) {
+                read();
+            }
+            if (key.isValid() && key.isWritable()) {
+                write();
+            }
+        } catch (IOException ex) {
+            logger.info("Serial client connection lost: {}", ex.getMessage());
+            disconnect();
+        }
+    }
+
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null) {
+            return;
+        }
+
+        if (client != null) {
+            logger.info("Refusing serial connection from {}, port is busy.", channel.getRemoteAddress());
+            channel.close();
+            return;
+        }
+
+        logger.info("Serial client connected from {}", channel.getRemoteAddress());
+
+        channel.configureBlocking(false);
+        txQueue.reset();
+        readBuffer.clear();
+        writeBuffer.clear();
+        writeBuffer.put(TELNET_NEGOTIATION);
+        telnetState = TelnetState.DATA;
+        lastWasCr = false;
+
+        clientKey = channel.register(server.getSelector(), SelectionKey.OP_READ | SelectionKey.OP_WRITE, this);
+        client = channel;
+    }
+
+    private void read() throws IOException {
+        int room = rxQueue.capacity() - rxQueue.length();
+        if (room == 0) {
+            suspendReading();
+            return;
+        }
+
+        readBuffer.clear();
+        readBuffer.limit(Math.min(room, readBuffer.capacity()));
+
+        if (client.read(readBuffer) < 0) {
+            logger.info("Serial client disconnected.");
+            disconnect();
+            return;
+        }
+
+        readBuffer.flip();
+        while (readBuffer.hasRemaining()) {
+            receive(readBuffer.get() & 0xff);
+        }
+
+        if (rxQueue.isFull()) {
+            suspendReading();
+        }
+    }
+
+    private void write() throws IOException {
+        try {
+            while (!txQueue.isEmpty() && writeBuffer.hasRemaining()) {
+                int data = txQueue.peek() & 0xff;
+                if (data == IAC) {
+                    // A data byte of 255 is sent as IAC IAC, so that the
+                    // client doesn't take it for a telnet command.
+                    if (writeBuffer.remaining() < 2) {
+                        break;
+                    }
+                    writeBuffer.put((byte) IAC);
+                }
+                writeBuffer.put((byte) data);
+                txQueue.pop();
+            }
+        } catch (FifoUnderrunException ex) {
+            // Can't happen, this is the only consumer.
+        }
+
+        writeBuffer.flip();
+        client.write(writeBuffer);
+        writeBuffer.compact();
+
+        if (writeBuffer.position() == 0 && txQueue.isEmpty()) {
+            clientKey.interestOps(clientKey.interestOps() & ~SelectionKey.OP_WRITE);
+        }
+    }
+
+    /*
+     * Strip telnet commands out of the received byte stream, and fold the
+     * CR LF or CR NUL a telnet client sends for the Return key down to a
+     * single CR.
+     */
+    private void receive(int data) {
+        switch (telnetState) {
+            case DATA:
+                if (data == IAC) {
+                    telnetState = TelnetState.COMMAND;
+                } else if (lastWasCr && (data == 0x0a || data == 0x00)) {
+                    lastWasCr = false;
+                } else {
+                    lastWasCr = data == 0x0d;
+                    rxQueue.push(data);
+                }
+                break;
+            case COMMAND:
+                if (data == IAC) {
+                    // An escaped 0xFF data byte
+                    rxQueue.push(data);
+                    telnetState = TelnetState.DATA;
+                } else if (data >= WILL && data <= DONT) {
+                    telnetState = TelnetState.OPTION;
+                } else if (data == SB) {
+                    telnetState = TelnetState.SUBNEGOTIATION;
+                } else {
+                    telnetState = TelnetState.DATA;
+                }
+                break;
+            case OPTION:
+                telnetState = TelnetState.DATA;
+                break;
+            case SUBNEGOTIATION:
+                if (data == IAC) {
+                    telnetState = TelnetState.SUBNEGOTIATION_COMMAND;
+                }
+                break;
+            case SUBNEGOTIATION_COMMAND:
+                telnetState = (data == SE) ? TelnetState.DATA : TelnetState.SUBNEGOTIATION;
+                break;
+        }
+    }
+
+    private void suspendReading() {
+        clientKey.interestOps(clientKey.interestOps() & ~SelectionKey.OP_READ);
+    }
+
+    private void resumeReading() {
+        if (clientKey != null && clientKey.isValid()) {
+            clientKey.interestOps(clientKey.interestOps() | SelectionKey.OP_READ);
+        }
+    }
+
+    private void resumeWriting() {
+        if (clientKey != null && clientKey.isValid()) {
+            clientKey.interestOps(clientKey.interestOps() | SelectionKey.OP_WRITE);
+        }
+    }
+
+    private void disconnect() {
+        if (clientKey != null) {
+            clientKey.cancel();
+            clientKey = null;
+        }
+        if (client != null) {
+            try {
+                client.close();
+            } catch (IOException ex) {
+                logger.warn("Could not close serial client connection.", ex);
+            }
+            client = null;
+        }
+        txQueue.reset();
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon.serial;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * A single selector thread that services every TCP serial port in the
+ * process. Ports are opened on the loopback interface only.
+ * <p>
+ * All channel and selection key manipulation happens on the selector
+ * thread. Other threads hand work to it with {@link #submit(Runnable)}.
+ */
+public class TcpSerialServer implements Runnable {
+
+    private final static Logger logger = LoggerFactory.getLogger(TcpSerialServer.class.getName());
+
+    private static TcpSerialServer instance;
+
+    private final Selector selector;
+    private final Queue<Runnable> pendingTasks = new ConcurrentLinkedQueue<>();
+
+    private TcpSerialServer() throws IOException {
+        this.selector = Selector.open();
+        Thread selectorThread = new Thread(this, "TCP Serial Server");
+        selectorThread.setDaemon(true);
+        selectorThread.start();
+    }
+
+    /**
+     * @return The shared server, starting its selector thread on first use.
+     * @throws IOException if the selector could not be opened.
+     */
+    public static synchronized TcpSerialServer getInstance() throws IOException {
+        if (instance == null) {
+            instance = new TcpSerialServer();
+        }
+        return instance;
+    }
+
+    /**
+     * Start listening for a client on a localhost TCP port.
+     *
+     * @param port The port to listen on, or 0 to pick any free port.
+     * @return The serial backend for the new port.
+     * @throws IOException if the port could not be bound.
+     */
+    public TcpSerialPort open(int port) throws IOException {
+        ServerSocketChannel channel = ServerSocketChannel.open();
+        channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        channel.configureBlocking(false);
+
+        TcpSerialPort serialPort = new TcpSerialPort(this, channel);
+        submit(serialPort::listen);
+
+        logger.info("Serial port listening on {}", channel.getLocalAddress());
+        return serialPort;
+    }
+
+    /**
+     * Run a task on the selector thread.
+     *
+     * @param task The task to run.
+     */
+    void submit(Runnable task) {
+        pendingTasks.add(task);
+        selector.wakeup();
+    }
+
+    Selector getSelector() {
+        return selector;
+    }
+
+    public void run() {
+        while (true) {
+            try {
+                selector.select();
+            } catch (IOException ex) {
+                logger.error("Serial server selector failed.", ex);
+                return;
+            }
+
+            Runnable task;
+            while ((task = pendingTasks.poll()) != null) {
+                task.run();
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                ((TcpSerialPort) key.attachment()).handle(key);
+            }
+        }
+    }
+}
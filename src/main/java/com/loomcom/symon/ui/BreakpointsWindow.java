@@ -23,6 +23,7 @@
 
 package com.loomcom.symon.ui;
 
+import com.loomcom.symon.BreakpointCondition;
 import com.loomcom.symon.Breakpoints;
 import com.loomcom.symon.util.Utils;
 import org.slf4j.Logger;
@@ -34,13 +35,15 @@ import java.awt.*;
 import java.awt.event.ActionListener;
 
 /**
- * Simple window to enter breakpoints.
+ * Simple window to enter breakpoints. A breakpoint may have a condition,
+ * such as {@code A == $FF && [$10] > 3}, and may only halt after it has
+ * been hit a number of times.
  */
 public class BreakpointsWindow extends JFrame {
 
     private static final Logger logger = LoggerFactory.getLogger(BreakpointsWindow.class);
 
-    private static final Dimension FRAME_SIZE = new Dimension(240, 280);
+    private static final Dimension FRAME_SIZE = new Dimension(420, 280);
     private static final String EMPTY_STRING = "";
 
     private final JFrame mainWindow;
@@ -66,7 +69,11 @@ public class BreakpointsWindow extends JFrame {
         final JButton removeButton = new JButton("Del");
         removeButton.setEnabled(false);
 
-        final JTextField addTextField = new JTextField(4);
+        final JTextField addTextField = new JTextField(6);
+        final JTextField conditionTextField = new JTextField(12);
+        conditionTextField.setToolTipText("Optional condition, e.g. A == $FF && [$10] > 3");
+        final JTextField hitsTextField = new JTextField(3);
+        hitsTextField.setToolTipText("Halt on this hit and after (default 1)");
 
         final JTable breakpointsTable = new JTable(breakpoints);
         breakpointsTable.setShowGrid(true);
@@ -89,26 +96,56 @@ public class BreakpointsWindow extends JFrame {
                 return;
             }
 
+            // Accept a label, if symbols are loaded, or a hex address.
+            value = breakpoints.getSymbolTable().getAddress(newBreakpoint.trim());
+            if (value < 0) {
+                try {
+                    value = (Integer.parseInt(newBreakpoint.trim(), 16) & 0xffff);
+                } catch (NumberFormatException ex) {
+                    logger.warn("Can't parse page number {}", newBreakpoint);
+                    return;
+                }
+            }
+
+            BreakpointCondition condition = null;
+            long hitTarget = 1;
+
             try {
-                value = (Integer.parseInt(addTextField.getText(), 16) & 0xffff);
-            } catch (NumberFormatException ex) {
-                logger.warn("Can't parse page number {}", newBreakpoint);
+                String conditionText = conditionTextField.getText().trim();
+                if (!conditionText.isEmpty()) {
+                    condition = BreakpointCondition.parse(conditionText);
+                }
+                String hitsText = hitsTextField.getText().trim();
+                if (!hitsText.isEmpty()) {
+                    hitTarget = Long.parseLong(hitsText);
+                }
+            } catch (IllegalArgumentException ex) {
+                // NumberFormatException is an IllegalArgumentException too.
+                JOptionPane.showMessageDialog(this, ex.getMessage(), "Invalid Breakpoint", JOptionPane.ERROR_MESSAGE);
                 return;
             }
 
-            breakpoints.addBreakpoint(value);
+            breakpoints.addBreakpoint(new Breakpoints.Breakpoint(value, condition, hitTarget));
 
             logger.debug("Added breakpoint ${}", Utils.wordToHex(value));
 
             addTextField.setText(EMPTY_STRING);
+            conditionTextField.setText(EMPTY_STRING);
+            hitsTextField.setText(EMPTY_STRING);
         };
 
         addButton.addActionListener(addBreakpointListener);
         addTextField.addActionListener(addBreakpointListener);
+        conditionTextField.addActionListener(addBreakpointListener);
+        hitsTextField.addActionListener(addBreakpointListener);
 
         removeButton.addActionListener(e -> breakpoints.removeBreakpointAtIndex(breakpointsTable.getSelectedRow()));
 
         controlPanel.add(addTextField);
+        controlPanel.add(new JLabel("if"));
+        controlPanel.add(conditionTextField);
+        controlPanel.add(new JLabel("hit"));
+        controlPanel.add(hitsTextField);
         controlPanel.add(addButton);
         controlPanel.add(removeButton);
 
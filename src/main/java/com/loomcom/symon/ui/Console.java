@@ -26,7 +26,8 @@ package com.loomcom.symon.ui;
 import com.loomcom.symon.jterminal.JTerminal;
 import com.loomcom.symon.jterminal.vt100.Vt100TerminalModel;
 import com.loomcom.symon.exceptions.FifoUnderrunException;
-import com.loomcom.symon.util.FifoRingBuffer;
+import com.loomcom.symon.serial.SerialBackend;
+import com.loomcom.symon.util.CharRingBuffer;
 
 import javax.swing.*;
 import javax.swing.border.BevelBorder;
@@ -42,7 +43,7 @@ import java.awt.event.MouseListener;
  * the ACIA of the system. It provides basic keyboard I/O to Symon.
  */
 
-public class Console extends JTerminal implements KeyListener, MouseListener {
+public class Console extends JTerminal implements KeyListener, MouseListener, SerialBackend {
 
 	private static final long serialVersionUID = 6633818486963338126L;
 	
@@ -50,16 +51,29 @@ public class Console extends JTerminal implements KeyListener, MouseListener {
     // If true, swap CR and LF characters.
     private static final boolean SWAP_CR_AND_LF       = true;
 
+    // How often transmitted characters are drawn, about 60 times a second.
+    private static final int     OUTPUT_FLUSH_INTERVAL_MS = 16;
+
     // If true, send CRLF (0x0d 0x0a) whenever CR is typed
     private final boolean sendCrForLf;
-    private final FifoRingBuffer<Character> typeAheadBuffer;
+    // Filled by the Swing event thread, drained by the simulator run thread.
+    private final CharRingBuffer typeAheadBuffer;
+    // Filled by the simulator run thread, drained by the Swing event thread.
+    private final CharRingBuffer outputBuffer;
+    private final char[] flushBuffer;
+    private final Timer flushTimer;
 
     public Console(int columns, int rows, Font font, boolean sendCrForLf) {
         super(new Vt100TerminalModel(columns, rows), font);
     		//super(new Vt100TerminalModel(columns, rows));
         // A small type-ahead buffer, as might be found in any real
         // VT100-style serial terminal.
-        this.typeAheadBuffer = new FifoRingBuffer<>(128);
+        this.typeAheadBuffer = new CharRingBuffer(128);
+        // Room for a few frames of output at full emulated speed. If it
+        // fills, canOutput() holds characters in the ACIA until it drains.
+        this.outputBuffer = new CharRingBuffer(16384);
+        this.flushBuffer = new char[outputBuffer.capacity()];
+        this.flushTimer = new Timer(OUTPUT_FLUSH_INTERVAL_MS, e -> flushOutput());
         this.sendCrForLf = sendCrForLf;
         setBorderWidth(DEFAULT_BORDER_WIDTH);
         addKeyListener(this);
@@ -72,10 +86,12 @@ public class Console extends JTerminal implements KeyListener, MouseListener {
 
     /**
      * Reset the console. This will cause the console to be cleared and the cursor returned to the
-     * home position.
+     * home position. Must be called on the event dispatch thread, while the simulator's run
+     * thread, which reads the type-ahead buffer, is stopped.
      */
     public void reset() {
         typeAheadBuffer.reset();
+        outputBuffer.reset();
         getModel().clear();
         getModel().setCursorColumn(0);
         getModel().setCursorRow(0);
@@ -135,6 +151,53 @@ public class Console extends JTerminal implements KeyListener, MouseListener {
         return typeAheadBuffer.pop();
     }
 
+    @Override
+    public int readInput() throws FifoUnderrunException {
+        return readInputChar();
+    }
+
+    @Override
+    public boolean canOutput() {
+        return !outputBuffer.isFull();
+    }
+
+    /**
+     * Queue a character for display. Characters are drawn in batches by
+     * {@link #flushOutput()} on the Swing event thread, so the simulator
+     * run thread never waits on the terminal.
+     *
+     * @param data The character to display.
+     */
+    @Override
+    public void output(int data) {
+        outputBuffer.push((char) (data & 0xff));
+    }
+
+    /**
+     * Print everything transmitted since the last flush, and repaint once.
+     * Called by the flush timer on the Swing event thread.
+     */
+    void flushOutput() {
+        int count = outputBuffer.drain(flushBuffer);
+        if (count == 0) {
+            return;
+        }
+        print(flushBuffer, 0, count);
+        repaintDirtyRows();
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        flushTimer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        flushTimer.stop();
+        super.removeNotify();
+    }
+
     /**
      * Handle a key release event.
      *
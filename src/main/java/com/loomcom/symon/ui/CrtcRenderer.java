@@ -0,0 +1,285 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon.ui;
+
+import com.loomcom.symon.Bus;
+import com.loomcom.symon.devices.Crtc;
+import com.loomcom.symon.exceptions.MemoryAccessException;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.WritableRaster;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Renders the CRTC's displayed page into an image, one character cell at a
+ * time from a {@link GlyphAtlas}.
+ * <p>
+ * The renderer remembers what it last drew in each cell, so each call only
+ * redraws the cells whose character, or whose cursor, has changed. When
+ * the CRTC is on a bus, the bus's per-page write versions tell it which
+ * pages of video memory have been written since the last frame, so only
+ * those are read again, and {@link #isDirty(boolean)} can tell without
+ * reading video memory at all whether a frame is needed. It needs no
+ * Swing components, so frames can be rendered headless.
+ */
+public class CrtcRenderer {
+
+    // Added to a cell's character in the shadow array when the cursor
+    // is drawn over it.
+    private static final int CURSOR_FLAG = 0x100;
+
+    private final Crtc crtc;
+    private final String romResource;
+
+    private GlyphAtlas atlas;
+    private BufferedImage image;
+
+    // The geometry the image was built for.
+    private int horizontalDisplayed = -1;
+    private int verticalDisplayed = -1;
+    private int scanLinesPerRow = -1;
+
+    // What was last drawn in each cell, or -1 if the cell must be drawn.
+    private int[] shownCells = new int[0];
+    private int shownStartAddress = -1;
+    private int shownCursorStart = -1;
+    private int shownCursorStop = -1;
+
+    private int shownCursorAddress = -1;
+
+    // The bus page versions of video memory when it was last read, valid
+    // only if pageVersionsValid is set.
+    private final int[] renderedPageVersions = new int[256];
+    private boolean pageVersionsValid = false;
+
+    // Scratch space for the one glyph with the cursor over it.
+    private int[] cursorGlyph = new int[0];
+
+    public CrtcRenderer(Crtc crtc) throws IOException {
+        this(crtc, GlyphAtlas.ASCII_ROM);
+    }
+
+    /**
+     * @param crtc        The CRTC to render.
+     * @param romResource The character ROM resource, such as
+     *                    {@link GlyphAtlas#ASCII_ROM}.
+     * @throws IOException if the character ROM can't be read.
+     */
+    public CrtcRenderer(Crtc crtc, String romResource) throws IOException {
+        this.crtc = crtc;
+        this.romResource = romResource;
+        updateGeometry();
+    }
+
+    /**
+     * @return The image the page is rendered into. A new image is made
+     * when the CRTC's geometry changes.
+     */
+    public synchronized BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * Forget what is on screen, so that the next render draws every cell.
+     */
+    public synchronized void invalidate() {
+        Arrays.fill(shownCells, -1);
+        pageVersionsValid = false;
+    }
+
+    /**
+     * Check, without reading video memory, whether the next render would
+     * draw anything.
+     *
+     * @param hideCursor True if the cursor is in the "off" phase of a blink.
+     * @return True if a frame is needed.
+     */
+    public synchronized boolean isDirty(boolean hideCursor) {
+        if (!pageVersionsValid || geometryChanged() ||
+            crtc.getStartAddress() != shownStartAddress ||
+            crtc.getCursorStartLine() != shownCursorStart ||
+            crtc.getCursorStopLine() != shownCursorStop ||
+            cursorAddress(hideCursor) != shownCursorAddress) {
+            return true;
+        }
+
+        Bus bus = crtc.getBus();
+        int first = shownStartAddress;
+        int last = first + Math.min(crtc.getPageSize(), shownCells.length) - 1;
+        for (int page = first >>> 8; page <= last >>> 8; page++) {
+            if (bus.getPageVersion(page) != renderedPageVersions[page & 0xff]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Bring the image up to date with video memory.
+     *
+     * @param hideCursor True if the cursor is in the "off" phase of a blink.
+     * @return The number of cells drawn, which is 0 if nothing changed.
+     * @throws MemoryAccessException if video memory can't be read.
+     * @throws IOException if the character ROM can't be read.
+     */
+    public synchronized int render(boolean hideCursor) throws MemoryAccessException, IOException {
+        updateGeometry();
+
+        int startAddress = crtc.getStartAddress();
+        if (startAddress != shownStartAddress ||
+            crtc.getCursorStartLine() != shownCursorStart ||
+            crtc.getCursorStopLine() != shownCursorStop) {
+            shownStartAddress = startAddress;
+            shownCursorStart = crtc.getCursorStartLine();
+            shownCursorStop = crtc.getCursorStopLine();
+            invalidate();
+        }
+
+        int cursorAddress = cursorAddress(hideCursor);
+        int cells = Math.min(crtc.getPageSize(), shownCells.length);
+        int lastAddress = startAddress + cells - 1;
+        Bus bus = crtc.getBus();
+        int drawn = 0;
+
+        if (bus == null || !pageVersionsValid) {
+            // Versions are noted before memory is read, so that a write
+            // made while drawing is seen next time.
+            if (bus != null) {
+                for (int page = startAddress >>> 8; page <= lastAddress >>> 8; page++) {
+                    renderedPageVersions[page & 0xff] = bus.getPageVersion(page);
+                }
+                pageVersionsValid = true;
+            }
+            drawn = drawCells(0, cells, startAddress, cursorAddress);
+        } else {
+            for (int page = startAddress >>> 8; page <= lastAddress >>> 8; page++) {
+                int version = bus.getPageVersion(page);
+                if (version != renderedPageVersions[page & 0xff]) {
+                    renderedPageVersions[page & 0xff] = version;
+                    int from = Math.max(startAddress, page << 8) - startAddress;
+                    int to = Math.min(lastAddress, (page << 8) | 0xff) - startAddress + 1;
+                    drawn += drawCells(from, to, startAddress, cursorAddress);
+                }
+            }
+            // The cells the cursor has left and entered.
+            if (cursorAddress != shownCursorAddress) {
+                drawn += drawCell(shownCursorAddress, startAddress, lastAddress, cursorAddress);
+                drawn += drawCell(cursorAddress, startAddress, lastAddress, cursorAddress);
+            }
+        }
+
+        shownCursorAddress = cursorAddress;
+        return drawn;
+    }
+
+    /**
+     * Draw the cells in a range of the page that differ from what was
+     * last drawn.
+     *
+     * @return The number of cells drawn.
+     */
+    private int drawCells(int from, int to, int startAddress, int cursorAddress) throws MemoryAccessException {
+        WritableRaster raster = image.getRaster();
+        int drawn = 0;
+
+        for (int i = from; i < to; i++) {
+            int address = startAddress + i;
+            int chr = crtc.getCharAtAddress(address) & 0xff;
+            int cell = (address == cursorAddress) ? chr | CURSOR_FLAG : chr;
+            if (cell == shownCells[i]) {
+                continue;
+            }
+            shownCells[i] = cell;
+
+            int[] glyph = atlas.getGlyph(chr);
+            if ((cell & CURSOR_FLAG) != 0) {
+                glyph = overlayCursor(glyph);
+            }
+            int originX = (i % horizontalDisplayed) * GlyphAtlas.CHAR_WIDTH;
+            int originY = (i / horizontalDisplayed) * scanLinesPerRow;
+            raster.setPixels(originX, originY, GlyphAtlas.CHAR_WIDTH, scanLinesPerRow, glyph);
+            drawn++;
+        }
+
+        return drawn;
+    }
+
+    private int drawCell(int address, int startAddress, int lastAddress, int cursorAddress)
+            throws MemoryAccessException {
+        if (address < startAddress || address > lastAddress) {
+            return 0;
+        }
+        int i = address - startAddress;
+        return drawCells(i, i + 1, startAddress, cursorAddress);
+    }
+
+    private int cursorAddress(boolean hideCursor) {
+        return (!hideCursor && crtc.isCursorEnabled()) ? crtc.getCursorPosition() : -1;
+    }
+
+    /**
+     * The cursor overlay simulates an XOR of the Character ROM output and
+     * the 6545 cursor output.
+     */
+    private int[] overlayCursor(int[] glyph) {
+        System.arraycopy(glyph, 0, cursorGlyph, 0, glyph.length);
+        int cursorStart = Math.min(glyph.length, crtc.getCursorStartLine() * GlyphAtlas.CHAR_WIDTH);
+        int cursorStop = Math.min(glyph.length, (crtc.getCursorStopLine() + 1) * GlyphAtlas.CHAR_WIDTH);
+        for (int i = cursorStart; i < cursorStop; i++) {
+            cursorGlyph[i] ^= 0xff;
+        }
+        return cursorGlyph;
+    }
+
+    /**
+     * Rebuild the image and atlas if the CRTC's geometry has changed.
+     */
+    private boolean geometryChanged() {
+        return horizontalDisplayed != crtc.getHorizontalDisplayed() ||
+               verticalDisplayed != crtc.getVerticalDisplayed() ||
+               scanLinesPerRow != crtc.getScanLinesPerRow();
+    }
+
+    private void updateGeometry() throws IOException {
+        if (!geometryChanged()) {
+            return;
+        }
+
+        horizontalDisplayed = crtc.getHorizontalDisplayed();
+        verticalDisplayed = crtc.getVerticalDisplayed();
+        scanLinesPerRow = crtc.getScanLinesPerRow();
+
+        if (atlas == null || atlas.getScanLines() != scanLinesPerRow) {
+            atlas = GlyphAtlas.load(romResource, scanLinesPerRow);
+            cursorGlyph = new int[GlyphAtlas.CHAR_WIDTH * scanLinesPerRow];
+        }
+
+        int rasterWidth = Math.max(1, GlyphAtlas.CHAR_WIDTH * horizontalDisplayed);
+        int rasterHeight = Math.max(1, scanLinesPerRow * verticalDisplayed);
+        image = new BufferedImage(rasterWidth, rasterHeight, BufferedImage.TYPE_BYTE_BINARY);
+        shownCells = new int[horizontalDisplayed * verticalDisplayed];
+        invalidate();
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon.ui;
+
+import com.loomcom.symon.Disassembler;
+import com.loomcom.symon.SymbolTable;
+import com.loomcom.symon.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableColumn;
+import java.awt.*;
+import java.awt.event.ActionListener;
+
+/**
+ * This frame shows a disassembly of the whole address space, with labels
+ * and cross-references. The listing is built on the disassembler's
+ * background thread, which only disassembles again the pages that have
+ * been written to since the last time.
+ */
+public class DisassemblyWindow extends JFrame {
+
+    private static final Logger logger = LoggerFactory.getLogger(DisassemblyWindow.class);
+
+    private static final Dimension MIN_SIZE = new Dimension(400, 300);
+    private static final Dimension PREFERRED_SIZE = new Dimension(640, 600);
+
+    private static final String[] COLUMN_NAMES = {"Addr", "Bytes", "Label", "Instruction", "Referenced From"};
+    private static final int[] COLUMN_WIDTHS = {48, 72, 96, 160, 200};
+
+    private final Disassembler disassembler;
+    private final ListingTableModel tableModel;
+    private final JTable table;
+    private final JLabel statusLabel;
+
+    private SymbolTable symbolTable = SymbolTable.EMPTY;
+    private int programCounter = -1;
+
+    public DisassemblyWindow(Disassembler disassembler) {
+        this.disassembler = disassembler;
+        this.tableModel = new ListingTableModel();
+
+        setTitle("Disassembly");
+        setMinimumSize(MIN_SIZE);
+        setPreferredSize(PREFERRED_SIZE);
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+
+        table = new JTable(tableModel);
+        table.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        table.setShowGrid(false);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        table.getTableHeader().setReorderingAllowed(false);
+        for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+            TableColumn column = table.getColumnModel().getColumn(i);
+            column.setPreferredWidth(COLUMN_WIDTHS[i]);
+        }
+
+        final JTextField gotoTextField = new JTextField(8);
+        gotoTextField.setToolTipText("Address in hex, or a label");
+        JButton gotoButton = new JButton("Go To");
+        ActionListener gotoListener = e -> {
+            String text = gotoTextField.getText().trim();
+            if (text.isEmpty()) {
+                return;
+            }
+            int address = symbolTable.getAddress(text);
+            if (address < 0) {
+                try {
+                    address = Integer.parseInt(text.startsWith("$") ? text.substring(1) : text, 16) & 0xffff;
+                } catch (NumberFormatException ex) {
+                    logger.warn("Can't parse address {}", text);
+                    return;
+                }
+            }
+            scrollTo(address);
+        };
+        gotoButton.addActionListener(gotoListener);
+        gotoTextField.addActionListener(gotoListener);
+
+        JButton pcButton = new JButton("PC");
+        pcButton.setToolTipText("Go to the next instruction to be executed");
+        pcButton.addActionListener(e -> {
+            if (programCounter >= 0) {
+                scrollTo(programCounter);
+            }
+        });
+
+        JButton refreshButton = new JButton("Refresh");
+        refreshButton.addActionListener(e -> refresh(programCounter));
+
+        JPanel controlPanel = new JPanel();
+        controlPanel.add(gotoTextField);
+        controlPanel.add(gotoButton);
+        controlPanel.add(pcButton);
+        controlPanel.add(refreshButton);
+
+        statusLabel = new JLabel(" ");
+        statusLabel.setBorder(new EmptyBorder(2, 10, 2, 10));
+
+        getContentPane().add(controlPanel, BorderLayout.NORTH);
+        getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+        getContentPane().add(statusLabel, BorderLayout.SOUTH);
+        pack();
+    }
+
+    public void setSymbolTable(SymbolTable symbolTable) {
+        this.symbolTable = symbolTable == null ? SymbolTable.EMPTY : symbolTable;
+        disassembler.setSymbolTable(this.symbolTable);
+    }
+
+    /**
+     * Bring the listing up to date with memory in the background, then
+     * show the instruction at the program counter.
+     *
+     * @param programCounter The address to show, or -1 to stay put.
+     */
+    public void refresh(int programCounter) {
+        this.programCounter = programCounter;
+        long start = System.nanoTime();
+        disassembler.disassembleInBackground(0x0000, 0xffff).thenAccept(listing -> SwingUtilities.invokeLater(() -> {
+            tableModel.setListing(listing);
+            statusLabel.setText(String.format("%d instructions, %.1f ms", listing.size(),
+                                              (System.nanoTime() - start) / 1000000.0));
+            if (this.programCounter >= 0) {
+                scrollTo(this.programCounter);
+            }
+        }));
+    }
+
+    private void scrollTo(int address) {
+        Disassembler.Listing listing = tableModel.listing;
+        if (listing == null) {
+            return;
+        }
+        int row = listing.indexOf(address);
+        if (row < 0) {
+            return;
+        }
+        table.getSelectionModel().setSelectionInterval(row, row);
+        table.scrollRectToVisible(table.getCellRect(Math.min(row + 10, listing.size() - 1), 0, true));
+        table.scrollRectToVisible(table.getCellRect(row, 0, true));
+    }
+
+    /**
+     * Shows a listing. Cells are formatted as they are painted, so only
+     * the visible rows cost anything.
+     */
+    private class ListingTableModel extends AbstractTableModel {
+
+        private Disassembler.Listing listing;
+
+        void setListing(Disassembler.Listing listing) {
+            this.listing = listing;
+            fireTableDataChanged();
+        }
+
+        public int getRowCount() {
+            return listing == null ? 0 : listing.size();
+        }
+
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        public Object getValueAt(int row, int column) {
+            int address = listing.getAddress(row);
+            switch (column) {
+                case 0:
+                    return Utils.wordToHex(address);
+                case 1:
+                    return listing.getBytes(row);
+                case 2:
+                    String label = symbolTable.getLabel(address);
+                    return label == null ? "" : label;
+                case 3:
+                    return listing.getText(row);
+                case 4:
+                    int[] references = listing.getReferences(address);
+                    StringBuilder sb = new StringBuilder();
+                    for (int from : references) {
+                        if (sb.length() > 0) {
+                            sb.append(' ');
+                        }
+                        sb.append(Utils.wordToHex(from));
+                    }
+                    return sb.toString();
+                default:
+                    return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon.ui;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The glyphs of a character generator ROM, decoded once into pixel arrays
+ * that can be copied straight into a video raster.
+ * <p>
+ * Each glyph is CHAR_WIDTH pixels wide and as many scan lines high as the
+ * CRTC asks for. Scan lines past the bottom of the ROM's glyphs are blank.
+ * Pixels are 0 for black and 0xff for white.
+ */
+public class GlyphAtlas {
+
+    public static final int CHAR_WIDTH = 8;
+    public static final int CHAR_HEIGHT = 8;
+
+    // The character ROMs shipped as resources.
+    public static final String ASCII_ROM = "/ascii.rom";
+    public static final String PET_ROM = "/pet.rom";
+    public static final String CGA_ROM = "/cga8.rom";
+    public static final String MOD_ROM = "/mod.rom";
+
+    // Raw ROM images, read once per resource.
+    private static final Map<String, byte[]> roms = new ConcurrentHashMap<>();
+
+    private final int scanLines;
+    private final int[][] glyphs;
+
+    private GlyphAtlas(byte[] rom, int scanLines) {
+        this.scanLines = scanLines;
+        int glyphCount = Math.max(1, rom.length / CHAR_HEIGHT);
+        int rowsFromRom = Math.min(CHAR_HEIGHT, scanLines);
+        this.glyphs = new int[glyphCount][];
+
+        for (int chr = 0; chr < glyphCount; chr++) {
+            int[] glyph = new int[CHAR_WIDTH * scanLines];
+            for (int row = 0; row < rowsFromRom; row++) {
+                int index = chr * CHAR_HEIGHT + row;
+                int bits = index < rom.length ? rom[index] : 0;
+                for (int bit = 0; bit < CHAR_WIDTH; bit++) {
+                    glyph[row * CHAR_WIDTH + bit] = (bits & (0x80 >> bit)) == 0 ? 0 : 0xff;
+                }
+            }
+            glyphs[chr] = glyph;
+        }
+    }
+
+    /**
+     * Build the atlas for a character ROM resource.
+     *
+     * @param resource  The resource name, such as {@link #ASCII_ROM}.
+     * @param scanLines The number of scan lines in each character row.
+     * @return The atlas.
+     * @throws IOException if the ROM can't be read.
+     */
+    public static GlyphAtlas load(String resource, int scanLines) throws IOException {
+        byte[] rom = roms.get(resource);
+        if (rom == null) {
+            try (InputStream in = GlyphAtlas.class.getResourceAsStream(resource)) {
+                if (in == null) {
+                    throw new IOException("Resource " + resource + " not found");
+                }
+                rom = in.readAllBytes();
+            }
+            roms.put(resource, rom);
+        }
+        return new GlyphAtlas(rom, Math.max(0, scanLines));
+    }
+
+    public int getScanLines() {
+        return scanLines;
+    }
+
+    public int getGlyphCount() {
+        return glyphs.length;
+    }
+
+    /**
+     * @return The pixels of a character's glyph. The array is shared, and
+     * must not be changed.
+     */
+    public int[] getGlyph(int chr) {
+        return glyphs[(chr & 0xff) % glyphs.length];
+    }
+}
@@ -38,22 +38,37 @@ import javax.swing.text.JTextComponent;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.util.EventObject;
 
 
 /**
  * This Frame displays the contents of a page of memory. The page number to be displayed
  * is selectable by the user.
+ * <p>
+ * Optionally, the window shows a heat map of memory accesses. Each byte is shaded by
+ * how often the CPU has read or written it, and a map of all 256 pages is shaded by
+ * the accesses to each page.
  */
 public class MemoryWindow extends JFrame implements ActionListener {
 
     private static final Logger logger = LoggerFactory.getLogger(MemoryWindow.class);
 
+    private final Bus bus;
     private final MemoryTableModel memoryTableModel;
     private JTable memoryTable;
     private JTextField pageNumberTextField;
     private JButton previousPageButton;
     private JButton nextPageButton;
+    private JCheckBox heatMapCheckBox;
+    private JButton resetCountsButton;
+    private JLabel pageCountsLabel;
+    private PageHeatMap pageHeatMap;
+
+    // Colors for the hottest memory, mostly read or mostly written.
+    private static final Color READ_HEAT_COLOR = new Color(0x30, 0x70, 0xf0);
+    private static final Color WRITE_HEAT_COLOR = new Color(0xf0, 0x40, 0x20);
 
     private static final Dimension MINIMUM_SIZE = new Dimension(320, 600);
 
@@ -76,6 +91,7 @@ public class MemoryWindow extends JFrame implements ActionListener {
      * @param bus The Bus the memory window will query for data.
      */
     public MemoryWindow(Bus bus) {
+        this.bus = bus;
         this.memoryTableModel = new MemoryTableModel(bus);
         createUi();
     }
@@ -110,6 +126,17 @@ public class MemoryWindow extends JFrame implements ActionListener {
         pageNumberTextField.setText(Utils.byteToHex(pageNumber));
     }
 
+    /**
+     * Turn the heat map, and the bus access counting that feeds it, on or off.
+     */
+    private void setHeatMapEnabled(boolean enabled) {
+        bus.setAccessCounting(enabled);
+        resetCountsButton.setEnabled(enabled);
+        pageHeatMap.setVisible(enabled);
+        pageCountsLabel.setVisible(enabled);
+        updateState();
+    }
+
     /**
      * Set up the UI.
      */
@@ -153,9 +180,28 @@ public class MemoryWindow extends JFrame implements ActionListener {
         nextPageButton.addActionListener(this);
         previousPageButton.addActionListener(this);
 
+        heatMapCheckBox = new JCheckBox("Heat Map");
+        heatMapCheckBox.addActionListener(e -> setHeatMapEnabled(heatMapCheckBox.isSelected()));
+        resetCountsButton = new JButton("Reset");
+        resetCountsButton.setEnabled(false);
+        resetCountsButton.addActionListener(e -> {
+            bus.resetAccessCounts();
+            updateState();
+        });
+
+        pageCountsLabel = new JLabel(" ");
+        pageCountsLabel.setHorizontalAlignment(JLabel.CENTER);
+        pageCountsLabel.setVisible(false);
+
+        pageHeatMap = new PageHeatMap();
+        pageHeatMap.setVisible(false);
+
         updateControls();
 
         JPanel controlPanel = new JPanel();
+        JPanel heatMapControlPanel = new JPanel();
+        JPanel northPanel = new JPanel(new BorderLayout());
+        JPanel heatMapPanel = new JPanel(new BorderLayout());
         JPanel memoryPanel = new JPanel();
         memoryPanel.setLayout(new BorderLayout());
         memoryPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
@@ -165,6 +211,16 @@ public class MemoryWindow extends JFrame implements ActionListener {
         controlPanel.add(pageNumberTextField);
         controlPanel.add(nextPageButton);
 
+        heatMapControlPanel.add(heatMapCheckBox);
+        heatMapControlPanel.add(resetCountsButton);
+
+        northPanel.add(controlPanel, BorderLayout.NORTH);
+        northPanel.add(heatMapControlPanel, BorderLayout.SOUTH);
+
+        heatMapPanel.setBorder(new EmptyBorder(0, 10, 10, 10));
+        heatMapPanel.add(pageCountsLabel, BorderLayout.NORTH);
+        heatMapPanel.add(pageHeatMap, BorderLayout.CENTER);
+
         JScrollPane scrollPane = new JScrollPane(memoryTable);
         scrollPane.setVerticalScrollBarPolicy(JScrollPane.VERTICAL_SCROLLBAR_AS_NEEDED);
         scrollPane.setHorizontalScrollBarPolicy(JScrollPane.HORIZONTAL_SCROLLBAR_AS_NEEDED);
@@ -172,8 +228,9 @@ public class MemoryWindow extends JFrame implements ActionListener {
         memoryPanel.add(scrollPane, BorderLayout.CENTER);
 
         setLayout(new BorderLayout());
-        getContentPane().add(controlPanel, BorderLayout.NORTH);
+        getContentPane().add(northPanel, BorderLayout.NORTH);
         getContentPane().add(memoryPanel, BorderLayout.CENTER);
+        getContentPane().add(heatMapPanel, BorderLayout.SOUTH);
 
         setMinimumSize(MINIMUM_SIZE);
         memoryPanel.setPreferredSize(memoryTable.getPreferredSize());
@@ -223,9 +280,40 @@ public class MemoryWindow extends JFrame implements ActionListener {
      * Refresh the view of memory
      */
     public void updateState() {
+        if (bus.isAccessCounting()) {
+            int page = getPageNumber();
+            memoryTableModel.updateMaxCount();
+            pageCountsLabel.setText(String.format("Page $%02X: %d reads, %d writes", page,
+                                                  bus.getPageReadCount(page), bus.getPageWriteCount(page)));
+            pageHeatMap.repaint();
+        }
         memoryTable.updateUI();
     }
 
+    /**
+     * Shade a color by how hot some memory is, from white for untouched
+     * memory up to full color for the hottest. The scale is logarithmic,
+     * since access counts vary over many orders of magnitude.
+     *
+     * @return The shade, or null if the memory has not been accessed.
+     */
+    private static Color heatColor(long reads, long writes, long maxCount) {
+        long count = reads + writes;
+        if (count == 0 || maxCount == 0) {
+            return null;
+        }
+
+        double heat = Math.min(1.0, Math.log1p(count) / Math.log1p(maxCount));
+        Color hot = writes > reads ? WRITE_HEAT_COLOR : READ_HEAT_COLOR;
+        return new Color(blend(255, hot.getRed(), heat),
+                         blend(255, hot.getGreen(), heat),
+                         blend(255, hot.getBlue(), heat));
+    }
+
+    private static int blend(int from, int to, double amount) {
+        return (int) Math.round(from + (to - from) * amount);
+    }
+
     /**
      * A JTable that will automatically select all text in a cell
      * being edited.
@@ -250,7 +338,7 @@ public class MemoryWindow extends JFrame implements ActionListener {
         }
     }
 
-    private static class MemoryTableCellRenderer extends DefaultTableCellRenderer {
+    private class MemoryTableCellRenderer extends DefaultTableCellRenderer {
 
         @Override
         public Component getTableCellRendererComponent(JTable table, Object value,
@@ -263,12 +351,72 @@ public class MemoryWindow extends JFrame implements ActionListener {
             if (isSelected) {
                 cell.setBackground(Color.LIGHT_GRAY);
                 cell.setForeground(Color.BLACK);
+            } else {
+                Color heat = null;
+                if (col > 0 && bus.isAccessCounting()) {
+                    int address = memoryTableModel.addressAt(row, col);
+                    heat = heatColor(bus.getReadCount(address), bus.getWriteCount(address),
+                                     memoryTableModel.getMaxCount());
+                }
+                cell.setBackground(heat != null ? heat : table.getBackground());
             }
 
             return cell;
         }
     }
 
+    /**
+     * A 16 x 16 map of all memory pages, each shaded by its access count.
+     * Clicking a page shows it in the table.
+     */
+    private class PageHeatMap extends JComponent {
+
+        private static final int CELL_SIZE = 12;
+
+        PageHeatMap() {
+            setPreferredSize(new Dimension(16 * CELL_SIZE + 1, 16 * CELL_SIZE + 1));
+            addMouseListener(new MouseAdapter() {
+                @Override
+                public void mouseClicked(MouseEvent e) {
+                    int column = (e.getX() - originX()) / CELL_SIZE;
+                    int row = e.getY() / CELL_SIZE;
+                    if (column >= 0 && column < 16 && row >= 0 && row < 16) {
+                        setPageNumber(row * 16 + column);
+                        updateControls();
+                        updateState();
+                    }
+                }
+            });
+        }
+
+        private int originX() {
+            return (getWidth() - 16 * CELL_SIZE) / 2;
+        }
+
+        @Override
+        protected void paintComponent(Graphics g) {
+            long[] reads = new long[256];
+            long[] writes = new long[256];
+            long maxCount = 0;
+            for (int page = 0; page < 256; page++) {
+                reads[page] = bus.getPageReadCount(page);
+                writes[page] = bus.getPageWriteCount(page);
+                maxCount = Math.max(maxCount, reads[page] + writes[page]);
+            }
+
+            int x0 = originX();
+            for (int page = 0; page < 256; page++) {
+                int x = x0 + (page % 16) * CELL_SIZE;
+                int y = (page / 16) * CELL_SIZE;
+                Color heat = heatColor(reads[page], writes[page], maxCount);
+                g.setColor(heat != null ? heat : Color.WHITE);
+                g.fillRect(x, y, CELL_SIZE, CELL_SIZE);
+                g.setColor(page == getPageNumber() ? Color.BLACK : Color.LIGHT_GRAY);
+                g.drawRect(x, y, CELL_SIZE, CELL_SIZE);
+            }
+        }
+    }
+
     /**
      * The model that backs the Memory Table.
      */
@@ -277,6 +425,10 @@ public class MemoryWindow extends JFrame implements ActionListener {
         private final Bus bus;
         private int pageNumber;
 
+        // The highest access count of any byte on the page, for scaling
+        // the heat map.
+        private long maxCount;
+
         private static final int COLUMN_COUNT = 17;
         private static final int ROW_COUNT = 32;
 
@@ -356,6 +508,28 @@ public class MemoryWindow extends JFrame implements ActionListener {
             }
         }
 
+        /**
+         * Find the highest access count of any byte on the current page.
+         */
+        void updateMaxCount() {
+            long max = 0;
+            for (int address = pageNumber << 8; address <= ((pageNumber << 8) | 0xff); address++) {
+                max = Math.max(max, bus.getReadCount(address) + bus.getWriteCount(address));
+            }
+            maxCount = max;
+        }
+
+        long getMaxCount() {
+            return maxCount;
+        }
+
+        /**
+         * @return The address shown in a hex or ASCII cell.
+         */
+        int addressAt(int row, int column) {
+            return column < ASCII_COL_START ? fullAddress(row, column) : fullAddress(row, column - 8);
+        }
+
         private int fullAddress(int row, int column) {
             int pageAddress = ((row * 8) + (column - 1)) & 0xff;
             return (pageNumber << 8) | pageAddress;
@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon.ui;
+
+import com.loomcom.symon.InstructionTable;
+import com.loomcom.symon.OpcodeStatistics;
+import com.loomcom.symon.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
+import javax.swing.table.TableRowSorter;
+import java.awt.*;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * This frame shows how often each opcode, or each addressing mode, has been
+ * executed. A snapshot of the counts can be taken, after which the window
+ * also shows how the counts have changed since.
+ */
+public class OpcodeStatisticsWindow extends JFrame {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpcodeStatisticsWindow.class);
+
+    private static final Dimension MIN_SIZE = new Dimension(320, 240);
+    private static final Dimension PREFERRED_SIZE = new Dimension(560, 480);
+
+    private final OpcodeStatistics statistics;
+    private final StatisticsTableModel tableModel;
+    private final JCheckBox byModeCheckBox;
+    private final JLabel totalLabel;
+    private final JFileChooser fileChooser = new JFileChooser(System.getProperty("user.dir"));
+
+    public OpcodeStatisticsWindow(OpcodeStatistics statistics) {
+        this.statistics = statistics;
+        this.tableModel = new StatisticsTableModel();
+
+        setTitle("Opcode Statistics");
+        setMinimumSize(MIN_SIZE);
+        setPreferredSize(PREFERRED_SIZE);
+        setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+
+        JTable table = new JTable(tableModel);
+        table.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        table.getTableHeader().setReorderingAllowed(false);
+        table.setRowSorter(new TableRowSorter<>(tableModel));
+
+        byModeCheckBox = new JCheckBox("By Addressing Mode");
+        byModeCheckBox.addActionListener(e -> refresh());
+
+        JButton snapshotButton = new JButton("Snapshot");
+        snapshotButton.setToolTipText("Show changes from the counts as they are now");
+        snapshotButton.addActionListener(e -> {
+            tableModel.setBaseline(statistics.snapshot());
+            refresh();
+        });
+
+        JButton resetButton = new JButton("Reset");
+        resetButton.addActionListener(e -> {
+            statistics.reset();
+            tableModel.setBaseline(null);
+            refresh();
+        });
+
+        JButton exportButton = new JButton("Export CSV...");
+        exportButton.addActionListener(e -> exportCsv());
+
+        JPanel controlPanel = new JPanel();
+        controlPanel.add(byModeCheckBox);
+        controlPanel.add(snapshotButton);
+        controlPanel.add(resetButton);
+        controlPanel.add(exportButton);
+
+        totalLabel = new JLabel(" ");
+        totalLabel.setBorder(new EmptyBorder(2, 10, 2, 10));
+
+        getContentPane().add(controlPanel, BorderLayout.NORTH);
+        getContentPane().add(new JScrollPane(table), BorderLayout.CENTER);
+        getContentPane().add(totalLabel, BorderLayout.SOUTH);
+        pack();
+    }
+
+    /**
+     * Update the table with the current counts.
+     */
+    public void refresh() {
+        tableModel.update(statistics.snapshot(), byModeCheckBox.isSelected());
+        long[] baseline = tableModel.baseline;
+        long total = OpcodeStatistics.total(tableModel.counts);
+        if (baseline == null) {
+            totalLabel.setText(total + " instructions");
+        } else {
+            totalLabel.setText(total + " instructions, " + (total - OpcodeStatistics.total(baseline)) +
+                               " since snapshot");
+        }
+    }
+
+    private void exportCsv() {
+        if (fileChooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return;
+        }
+        File f = fileChooser.getSelectedFile();
+        try (Writer out = new BufferedWriter(new FileWriter(f))) {
+            OpcodeStatistics.writeCsv(out, statistics.snapshot(), tableModel.baseline);
+        } catch (IOException ex) {
+            logger.error("Unable to export opcode statistics: {}", ex.getMessage());
+            JOptionPane.showMessageDialog(this, ex.getMessage(), "Failure", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * The model that backs the statistics table. Rows are either opcodes or
+     * addressing modes.
+     */
+    private static class StatisticsTableModel extends AbstractTableModel {
+
+        private static final String[] OPCODE_COLUMNS = {"Opcode", "Mnemonic", "Mode", "Count", "%", "Delta"};
+        private static final String[] MODE_COLUMNS = {"Mode", "Count", "%", "Delta"};
+        private static final InstructionTable.Mode[] MODES = InstructionTable.Mode.values();
+
+        // Counts by opcode
+        private long[] counts = new long[256];
+        private long[] baseline;
+
+        // The rows being shown, as indexes into counts, or into the counts
+        // by mode.
+        private long[] rowCounts = new long[0];
+        private long[] rowBaseline;
+        private int[] rowKeys = new int[0];
+        private long total;
+        private boolean byMode;
+
+        void setBaseline(long[] baseline) {
+            this.baseline = baseline;
+        }
+
+        void update(long[] counts, boolean byMode) {
+            boolean structureChanged = byMode != this.byMode;
+            this.counts = counts;
+            this.byMode = byMode;
+            this.total = OpcodeStatistics.total(counts);
+
+            long[] all = byMode ? OpcodeStatistics.countsByMode(counts) : counts;
+            long[] allBaseline = baseline == null ? null :
+                                 byMode ? OpcodeStatistics.countsByMode(baseline) : baseline;
+
+            int n = 0;
+            for (int i = 0; i < all.length; i++) {
+                if (all[i] > 0 || (allBaseline != null && allBaseline[i] > 0)) {
+                    n++;
+                }
+            }
+            rowKeys = new int[n];
+            rowCounts = new long[n];
+            rowBaseline = allBaseline == null ? null : new long[n];
+            n = 0;
+            for (int i = 0; i < all.length; i++) {
+                if (all[i] > 0 || (allBaseline != null && allBaseline[i] > 0)) {
+                    rowKeys[n] = i;
+                    rowCounts[n] = all[i];
+                    if (allBaseline != null) {
+                        rowBaseline[n] = allBaseline[i];
+                    }
+                    n++;
+                }
+            }
+
+            if (structureChanged) {
+                fireTableStructureChanged();
+            } else {
+                fireTableDataChanged();
+            }
+        }
+
+        public int getRowCount() {
+            return rowKeys.length;
+        }
+
+        public int getColumnCount() {
+            return byMode ? MODE_COLUMNS.length : OPCODE_COLUMNS.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return byMode ? MODE_COLUMNS[column] : OPCODE_COLUMNS[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            String name = getColumnName(column);
+            switch (name) {
+                case "Count":
+                case "Delta":
+                    return Long.class;
+                case "%":
+                    return Double.class;
+                default:
+                    return String.class;
+            }
+        }
+
+        public Object getValueAt(int row, int column) {
+            int key = rowKeys[row];
+            switch (getColumnName(column)) {
+                case "Opcode":
+                    return "$" + Utils.byteToHex(key);
+                case "Mnemonic":
+                    return InstructionTable.opcodeNames[key];
+                case "Mode":
+                    return byMode ? MODES[key].toString() : InstructionTable.instructionModes[key].toString();
+                case "Count":
+                    return rowCounts[row];
+                case "%":
+                    return total == 0 ? 0.0 : Math.round(10000.0 * rowCounts[row] / total) / 100.0;
+                case "Delta":
+                    return rowBaseline == null ? null : rowCounts[row] - rowBaseline[row];
+                default:
+                    return null;
+            }
+        }
+    }
+}
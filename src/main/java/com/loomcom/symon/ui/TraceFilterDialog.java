@@ -0,0 +1,147 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon.ui;
+
+import com.loomcom.symon.Bus;
+import com.loomcom.symon.TraceFilter;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.function.Consumer;
+
+/**
+ * Dialog window that sets which instructions are captured into the trace.
+ */
+public class TraceFilterDialog {
+
+    private final JDialog dialog;
+    private final Bus bus;
+    private final Consumer<TraceFilter> applyListener;
+
+    private JTextField fromAddressField;
+    private JTextField toAddressField;
+    private JTextField opcodesField;
+    private JCheckBox  ioOnlyCheckBox;
+
+    private TraceFilter filter;
+
+    /**
+     * @param parent        The parent frame.
+     * @param bus           The bus of the machine being traced.
+     * @param applyListener Called with the new filter when the user applies it.
+     */
+    public TraceFilterDialog(Frame parent, Bus bus, Consumer<TraceFilter> applyListener) {
+        this.dialog = new JDialog(parent, true);
+        this.bus = bus;
+        this.applyListener = applyListener;
+        this.filter = new TraceFilter(bus);
+        createUi();
+        updateUi();
+    }
+
+    public JDialog getDialog() {
+        return dialog;
+    }
+
+    public TraceFilter getFilter() {
+        return filter;
+    }
+
+    private void createUi() {
+        dialog.setTitle("Trace Capture Filter");
+        Container contents = dialog.getContentPane();
+
+        JPanel settingsContainer = new JPanel();
+        JPanel buttonsContainer = new JPanel();
+
+        settingsContainer.setLayout(new GridBagLayout());
+
+        fromAddressField = new JTextField(8);
+        toAddressField = new JTextField(8);
+        opcodesField = new JTextField(16);
+        opcodesField.setToolTipText("Comma separated mnemonics or hex opcodes, e.g. JSR,RTS,$EA");
+        ioOnlyCheckBox = new JCheckBox();
+
+        GridBagConstraints constraints = new GridBagConstraints();
+        constraints.insets = new Insets(5, 5, 5, 5);
+        constraints.fill = GridBagConstraints.HORIZONTAL;
+
+        addRow(settingsContainer, constraints, 0, "From Address", fromAddressField);
+        addRow(settingsContainer, constraints, 1, "To Address", toAddressField);
+        addRow(settingsContainer, constraints, 2, "Opcodes", opcodesField);
+        addRow(settingsContainer, constraints, 3, "I/O Accesses Only", ioOnlyCheckBox);
+
+        JButton applyButton = new JButton("Apply");
+        JButton cancelButton = new JButton("Cancel");
+
+        cancelButton.addActionListener(actionEvent -> {
+            updateUi();
+            dialog.setVisible(false);
+        });
+
+        applyButton.addActionListener(actionEvent -> {
+            TraceFilter newFilter = new TraceFilter(bus);
+            try {
+                newFilter.setAddressRange(Integer.parseInt(fromAddressField.getText().trim(), 16) & 0xffff,
+                                          Integer.parseInt(toAddressField.getText().trim(), 16) & 0xffff);
+                newFilter.setOpcodes(opcodesField.getText());
+            } catch (IllegalArgumentException ex) {
+                // NumberFormatException is an IllegalArgumentException, too.
+                JOptionPane.showMessageDialog(dialog, "Invalid filter: " + ex.getMessage(),
+                                              "Trace Capture Filter", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            newFilter.setIoOnly(ioOnlyCheckBox.isSelected());
+            filter = newFilter;
+            applyListener.accept(filter);
+            dialog.setVisible(false);
+        });
+
+        buttonsContainer.add(applyButton);
+        buttonsContainer.add(cancelButton);
+
+        contents.add(settingsContainer, BorderLayout.PAGE_START);
+        contents.add(buttonsContainer, BorderLayout.PAGE_END);
+
+        dialog.pack();
+    }
+
+    private void addRow(JPanel container, GridBagConstraints constraints, int row, String label, JComponent field) {
+        constraints.gridy = row;
+        constraints.gridx = 0;
+        container.add(new JLabel(label), constraints);
+        constraints.gridx = 1;
+        container.add(field, constraints);
+    }
+
+    /**
+     * Show the settings of the current filter.
+     */
+    public void updateUi() {
+        fromAddressField.setText(String.format("%04x", filter.getFromAddress()));
+        toAddressField.setText(String.format("%04x", filter.getToAddress()));
+        opcodesField.setText(filter.getOpcodes());
+        ioOnlyCheckBox.setSelected(filter.isIoOnly());
+    }
+}
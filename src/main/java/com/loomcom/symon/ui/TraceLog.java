@@ -1,6 +1,5 @@
 /*
  * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
- *                         Maik Merten <maikmerten@googlemail.com>
  *
  * Permission is hereby granted, free of charge, to any person obtaining
  * a copy of this software and associated documentation files (the
@@ -24,27 +23,57 @@
 
 package com.loomcom.symon.ui;
 
+import com.loomcom.symon.Cpu;
 import com.loomcom.symon.CpuState;
-import com.loomcom.symon.util.FifoRingBuffer;
+import com.loomcom.symon.InstructionTable;
+import com.loomcom.symon.SymbolTable;
+import com.loomcom.symon.TraceBuffer;
+import com.loomcom.symon.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import javax.swing.table.AbstractTableModel;
 import java.awt.*;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
 
 /**
- * This frame displays a trace of CPU execution. The most recent <code>TRACE_LENGTH</code> lines
- * are captured in a buffer and rendered to the JFrame's main text area upon request.
+ * This frame displays a trace of CPU execution. The most recent <code>MAX_LOG_LENGTH</code>
+ * instructions are captured in a buffer, and the rows of the table are formatted from it
+ * only as they are scrolled into view.
+ * <p>
+ * The log can be searched or filtered by address, address range or mnemonic. Searching
+ * and filtering run over the raw trace records on a background thread.
  */
 public class TraceLog extends JFrame {
 
-    private final FifoRingBuffer<CpuState> traceLog;
-    private final JTextArea                    traceLogTextArea;
+    private static final Logger logger = LoggerFactory.getLogger(TraceLog.class);
+
+    private final TraceBuffer     traceLog;
+    private final TraceTableModel traceTableModel;
+    private final JTable          traceTable;
+    private final JTextField      queryTextField;
+    private final JLabel          statusLabel;
+
+    // The current filter, or null to show every instruction.
+    private TraceQuery filter;
+    private SwingWorker<?, ?> searchWorker;
 
     private static final Dimension MIN_SIZE       = new Dimension(320, 200);
     private static final Dimension PREFERRED_SIZE = new Dimension(640, 480);
     private static final int       MAX_LOG_LENGTH = 50000;
 
+    private static final String[] COLUMN_NAMES = {"Addr", "Bytes", "Instruction", "A", "X", "Y", "F", "S", "Flags"};
+    private static final int[]    COLUMN_WIDTHS = {48, 72, 160, 24, 24, 24, 24, 32, 88};
+
     public TraceLog() {
-        traceLog = new FifoRingBuffer<>(MAX_LOG_LENGTH);
+        traceLog = new TraceBuffer(MAX_LOG_LENGTH);
+        traceTableModel = new TraceTableModel(traceLog);
         setMinimumSize(MIN_SIZE);
         setPreferredSize(PREFERRED_SIZE);
         setResizable(true);
@@ -52,32 +81,64 @@ public class TraceLog extends JFrame {
 
         setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
 
-        traceLogTextArea = new JTextArea();
-        traceLogTextArea.setFont(new Font(Font.MONOSPACED, Font.BOLD, 12));
-        traceLogTextArea.setEditable(false);
+        traceTable = new JTable(traceTableModel);
+        traceTable.setFont(new Font(Font.MONOSPACED, Font.BOLD, 12));
+        traceTable.setRowHeight(traceTable.getFontMetrics(traceTable.getFont()).getHeight());
+        traceTable.setShowGrid(false);
+        traceTable.setIntercellSpacing(new Dimension(0, 0));
+        traceTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        traceTable.getTableHeader().setReorderingAllowed(false);
+        for (int i = 0; i < COLUMN_WIDTHS.length; i++) {
+            traceTable.getColumnModel().getColumn(i).setPreferredWidth(COLUMN_WIDTHS[i]);
+        }
+
+        // Turn off tool-tips for the table.
+        ToolTipManager.sharedInstance().unregisterComponent(traceTable);
+        ToolTipManager.sharedInstance().unregisterComponent(traceTable.getTableHeader());
+
+        queryTextField = new JTextField(12);
+        queryTextField.setToolTipText("Address ($C000), range ($C000-$C0FF) or mnemonic (JSR), comma separated");
+        JButton findButton = new JButton("Find");
+        JButton filterButton = new JButton("Filter");
+        JButton showAllButton = new JButton("Show All");
+        statusLabel = new JLabel(" ");
+
+        findButton.addActionListener(e -> find());
+        queryTextField.addActionListener(e -> find());
+        filterButton.addActionListener(e -> applyFilter(TraceQuery.parse(queryTextField.getText())));
+        showAllButton.addActionListener(e -> applyFilter(null));
 
-        JScrollPane scrollableView = new JScrollPane(traceLogTextArea);
+        JPanel controlPanel = new JPanel();
+        controlPanel.add(queryTextField);
+        controlPanel.add(findButton);
+        controlPanel.add(filterButton);
+        controlPanel.add(showAllButton);
 
-        getContentPane().add(scrollableView);
+        JPanel statusPanel = new JPanel(new BorderLayout());
+        statusPanel.setBorder(new EmptyBorder(2, 10, 2, 10));
+        statusPanel.add(statusLabel, BorderLayout.CENTER);
+
+        JScrollPane scrollableView = new JScrollPane(traceTable);
+
+        getContentPane().add(controlPanel, BorderLayout.NORTH);
+        getContentPane().add(scrollableView, BorderLayout.CENTER);
+        getContentPane().add(statusPanel, BorderLayout.SOUTH);
         pack();
     }
 
     /**
-     * Redraw the display with the most recent <code>MAX_LOG_LENGTH</code>
-     * trace events. <strong>CAUTION</strong>: This can be a very expensive
-     * call.
+     * Update the display with the most recent <code>MAX_LOG_LENGTH</code>
+     * trace events and scroll to the newest one. Only the visible rows are
+     * formatted, so this is cheap; if a filter is active, it is re-run in
+     * the background.
      */
     public void refresh() {
-        StringBuilder logString = new StringBuilder();        
-        
-        synchronized(traceLog) {
-            for (CpuState state : traceLog) {
-                logString.append(state.toTraceEvent());
-            }
-        }
-
-        synchronized(traceLogTextArea) {
-            traceLogTextArea.setText(logString.toString());
+        traceTableModel.snapshot();
+        if (filter != null) {
+            applyFilter(filter);
+        } else {
+            updateStatus();
+            scrollToRow(traceTableModel.getRowCount() - 1);
         }
     }
 
@@ -85,36 +146,351 @@ public class TraceLog extends JFrame {
      * Reset the log area.
      */
     public void reset() {
-        synchronized(traceLog) {
-            traceLog.reset();
-        }
-        synchronized(traceLogTextArea) {
-            traceLogTextArea.setText("");
-            traceLogTextArea.setEnabled(true);
-        }
+        cancelSearch();
+        traceLog.reset();
+        traceTableModel.setRows(null, 0);
+        traceTableModel.snapshot();
+        traceTable.setEnabled(true);
+        updateStatus();
     }
 
     /**
-     * Append a CPU State to the trace log.
+     * Append a CPU State to the trace log. The state is copied, so the
+     * caller may continue to modify it.
      *
      * @param state The CPU State to append.
      */
     public void append(CpuState state) {
-        synchronized(traceLog) {
-            traceLog.push(new CpuState(state));
-        }
+        traceLog.record(state);
+    }
+
+    /**
+     * @return The buffer the trace is recorded into.
+     */
+    public TraceBuffer getTraceBuffer() {
+        return traceLog;
+    }
+
+    /**
+     * Set the labels shown in place of addresses in the disassembly.
+     */
+    public void setSymbolTable(SymbolTable symbolTable) {
+        traceTableModel.symbolTable = symbolTable;
+        traceTableModel.fireTableDataChanged();
     }
 
     public void simulatorDidStart() {
-        traceLogTextArea.setEnabled(false);
+        traceTable.setEnabled(false);
     }
 
     public void simulatorDidStop() {
-        traceLogTextArea.setEnabled(true);
+        traceTable.setEnabled(true);
     }
 
     public boolean shouldUpdate() {
-        return isVisible() && traceLogTextArea.isEnabled();
+        return isVisible() && traceTable.isEnabled();
+    }
+
+    /**
+     * Show only the instructions matching a query, or all of them if the
+     * query is null. Matching rows are collected on a background thread.
+     */
+    private void applyFilter(TraceQuery query) {
+        cancelSearch();
+        filter = query;
+
+        if (query == null) {
+            traceTableModel.setRows(null, 0);
+            updateStatus();
+            scrollToRow(traceTableModel.getRowCount() - 1);
+            return;
+        }
+
+        final long first = traceLog.getFirst();
+        final long end = traceLog.getCount();
+        statusLabel.setText("Filtering...");
+
+        SwingWorker<long[], Void> worker = new SwingWorker<long[], Void>() {
+            private int count = 0;
+
+            @Override
+            protected long[] doInBackground() {
+                long[] matches = new long[1024];
+                for (long i = first; i < end && !isCancelled(); i++) {
+                    if (query.matches(traceLog, i)) {
+                        if (count == matches.length) {
+                            matches = Arrays.copyOf(matches, count * 2);
+                        }
+                        matches[count++] = i;
+                    }
+                }
+                return matches;
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    traceTableModel.setRows(get(), count);
+                    updateStatus();
+                    scrollToRow(traceTableModel.getRowCount() - 1);
+                } catch (InterruptedException | ExecutionException ex) {
+                    logger.error("Could not filter trace log", ex);
+                }
+            }
+        };
+        searchWorker = worker;
+        worker.execute();
+    }
+
+    /**
+     * Select the next instruction after the current selection that matches
+     * the query, wrapping around at the end. The search runs on a
+     * background thread.
+     */
+    private void find() {
+        final TraceQuery query = TraceQuery.parse(queryTextField.getText());
+        if (query == null || traceTableModel.getRowCount() == 0) {
+            return;
+        }
+
+        cancelSearch();
+
+        final int rowCount = traceTableModel.getRowCount();
+        final int start = traceTable.getSelectedRow() + 1;
+        final long[] rowIndexes = new long[rowCount];
+        for (int row = 0; row < rowCount; row++) {
+            rowIndexes[row] = traceTableModel.indexOf(row);
+        }
+        statusLabel.setText("Searching...");
+
+        SwingWorker<Integer, Void> worker = new SwingWorker<Integer, Void>() {
+            @Override
+            protected Integer doInBackground() {
+                for (int n = 0; n < rowCount && !isCancelled(); n++) {
+                    int row = (start + n) % rowCount;
+                    if (query.matches(traceLog, rowIndexes[row])) {
+                        return row;
+                    }
+                }
+                return -1;
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return;
+                }
+                try {
+                    int row = get();
+                    updateStatus();
+                    if (row < 0) {
+                        statusLabel.setText("Not found.");
+                    } else {
+                        traceTable.setRowSelectionInterval(row, row);
+                        scrollToRow(row);
+                    }
+                } catch (InterruptedException | ExecutionException ex) {
+                    logger.error("Could not search trace log", ex);
+                }
+            }
+        };
+        searchWorker = worker;
+        worker.execute();
+    }
+
+    private void cancelSearch() {
+        if (searchWorker != null) {
+            searchWorker.cancel(true);
+            searchWorker = null;
+        }
     }
 
+    private void scrollToRow(int row) {
+        if (row >= 0) {
+            traceTable.scrollRectToVisible(traceTable.getCellRect(row, 0, true));
+        }
+    }
+
+    private void updateStatus() {
+        if (filter == null) {
+            statusLabel.setText(traceTableModel.getRowCount() + " instructions");
+        } else {
+            statusLabel.setText(traceTableModel.getRowCount() + " of " + traceLog.size() + " instructions match");
+        }
+    }
+
+    /**
+     * A search or filter over raw trace records: a comma separated list of
+     * addresses (<code>$C000</code>), address ranges (<code>$C000-$C0FF</code>)
+     * and mnemonics (<code>JSR</code>). A record matches if any term does.
+     */
+    static class TraceQuery {
+        private final boolean[] opcodes = new boolean[256];
+        private final List<int[]> ranges = new ArrayList<>();
+
+        /**
+         * @param text The query text.
+         * @return The parsed query, or null if the text is empty or invalid.
+         */
+        static TraceQuery parse(String text) {
+            if (text == null || text.trim().isEmpty()) {
+                return null;
+            }
+
+            TraceQuery query = new TraceQuery();
+            for (String term : text.split(",")) {
+                term = term.trim().toUpperCase(Locale.ENGLISH);
+                if (term.isEmpty()) {
+                    continue;
+                }
+
+                boolean isMnemonic = false;
+                for (int op = 0; op < 256; op++) {
+                    if (term.equals(InstructionTable.opcodeNames[op])) {
+                        query.opcodes[op] = true;
+                        isMnemonic = true;
+                    }
+                }
+                if (isMnemonic) {
+                    continue;
+                }
+
+                try {
+                    String[] bounds = term.split("-", 2);
+                    int from = parseAddress(bounds[0]);
+                    int to = bounds.length > 1 ? parseAddress(bounds[1]) : from;
+                    query.ranges.add(new int[] {Math.min(from, to), Math.max(from, to)});
+                } catch (NumberFormatException ex) {
+                    logger.warn("Can't parse trace query term {}", term);
+                    return null;
+                }
+            }
+            return query;
+        }
+
+        private static int parseAddress(String text) {
+            text = text.trim();
+            if (text.startsWith("$")) {
+                text = text.substring(1);
+            }
+            return Integer.parseInt(text, 16) & 0xffff;
+        }
+
+        boolean matches(TraceBuffer buffer, long index) {
+            if (opcodes[buffer.getIr(index)]) {
+                return true;
+            }
+            int pc = buffer.getPc(index);
+            for (int[] range : ranges) {
+                if (pc >= range[0] && pc <= range[1]) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * The model that backs the trace table. Cells are formatted from the
+     * trace buffer on demand, so only visible rows cost anything.
+     */
+    private static class TraceTableModel extends AbstractTableModel {
+
+        private final TraceBuffer buffer;
+        private final CpuState state = new CpuState();
+
+        private SymbolTable symbolTable;
+
+        // The window of the trace buffer being shown
+        private long first = 0;
+        private long end = 0;
+
+        // If filtered, the sequence numbers of the rows being shown
+        private long[] rows = null;
+        private int rowCount = 0;
+
+        TraceTableModel(TraceBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        /**
+         * Take a new view of the trace buffer's contents.
+         */
+        void snapshot() {
+            first = buffer.getFirst();
+            end = buffer.getCount();
+            fireTableDataChanged();
+        }
+
+        void setRows(long[] rows, int rowCount) {
+            this.rows = rows;
+            this.rowCount = rowCount;
+            fireTableDataChanged();
+        }
+
+        long indexOf(int row) {
+            return rows == null ? first + row : rows[row];
+        }
+
+        public int getRowCount() {
+            return rows == null ? (int) (end - first) : rowCount;
+        }
+
+        public int getColumnCount() {
+            return COLUMN_NAMES.length;
+        }
+
+        @Override
+        public String getColumnName(int column) {
+            return COLUMN_NAMES[column];
+        }
+
+        @Override
+        public Class<?> getColumnClass(int column) {
+            return String.class;
+        }
+
+        public Object getValueAt(int row, int column) {
+            long index = indexOf(row);
+            if (!buffer.isRetained(index)) {
+                return "";
+            }
+
+            buffer.copyTo(index, state);
+
+            switch (column) {
+                case 0:
+                    return Utils.wordToHex(state.lastPc);
+                case 1:
+                    switch (Cpu.instructionSizes[state.ir]) {
+                        case 2:
+                            return Utils.byteToHex(state.ir) + " " + Utils.byteToHex(state.args[0]);
+                        case 3:
+                            return Utils.byteToHex(state.ir) + " " + Utils.byteToHex(state.args[0]) + " " +
+                                   Utils.byteToHex(state.args[1]);
+                        default:
+                            return Utils.byteToHex(state.ir);
+                    }
+                case 2:
+                    return Cpu.disassembleOp(state.lastPc, state.ir, state.args, symbolTable);
+                case 3:
+                    return Utils.byteToHex(state.a);
+                case 4:
+                    return Utils.byteToHex(state.x);
+                case 5:
+                    return Utils.byteToHex(state.y);
+                case 6:
+                    return Utils.byteToHex(state.getStatusFlag());
+                case 7:
+                    return "1" + Utils.byteToHex(state.sp);
+                case 8:
+                    return state.getProcessorStatusString();
+                default:
+                    return null;
+            }
+        }
+    }
 }
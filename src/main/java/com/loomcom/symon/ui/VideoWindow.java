@@ -29,9 +29,6 @@ import com.loomcom.symon.exceptions.MemoryAccessException;
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
-import java.io.BufferedInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
@@ -40,17 +37,15 @@ import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
-import static java.lang.System.*;
-
 /**
  * VideoWindow represents a graphics framebuffer backed by a 6545 CRTC.
- * Each time the window's VideoPanel is repainted, the video memory is
- * scanned and converted to the appropriate bitmap representation.
+ * Each time the window's VideoPanel is repainted, a {@link CrtcRenderer}
+ * redraws the cells of video memory that have changed since the last
+ * frame.
  * <p>
  * The graphical representation of each character is derived from a
- * character generator ROM image. For this simulation, the Commodore PET
- * character generator ROM was chosen, but any character generator ROM
- * could be used in its place.
+ * character generator ROM image, decoded once into a {@link GlyphAtlas}.
+ * Any of the character ROMs in the resources may be used.
  * <p>
  * It may be convenient to think of this as the View (in the MVC
  * pattern sense) to the Crtc's Model and Controller. Whenever the CRTC
@@ -62,21 +57,17 @@ public class VideoWindow extends JFrame implements DeviceChangeListener {
     private static final Logger logger = Logger.getLogger(VideoWindow.class.getName());
 
     private static final long WINDOW_REPAINT_INTERVAL = 66; // 30fps rate
-    private static final int CHAR_WIDTH = 8;
-    private static final int CHAR_HEIGHT = 8;
-    private static final String ASCII_ROM = "/ascii.rom";
 
     private final int scaleX, scaleY;
     private final boolean shouldScale;
 
-    private BufferedImage image;
-    private final int[] charRom;
+    private final CrtcRenderer renderer;
 
     private int horizontalDisplayed;
     private int verticalDisplayed;
     private int scanLinesPerRow;
     private int cursorBlinkRate;
-    private boolean hideCursor;
+    private volatile boolean hideCursor;
 
     private Dimension dimensions;
     private final Crtc crtc;
@@ -91,19 +82,14 @@ public class VideoWindow extends JFrame implements DeviceChangeListener {
         @Override
         public void paintComponent(Graphics g) {
             try {
-                for (int i = 0; i < crtc.getPageSize(); i++) {
-                    int address = crtc.getStartAddress() + i;
-                    int originX = (i % horizontalDisplayed) * CHAR_WIDTH;
-                    int originY = (i / horizontalDisplayed) * scanLinesPerRow;
-                    image.getRaster().setPixels(originX, originY, CHAR_WIDTH, scanLinesPerRow, getGlyph(address));
-                }
+                renderer.render(hideCursor);
                 Graphics2D g2d = (Graphics2D) g;
                 if (shouldScale) {
                     g2d.scale(scaleX, scaleY);
                 }
-                g2d.drawImage(image, 0, 0, null);
-            } catch (MemoryAccessException ex) {
-                logger.log(Level.SEVERE, "Memory Access Exception, can't paint video window! " + ex.getMessage());
+                g2d.drawImage(renderer.getImage(), 0, 0, null);
+            } catch (MemoryAccessException | IOException ex) {
+                logger.log(Level.SEVERE, "Can't paint video window! " + ex.getMessage());
             }
         }
 
@@ -132,22 +118,33 @@ public class VideoWindow extends JFrame implements DeviceChangeListener {
         }
     }
 
+    /**
+     * Runnable task that repaints the window, but only when video memory,
+     * the cursor, or the CRTC's registers have changed since the last
+     * frame. The check is cheap, so an idle screen costs almost nothing.
+     */
     private class WindowPainter implements Runnable {
         public void run() {
-            SwingUtilities.invokeLater(() -> {
-                if (VideoWindow.this.isVisible()) {
-                    VideoWindow.this.repaint();
-                }
-            });
+            if (VideoWindow.this.isVisible() && renderer.isDirty(hideCursor)) {
+                SwingUtilities.invokeLater(VideoWindow.this::repaint);
+            }
         }
     }
 
     public VideoWindow(Crtc crtc, int scaleX, int scaleY) throws IOException {
+        this(crtc, scaleX, scaleY, GlyphAtlas.ASCII_ROM);
+    }
+
+    /**
+     * @param romResource The character ROM resource to draw with, such as
+     *                    {@link GlyphAtlas#PET_ROM}.
+     */
+    public VideoWindow(Crtc crtc, int scaleX, int scaleY, String romResource) throws IOException {
         crtc.registerListener(this);
 
         this.scheduler = Executors.newSingleThreadScheduledExecutor();
         this.crtc = crtc;
-        this.charRom = loadCharRom();
+        this.renderer = new CrtcRenderer(crtc, romResource);
         this.scaleX = scaleX;
         this.scaleY = scaleY;
         this.shouldScale = (scaleX > 1 || scaleY > 1);
@@ -244,82 +241,9 @@ public class VideoWindow extends JFrame implements DeviceChangeListener {
         pack();
     }
 
-    /**
-     * Returns an array of pixels (including extra scanlines, if any) corresponding to the
-     * Character ROM plus cursor overlay (if any). The cursor overlay simulates an XOR
-     * of the Character Rom output and the 6545 Cursor output.
-     *
-     * @param address The address of the character being requested.
-     * @return An array of integers representing the pixel data.
-     */
-    private int[] getGlyph(int address) throws MemoryAccessException {
-        int chr = crtc.getCharAtAddress(address);
-        int romOffset = (chr & 0xff) * (CHAR_HEIGHT * CHAR_WIDTH);
-        int[] glyph = new int[CHAR_WIDTH * scanLinesPerRow];
-
-        // Populate the character
-        arraycopy(charRom, romOffset, glyph, 0, CHAR_WIDTH * Math.min(CHAR_HEIGHT, scanLinesPerRow));
-
-        // Overlay the cursor
-        if (!hideCursor && crtc.isCursorEnabled() && crtc.getCursorPosition() == address) {
-            int cursorStart = Math.min(glyph.length, crtc.getCursorStartLine() * CHAR_WIDTH);
-            int cursorStop = Math.min(glyph.length, (crtc.getCursorStopLine() + 1) * CHAR_WIDTH);
-
-            for (int i = cursorStart; i < cursorStop; i++) {
-                glyph[i] ^= 0xff;
-            }
-        }
-
-        return glyph;
-    }
-
     private void buildImage() {
-        int rasterWidth = CHAR_WIDTH * horizontalDisplayed;
+        int rasterWidth = GlyphAtlas.CHAR_WIDTH * horizontalDisplayed;
         int rasterHeight = scanLinesPerRow * verticalDisplayed;
-        this.image = new BufferedImage(rasterWidth, rasterHeight, BufferedImage.TYPE_BYTE_BINARY);
         this.dimensions = new Dimension(rasterWidth * scaleX, rasterHeight * scaleY);
     }
-
-    /**
-     * Load a Character ROM file and convert it into an array of pixel data usable
-     * by the underlying BufferedImage's Raster.
-     * <p>
-     * Since the BufferedImage is a TYPE_BYTE_BINARY, the data must be converted
-     * into a single byte per pixel, 0 for black and 255 for white.
-
-     * @return An array of glyphs, each ready for insertion.
-     * @throws IOException Failure to load character ROM.
-     */
-    private int[] loadCharRom() throws IOException {
-        var resource = this.getClass().getResourceAsStream(ASCII_ROM);
-
-        if (resource == null) {
-            throw new IOException("Resource " + ASCII_ROM + " not found");
-        }
-
-        try (BufferedInputStream bis = new BufferedInputStream(resource)) {
-            ByteArrayOutputStream bos = new ByteArrayOutputStream();
-            while (bis.available() > 0) {
-                bos.write(bis.read());
-            }
-            bos.flush();
-            bos.close();
-
-            byte[] raw = bos.toByteArray();
-
-            // Now convert the raw ROM image into a format suitable for
-            // insertion directly into the BufferedImage.
-            int[] converted = new int[raw.length * CHAR_WIDTH];
-
-            int romIndex = 0;
-            for (int i = 0; i < converted.length; ) {
-                byte charRow = raw[romIndex++];
-
-                for (int j = 7; j >= 0; j--) {
-                    converted[i++] = ((charRow & (1 << j)) == 0) ? 0 : 0xff;
-                }
-            }
-            return converted;
-        }
-    }
 }
@@ -0,0 +1,165 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon.ui;
+
+import com.loomcom.symon.Watchpoints;
+import com.loomcom.symon.util.Utils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.swing.*;
+import javax.swing.border.EmptyBorder;
+import java.awt.*;
+import java.awt.event.ActionListener;
+
+/**
+ * Simple window to enter data watchpoints, which halt the simulator when
+ * a range of addresses is read, written, or changed.
+ */
+public class WatchpointsWindow extends JFrame {
+
+    private static final Logger logger = LoggerFactory.getLogger(WatchpointsWindow.class);
+
+    private static final Dimension FRAME_SIZE = new Dimension(360, 300);
+    private static final String EMPTY_STRING = "";
+
+    private final JFrame mainWindow;
+    private final Watchpoints watchpoints;
+    private JLabel hitLabel;
+
+    public WatchpointsWindow(Watchpoints watchpoints,
+                             JFrame mainWindow) {
+        this.watchpoints = watchpoints;
+        this.mainWindow = mainWindow;
+        createUi();
+    }
+
+    /**
+     * Show the watched access that halted the simulator.
+     */
+    public void showHit(Watchpoints.Hit hit) {
+        hitLabel.setText(hit == null ? " " : hit.toString());
+    }
+
+    private void createUi() {
+        setTitle("Watchpoints");
+
+        JPanel watchpointsPanel = new JPanel();
+        JPanel controlPanel = new JPanel();
+
+        watchpointsPanel.setLayout(new BorderLayout());
+        watchpointsPanel.setBorder(new EmptyBorder(10, 10, 10, 10));
+
+        final JButton addButton = new JButton("Add");
+        final JButton removeButton = new JButton("Del");
+        removeButton.setEnabled(false);
+
+        final JTextField startTextField = new JTextField(4);
+        final JTextField endTextField = new JTextField(4);
+        endTextField.setToolTipText("Last address watched (default is the first)");
+        final JCheckBox readCheckBox = new JCheckBox("R");
+        readCheckBox.setToolTipText("Halt when the CPU reads");
+        final JCheckBox writeCheckBox = new JCheckBox("W", true);
+        writeCheckBox.setToolTipText("Halt when the CPU writes");
+        final JCheckBox changeCheckBox = new JCheckBox("C");
+        changeCheckBox.setToolTipText("Halt when the CPU writes a different value");
+
+        final JTable watchpointsTable = new JTable(watchpoints);
+        watchpointsTable.setShowGrid(true);
+        watchpointsTable.setGridColor(Color.LIGHT_GRAY);
+        watchpointsTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        watchpointsTable.getSelectionModel().addListSelectionListener(e -> removeButton.setEnabled(e.getFirstIndex() > -1));
+
+        JScrollPane scrollPane = new JScrollPane(watchpointsTable);
+        scrollPane.setHorizontalScrollBarPolicy(ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+        scrollPane.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS);
+
+        hitLabel = new JLabel(" ");
+        hitLabel.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        watchpointsPanel.add(scrollPane, BorderLayout.CENTER);
+        watchpointsPanel.add(hitLabel, BorderLayout.SOUTH);
+
+        ActionListener addWatchpointListener = e -> {
+            int start;
+            int end;
+
+            String startText = startTextField.getText();
+
+            if (startText == null || startText.isEmpty()) {
+                return;
+            }
+
+            try {
+                start = Integer.parseInt(startText, 16) & 0xffff;
+                String endText = endTextField.getText();
+                end = endText == null || endText.isEmpty() ? start : Integer.parseInt(endText, 16) & 0xffff;
+            } catch (NumberFormatException ex) {
+                logger.warn("Can't parse watchpoint address {}", ex.getMessage());
+                return;
+            }
+
+            int kinds = (readCheckBox.isSelected() ? Watchpoints.READ : 0) |
+                        (writeCheckBox.isSelected() ? Watchpoints.WRITE : 0) |
+                        (changeCheckBox.isSelected() ? Watchpoints.CHANGE : 0);
+            if (kinds == 0) {
+                return;
+            }
+
+            watchpoints.addWatchpoint(new Watchpoints.Watchpoint(start, end, kinds));
+
+            logger.debug("Added watchpoint ${}-${}", Utils.wordToHex(start), Utils.wordToHex(end));
+
+            startTextField.setText(EMPTY_STRING);
+            endTextField.setText(EMPTY_STRING);
+        };
+
+        addButton.addActionListener(addWatchpointListener);
+        startTextField.addActionListener(addWatchpointListener);
+        endTextField.addActionListener(addWatchpointListener);
+
+        removeButton.addActionListener(e -> watchpoints.removeWatchpointAtIndex(watchpointsTable.getSelectedRow()));
+
+        controlPanel.add(startTextField);
+        controlPanel.add(new JLabel("-"));
+        controlPanel.add(endTextField);
+        controlPanel.add(readCheckBox);
+        controlPanel.add(writeCheckBox);
+        controlPanel.add(changeCheckBox);
+        controlPanel.add(addButton);
+        controlPanel.add(removeButton);
+
+        setLayout(new BorderLayout());
+        getContentPane().add(watchpointsPanel, BorderLayout.CENTER);
+        getContentPane().add(controlPanel, BorderLayout.SOUTH);
+
+        setMinimumSize(FRAME_SIZE);
+        setPreferredSize(FRAME_SIZE);
+
+        setLocationRelativeTo(mainWindow);
+        setResizable(false);
+
+        pack();
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2008-2025 Seth J. Morabito <web@loomcom.com>
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining
+ * a copy of this software and associated documentation files (the
+ * "Software"), to deal in the Software without restriction, including
+ * without limitation the rights to use, copy, modify, merge, publish,
+ * distribute, sublicense, and/or sell copies of the Software, and to
+ * permit persons to whom the Software is furnished to do so, subject to
+ * the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be
+ * included in all copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND,
+ * EXPRESS OR IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF
+ * MERCHANTABILITY, FITNESS FOR A PARTICULAR PURPOSE AND
+ * NONINFRINGEMENT. IN NO EVENT SHALL THE AUTHORS OR COPYRIGHT HOLDERS BE
+ * LIABLE FOR ANY CLAIM, DAMAGES OR OTHER LIABILITY, WHETHER IN AN ACTION
+ * OF CONTRACT, TORT OR OTHERWISE, ARISING FROM, OUT OF OR IN CONNECTION
+ * WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE SOFTWARE.
+ */
+
+package com.loomcom.symon.util;
+
+import com.loomcom.symon.exceptions.FifoUnderrunException;
+
+/**
+ * A fixed-capacity, array-backed FIFO of char values, safe for exactly one
+ * producer thread and one consumer thread without locking.
+ * <p>
+ * The producer only ever writes <code>tail</code>, and the consumer only
+ * ever writes <code>head</code>. Both are volatile, so an element stored
+ * before <code>tail</code> is advanced is visible to the consumer once it
+ * sees the new <code>tail</code>. Neither side allocates.
+ * <p>
+ * A full buffer refuses new elements rather than evicting the oldest,
+ * since the producer may not move <code>head</code>.
+ */
+public class CharRingBuffer {
+
+    private final char[] buffer;
+    private final int mask;
+
+    // Index of the next element to pop. Only written by the consumer.
+    private volatile int head = 0;
+    // Index of the next free slot. Only written by the producer.
+    private volatile int tail = 0;
+
+    /**
+     * @param capacity The minimum capacity. It is rounded up to the next
+     *                 power of two.
+     */
+    public CharRingBuffer(int capacity) {
+        int size = 1;
+        while (size < capacity) {
+            size <<= 1;
+        }
+        this.buffer = new char[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Append an element. Producer only.
+     *
+     * @param val The element to append.
+     * @return false if the buffer was full and the element was dropped.
+     */
+    public boolean push(char val) {
+        int t = tail;
+        if (t - head == buffer.length) {
+            return false;
+        }
+        buffer[t & mask] = val;
+        tail = t + 1;
+        return true;
+    }
+
+    /**
+     * Remove and return the oldest element. Consumer only.
+     *
+     * @return The oldest element.
+     * @throws FifoUnderrunException if the buffer is empty.
+     */
+    public char pop() throws FifoUnderrunException {
+        int h = head;
+        if (h == tail) {
+            throw new FifoUnderrunException("Ring buffer is empty.");
+        }
+        char val = buffer[h & mask];
+        head = h + 1;
+        return val;
+    }
+
+    /**
+     * Return the oldest element without removing it. Consumer only.
+     *
+     * @return The oldest element.
+     * @throws FifoUnderrunException if the buffer is empty.
+     */
+    public char peek() throws FifoUnderrunException {
+        int h = head;
+        if (h == tail) {
+            throw new FifoUnderrunException("Ring buffer is empty.");
+        }
+        return buffer[h & mask];
+    }
+
+    /**
+     * Remove up to <code>dest.length</code> of the oldest elements at once.
+     * Consumer only.
+     *
+     * @param dest The array to copy the elements into, oldest first.
+     * @return The number of elements removed, which is 0 if the buffer
+     * was empty.
+     */
+    public int drain(char[] dest) {
+        int h = head;
+        int count = Math.min(tail - h, dest.length);
+        for (int i = 0; i < count; i++) {
+            dest[i] = buffer[(h + i) & mask];
+        }
+        head = h + count;
+        return count;
+    }
+
+    /**
+     * Discard every element. Consumer only.
+     */
+    public void reset() {
+        head = tail;
+    }
+
+    public boolean isEmpty() {
+        return head == tail;
+    }
+
+    public boolean isFull() {
+        return tail - head == buffer.length;
+    }
+
+    public int length() {
+        return tail - head;
+    }
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    public String toString() {
+        return "[CharRingBuffer: size=" + length() + "]";
+    }
+}
@@ -0,0 +1,131 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Memory;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class BreakpointsTest {
+
+    private Bus bus;
+    private CpuState state;
+    private Breakpoints breakpoints;
+
+    @Before
+    public void setUp() throws Exception {
+        bus = new Bus(0x0000, 0xffff);
+        bus.addDevice(new Memory(0x0000, 0xffff));
+        state = new CpuState();
+        breakpoints = new Breakpoints(null);
+    }
+
+    private boolean test(String condition) {
+        return BreakpointCondition.parse(condition).test(state, bus);
+    }
+
+    @Test
+    public void testUnconditionalBreakpoint() {
+        breakpoints.addBreakpoint(0xc000);
+
+        assertTrue(breakpoints.contains(0xc000));
+        assertFalse(breakpoints.contains(0xc001));
+
+        state.pc = 0xc001;
+        assertFalse(breakpoints.shouldBreak(state, bus));
+        state.pc = 0xc000;
+        assertTrue(breakpoints.shouldBreak(state, bus));
+        assertTrue(breakpoints.shouldBreak(state, bus));
+        assertEquals(1, breakpoints.getRowCount());
+
+        breakpoints.removeBreakpointAtIndex(0);
+        assertFalse(breakpoints.contains(0xc000));
+        assertFalse(breakpoints.shouldBreak(state, bus));
+        assertEquals(0, breakpoints.getRowCount());
+    }
+
+    @Test
+    public void testRowsAreInAddressOrder() {
+        breakpoints.addBreakpoint(0xc000);
+        breakpoints.addBreakpoint(0x0300);
+        breakpoints.addBreakpoint(0xe000);
+        breakpoints.addBreakpoint(0x0300);
+
+        assertEquals(3, breakpoints.getRowCount());
+        assertEquals("$0300", breakpoints.getValueAt(0, 0));
+        assertEquals("$C000", breakpoints.getValueAt(1, 0));
+        assertEquals("$E000", breakpoints.getValueAt(2, 0));
+
+        breakpoints.removeBreakpointAtIndex(1);
+        assertEquals(2, breakpoints.getRowCount());
+        assertEquals("$E000", breakpoints.getValueAt(1, 0));
+        assertFalse(breakpoints.contains(0xc000));
+        assertTrue(breakpoints.contains(0xe000));
+
+        breakpoints.removeBreakpointAtIndex(5);
+        assertEquals(2, breakpoints.getRowCount());
+    }
+
+    @Test
+    public void testConditionalBreakpointWithHitCount() {
+        breakpoints.addBreakpoint(new Breakpoints.Breakpoint(0x0300, BreakpointCondition.parse("X >= 2"), 3));
+        state.pc = 0x0300;
+
+        state.x = 1;
+        assertFalse(breakpoints.shouldBreak(state, bus));
+        state.x = 2;
+        assertFalse(breakpoints.shouldBreak(state, bus));
+        state.x = 3;
+        assertFalse(breakpoints.shouldBreak(state, bus));
+        state.x = 4;
+        assertTrue(breakpoints.shouldBreak(state, bus));
+        state.x = 5;
+        assertTrue(breakpoints.shouldBreak(state, bus));
+
+        assertEquals("4/3", breakpoints.getValueAt(0, 2));
+        assertEquals("X >= 2", breakpoints.getValueAt(0, 1));
+    }
+
+    @Test
+    public void testRegistersAndFlags() {
+        state.a = 0xff;
+        state.y = 0x10;
+        state.sp = 0xfd;
+        state.carryFlag = true;
+
+        assertTrue(test("A == $FF"));
+        assertTrue(test("a == 255"));
+        assertTrue(test("Y == %00010000"));
+        assertTrue(test("SP < $FE"));
+        assertTrue(test("C"));
+        assertFalse(test("Z"));
+        assertTrue(test("P & $01"));
+        assertTrue(test("A != 0 && (Y == 0 || C == 1)"));
+        assertFalse(test("A == 0 || Y > $10"));
+        assertTrue(test("A - Y == $EF"));
+    }
+
+    @Test
+    public void testMemory() throws Exception {
+        bus.write(0x0210, 0x42);
+        state.x = 0x10;
+
+        assertTrue(test("[$0210] == $42"));
+        assertTrue(test("[$0200 + X] == $42"));
+        assertTrue(test("[$0210] & $40"));
+        assertFalse(test("[$0211]"));
+    }
+
+    @Test
+    public void testInvalidConditions() {
+        String[] invalid = {"", "A ==", "Q == 1", "A == $", "[$10", "A == 1 )"};
+        for (String condition : invalid) {
+            try {
+                BreakpointCondition.parse(condition);
+                fail("Expected '" + condition + "' to be rejected");
+            } catch (IllegalArgumentException expected) {
+                // Expected
+            }
+        }
+    }
+}
@@ -135,4 +135,36 @@ public class BusTest extends TestCase {
         assertFalse(c.getCpuState().nmiAsserted);
     }
 
+    public void testAccessCounting() throws Exception {
+        Bus b = new Bus(0x0000, 0xffff);
+        b.addDevice(new Memory(0x0000, 0xffff));
+
+        // Nothing is counted until counting is turned on
+        b.write(0x0010, 0x01);
+        assertFalse(b.isAccessCounting());
+        assertEquals(0, b.getWriteCount(0x0010));
+
+        b.setAccessCounting(true);
+        b.write(0x0010, 0x01);
+        b.write(0x0010, 0x02);
+        b.read(0x0010, true);
+        b.read(0x01ff, true);
+        b.read(0x01ff, false);
+
+        assertEquals(2, b.getWriteCount(0x0010));
+        assertEquals(1, b.getReadCount(0x0010));
+        assertEquals(1, b.getReadCount(0x01ff));
+        assertEquals(1, b.getPageReadCount(0x00));
+        assertEquals(2, b.getPageWriteCount(0x00));
+        assertEquals(1, b.getPageReadCount(0x01));
+
+        b.resetAccessCounts();
+        assertEquals(0, b.getWriteCount(0x0010));
+        assertEquals(0, b.getPageReadCount(0x01));
+
+        b.setAccessCounting(false);
+        b.read(0x0010, true);
+        assertEquals(0, b.getReadCount(0x0010));
+    }
+
 }
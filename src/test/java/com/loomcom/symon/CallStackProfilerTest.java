@@ -0,0 +1,153 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Memory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class CallStackProfilerTest {
+
+    private Cpu cpu;
+    private Bus bus;
+    private CallStackProfiler profiler;
+
+    @Before
+    public void setUp() throws Exception {
+        cpu = new Cpu();
+        bus = new Bus(0x0000, 0xffff);
+        bus.addCpu(cpu);
+        bus.addDevice(new Memory(0x0000, 0xffff));
+
+        // Programs start at $0200, IRQs go to $0500
+        bus.write(0xfffc, 0x00);
+        bus.write(0xfffd, 0x02);
+        bus.write(0xfffe, 0x00);
+        bus.write(0xffff, 0x05);
+
+        cpu.reset();
+        profiler = new CallStackProfiler(cpu);
+    }
+
+    private void step(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            cpu.step();
+            profiler.record(cpu.getCpuState());
+        }
+    }
+
+    private void write(int address, int... bytes) throws Exception {
+        for (int b : bytes) {
+            bus.write(address++, b);
+        }
+    }
+
+    private Map<String, Long> stacks() throws Exception {
+        StringWriter out = new StringWriter();
+        profiler.writeCollapsedStacks(out);
+        Map<String, Long> stacks = new HashMap<>();
+        for (String line : out.toString().split("\n")) {
+            int space = line.lastIndexOf(' ');
+            stacks.put(line.substring(0, space), Long.parseLong(line.substring(space + 1)));
+        }
+        return stacks;
+    }
+
+    private int clocks(int opcode) {
+        return cpu.getInstructionClocks(opcode);
+    }
+
+    @Test
+    public void chargesCyclesToNestedSubroutines() throws Exception {
+        // JSR $0300; JSR $0300; NOP
+        write(0x0200, 0x20, 0x00, 0x03, 0x20, 0x00, 0x03, 0xea);
+        // JSR $0400; RTS
+        write(0x0300, 0x20, 0x00, 0x04, 0x60);
+        // NOP; RTS
+        write(0x0400, 0xea, 0x60);
+
+        step(11);
+
+        Map<String, Long> stacks = stacks();
+        assertEquals(3, stacks.size());
+        assertEquals(2L * clocks(0x20) + clocks(0xea), (long) stacks.get("$0200"));
+        assertEquals(2L * (clocks(0x20) + clocks(0x60)), (long) stacks.get("$0200;$0300"));
+        assertEquals(2L * (clocks(0xea) + clocks(0x60)), (long) stacks.get("$0200;$0300;$0400"));
+        assertEquals(0, profiler.getDepth());
+    }
+
+    @Test
+    public void followsInterruptsIntoTheirOwnFrames() throws Exception {
+        // CLI; NOP; NOP
+        write(0x0200, 0x58, 0xea, 0xea);
+        // NOP; RTI
+        write(0x0500, 0xea, 0x40);
+
+        step(1);
+        cpu.assertIrq();
+        step(1);
+        assertEquals(1, profiler.getDepth());
+        step(2);
+        assertEquals(0, profiler.getDepth());
+
+        Map<String, Long> stacks = stacks();
+        assertEquals(clocks(0x58) + clocks(0xea), (long) stacks.get("$0200"));
+        assertEquals(7L + clocks(0xea) + clocks(0x40), (long) stacks.get("$0200;IRQ $0500"));
+    }
+
+    @Test
+    public void unwindsWhenTheStackIsReset() throws Exception {
+        // JSR $0300
+        write(0x0200, 0x20, 0x00, 0x03);
+        // LDX #$FF; TXS; NOP
+        write(0x0300, 0xa2, 0xff, 0x9a, 0xea);
+
+        step(2);
+        assertEquals(1, profiler.getDepth());
+        step(1);
+        assertEquals(0, profiler.getDepth());
+        step(1);
+        assertEquals(clocks(0x20) + clocks(0xea), (long) stacks().get("$0200"));
+    }
+
+    @Test
+    public void popsFramesWhenTheStackWrapsAround() throws Exception {
+        for (int sp : new int[]{0x00, 0x01}) {
+            // LDX #sp; TXS; JSR $0300; NOP
+            write(0x0200, 0xa2, sp, 0x9a, 0x20, 0x00, 0x03, 0xea);
+            // NOP; RTS
+            write(0x0300, 0xea, 0x60);
+
+            cpu.reset();
+            profiler.reset();
+            step(3);
+            assertEquals(1, profiler.getDepth());
+            step(1);
+            assertEquals(1, profiler.getDepth());
+            step(1);
+            assertEquals(0, profiler.getDepth());
+            step(1);
+
+            Map<String, Long> stacks = stacks();
+            assertEquals(clocks(0xea) + clocks(0x60), (long) stacks.get("$0200;$0300"));
+        }
+    }
+
+    @Test
+    public void startsNewRootWhenPcIsSetByHand() throws Exception {
+        write(0x0200, 0xea);
+        write(0x0600, 0xea);
+
+        step(1);
+        cpu.setProgramCounter(0x0600);
+        step(1);
+
+        Map<String, Long> stacks = stacks();
+        assertEquals(clocks(0xea), (long) stacks.get("$0200"));
+        assertEquals(clocks(0xea), (long) stacks.get("$0600"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.exceptions.FifoUnderrunException;
+import com.loomcom.symon.util.CharRingBuffer;
+import com.loomcom.symon.util.IntRingBuffer;
+import junit.framework.TestCase;
+
+public class CharRingBufferTest extends TestCase {
+    public void testCapacityShouldRoundUpToPowerOfTwo() {
+        assertEquals(128, new CharRingBuffer(128).capacity());
+        assertEquals(128, new CharRingBuffer(100).capacity());
+        assertEquals(1, new CharRingBuffer(1).capacity());
+    }
+
+    public void testRingBufferShouldRefuseNewItemsIfFull() throws Exception {
+        CharRingBuffer buffer = new CharRingBuffer(2);
+
+        assertTrue(buffer.push('a'));
+        assertTrue(buffer.push('b'));
+        assertTrue(buffer.isFull());
+        assertFalse(buffer.push('c'));
+        assertEquals(2, buffer.length());
+
+        assertEquals('a', buffer.pop());
+        assertTrue(buffer.push('d'));
+        assertEquals('b', buffer.pop());
+        assertEquals('d', buffer.pop());
+        assertTrue(buffer.isEmpty());
+    }
+
+    public void testPopShouldThrowIfEmpty() {
+        CharRingBuffer buffer = new CharRingBuffer(4);
+        try {
+            buffer.pop();
+            fail("Should have thrown FifoUnderrunException");
+        } catch (FifoUnderrunException expected) {
+            // Expected
+        }
+    }
+
+    public void testDrainShouldRemoveOldestElementsInOrder() throws Exception {
+        CharRingBuffer buffer = new CharRingBuffer(4);
+        char[] dest = new char[3];
+        assertEquals(0, buffer.drain(dest));
+
+        buffer.push('a');
+        buffer.push('b');
+        buffer.pop();
+        buffer.push('c');
+        buffer.push('d');
+        buffer.push('e');
+
+        // Wraps around the end of the array.
+        assertEquals(3, buffer.drain(dest));
+        assertEquals('b', dest[0]);
+        assertEquals('c', dest[1]);
+        assertEquals('d', dest[2]);
+        assertEquals(1, buffer.length());
+        assertEquals(1, buffer.drain(dest));
+        assertEquals('e', dest[0]);
+        assertTrue(buffer.isEmpty());
+    }
+
+    public void testResetShouldDiscardContents() {
+        CharRingBuffer buffer = new CharRingBuffer(4);
+        buffer.push('a');
+        buffer.push('b');
+        buffer.reset();
+        assertTrue(buffer.isEmpty());
+        assertEquals(0, buffer.length());
+    }
+
+    public void testShouldPassValuesInOrderBetweenTwoThreads() throws Exception {
+        final IntRingBuffer buffer = new IntRingBuffer(16);
+        final int count = 100000;
+
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < count; i++) {
+                while (!buffer.push(i)) {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+
+        for (int i = 0; i < count; i++) {
+            while (buffer.isEmpty()) {
+                Thread.yield();
+            }
+            assertEquals(i, buffer.pop());
+        }
+
+        producer.join();
+        assertTrue(buffer.isEmpty());
+    }
+}
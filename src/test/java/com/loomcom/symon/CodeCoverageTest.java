@@ -0,0 +1,138 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Memory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class CodeCoverageTest {
+
+    private static final String AS65_LISTING =
+            "AS65 Assembler for R6502 [1.42].  Copyright 1994-2007, Frank A. Kingswood\n" +
+            "0001 =                  ROM_vectors = 1\n" +
+            "0013 : c3824100         zp1     db  $c3,$82,$41,0   ;test patterns\n" +
+            "0200 :                  start\n" +
+            "0200 : a901                     lda #1\n" +
+            "0202 : d002                     bne skip\n" +
+            "0204 : 4c0402          >        jmp *           ;failed anyway\n" +
+            "0207 : ea               skip    nop\n";
+
+    private Cpu cpu;
+    private Bus bus;
+    private CodeCoverage coverage;
+
+    @Before
+    public void setUp() throws Exception {
+        cpu = new Cpu();
+        bus = new Bus(0x0000, 0xffff);
+        bus.addCpu(cpu);
+        bus.addDevice(new Memory(0x0000, 0xffff));
+
+        bus.write(0xfffc, 0x00);
+        bus.write(0xfffd, 0x02);
+
+        cpu.reset();
+        coverage = new CodeCoverage();
+    }
+
+    private void step(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            cpu.step();
+            coverage.record(cpu.getCpuState());
+        }
+    }
+
+    @Test
+    public void testRecordsOpcodeAndOperandBytes() throws Exception {
+        // LDA #$01, BNE +2, JMP $0204, NOP
+        bus.loadProgram(0xa9, 0x01, 0xd0, 0x03, 0x4c, 0x04, 0x02, 0xea);
+        step(3);
+
+        assertTrue(coverage.isExecuted(0x0200));
+        assertTrue(coverage.isExecuted(0x0201));
+        assertTrue(coverage.isExecuted(0x0202));
+        assertTrue(coverage.isExecuted(0x0203));
+        assertFalse(coverage.isExecuted(0x0204));
+        assertTrue(coverage.isExecuted(0x0207));
+        assertEquals(5, coverage.countExecuted(0x0000, 0xffff));
+
+        coverage.reset();
+        assertEquals(0, coverage.countExecuted(0x0000, 0xffff));
+    }
+
+    @Test
+    public void testReadsAs65Listing() throws Exception {
+        AssemblerListing listing = AssemblerListing.read(new StringReader(AS65_LISTING));
+
+        assertEquals(6, listing.getLines().size());
+        assertEquals(4, listing.getInstructionLineCount());
+
+        AssemblerListing.Line data = listing.getLines().get(0);
+        assertEquals(3, data.lineNumber);
+        assertEquals(0x0013, data.address);
+        assertEquals(4, data.length);
+        assertEquals("zp1", data.label);
+        assertFalse(data.instruction);
+
+        AssemblerListing.Line label = listing.getLines().get(1);
+        assertEquals("start", label.label);
+        assertEquals(0, label.length);
+        assertFalse(label.instruction);
+
+        AssemblerListing.Line macro = listing.getLines().get(4);
+        assertEquals(0x0204, macro.address);
+        assertNull(macro.label);
+        assertTrue(macro.instruction);
+
+        AssemblerListing.Line skip = listing.getLines().get(5);
+        assertEquals("skip", skip.label);
+        assertTrue(skip.instruction);
+    }
+
+    @Test
+    public void testReadsCa65Listing() throws Exception {
+        String ca65 = "ca65 V2.18 - Ubuntu 2.19-1\n" +
+                      "Main file   : hello.s\n" +
+                      "\n" +
+                      "00C000  1               reset:\n" +
+                      "00C000  1  A2 00                ldx #0\n" +
+                      "00C002  1  BD 0A C0     loop:   lda msg,x\n" +
+                      "00C005  1  48 45 4C 4C  msg:    .byte \"HELL\"\n" +
+                      "000000r 1  EA                   nop\n";
+        AssemblerListing listing = AssemblerListing.read(new StringReader(ca65));
+
+        assertEquals(4, listing.getLines().size());
+        assertEquals(2, listing.getInstructionLineCount());
+        assertEquals("reset", listing.getLines().get(0).label);
+        assertEquals(0xc002, listing.getLines().get(2).address);
+        assertEquals(3, listing.getLines().get(2).length);
+        assertEquals("loop", listing.getLines().get(2).label);
+        assertFalse(listing.getLines().get(3).instruction);
+    }
+
+    @Test
+    public void testWritesLcov() throws Exception {
+        bus.loadProgram(0xa9, 0x01, 0xd0, 0x03, 0x4c, 0x04, 0x02, 0xea);
+        step(3);
+
+        AssemblerListing listing = AssemblerListing.read(new StringReader(AS65_LISTING));
+        assertEquals(3, coverage.countCoveredLines(listing));
+
+        StringWriter out = new StringWriter();
+        coverage.writeLcov(out, listing, "test.lst");
+
+        assertEquals("TN:\n" +
+                     "SF:test.lst\n" +
+                     "DA:5,1\n" +
+                     "DA:6,1\n" +
+                     "DA:7,0\n" +
+                     "DA:8,1\n" +
+                     "LF:4\n" +
+                     "LH:3\n" +
+                     "end_of_record\n", out.toString());
+    }
+}
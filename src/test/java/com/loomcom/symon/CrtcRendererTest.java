@@ -0,0 +1,170 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Crtc;
+import com.loomcom.symon.devices.Memory;
+import com.loomcom.symon.ui.CrtcRenderer;
+import com.loomcom.symon.ui.GlyphAtlas;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.awt.image.Raster;
+
+import static org.junit.Assert.*;
+
+public class CrtcRendererTest {
+
+    private Memory memory;
+    private Crtc crtc;
+    private CrtcRenderer renderer;
+    private GlyphAtlas atlas;
+
+    @Before
+    public void setUp() throws Exception {
+        memory = new Memory(0, 0x7fff);
+        crtc = new Crtc(0x9000, memory);
+        // No cursor
+        crtc.write(Crtc.REGISTER_SELECT, Crtc.CURSOR_START);
+        crtc.write(Crtc.REGISTER_RW, 0x20);
+        renderer = new CrtcRenderer(crtc);
+        atlas = GlyphAtlas.load(GlyphAtlas.ASCII_ROM, crtc.getScanLinesPerRow());
+    }
+
+    private int[] cellPixels(int column, int row) {
+        Raster raster = renderer.getImage().getRaster();
+        int scanLines = crtc.getScanLinesPerRow();
+        int[] pixels = raster.getPixels(column * GlyphAtlas.CHAR_WIDTH, row * scanLines,
+                                        GlyphAtlas.CHAR_WIDTH, scanLines, (int[]) null);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = pixels[i] == 0 ? 0 : 0xff;
+        }
+        return pixels;
+    }
+
+    @Test
+    public void testAtlasGlyphsArePaddedToScanLines() throws Exception {
+        for (String rom : new String[]{GlyphAtlas.ASCII_ROM, GlyphAtlas.PET_ROM,
+                                       GlyphAtlas.CGA_ROM, GlyphAtlas.MOD_ROM}) {
+            GlyphAtlas a = GlyphAtlas.load(rom, 9);
+            assertTrue(a.getGlyphCount() >= 256);
+            int[] glyph = a.getGlyph('A');
+            assertEquals(GlyphAtlas.CHAR_WIDTH * 9, glyph.length);
+            for (int i = GlyphAtlas.CHAR_WIDTH * GlyphAtlas.CHAR_HEIGHT; i < glyph.length; i++) {
+                assertEquals(0, glyph[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testOnlyChangedCellsAreDrawn() throws Exception {
+        int cells = crtc.getPageSize();
+        assertEquals(cells, renderer.render(false));
+        assertEquals(0, renderer.render(false));
+
+        memory.write(crtc.getStartAddress() + 41, 'A');
+        assertEquals(1, renderer.render(false));
+        assertArrayEquals(atlas.getGlyph('A'), cellPixels(1, 1));
+        assertArrayEquals(atlas.getGlyph(0), cellPixels(0, 1));
+
+        renderer.invalidate();
+        assertEquals(cells, renderer.render(false));
+    }
+
+    @Test
+    public void testCursorChangesRedrawOnlyCursorCells() throws Exception {
+        crtc.write(Crtc.REGISTER_SELECT, Crtc.CURSOR_START);
+        crtc.write(Crtc.REGISTER_RW, 0x00);
+        renderer.render(false);
+
+        int[] cursorCell = cellPixels(0, 0);
+        int[] blank = atlas.getGlyph(0);
+        assertEquals(0xff ^ blank[0], cursorCell[0]);
+
+        // Blink off
+        assertEquals(1, renderer.render(true));
+        assertArrayEquals(blank, cellPixels(0, 0));
+
+        crtc.write(Crtc.REGISTER_SELECT, Crtc.CURSOR_POSITION_LOW);
+        crtc.write(Crtc.REGISTER_RW, 0x01);
+        renderer.render(false);
+        // The cursor moves from cell 1 to cell 2
+        crtc.write(Crtc.REGISTER_RW, 0x02);
+        assertEquals(2, renderer.render(false));
+    }
+
+    @Test
+    public void testBusWritesMarkTheDisplayDirty() throws Exception {
+        Bus bus = new Bus(0x0000, 0xffff);
+        bus.addDevice(memory);
+        bus.addDevice(crtc);
+        int start = crtc.getStartAddress();
+
+        assertTrue(renderer.isDirty(false));
+        assertEquals(crtc.getPageSize(), renderer.render(false));
+        assertFalse(renderer.isDirty(false));
+        assertEquals(0, renderer.render(false));
+
+        // Outside the displayed page
+        bus.write(0x0200, 'A');
+        assertFalse(renderer.isDirty(false));
+
+        // Inside it
+        bus.write(start + crtc.getPageSize() - 1, 'B');
+        assertTrue(renderer.isDirty(false));
+        assertEquals(1, renderer.render(false));
+        assertFalse(renderer.isDirty(false));
+        assertArrayEquals(atlas.getGlyph('B'), cellPixels(39, 24));
+
+        // Writing the same value needs a check, but draws nothing.
+        bus.write(start + crtc.getPageSize() - 1, 'B');
+        assertTrue(renderer.isDirty(false));
+        assertEquals(0, renderer.render(false));
+    }
+
+    @Test
+    public void testFillingMemoryMarksTheDisplayDirty() throws Exception {
+        Bus bus = new Bus(0x0000, 0xffff);
+        bus.addDevice(memory);
+        bus.addDevice(crtc);
+        renderer.render(false);
+        assertFalse(renderer.isDirty(false));
+
+        // As a cold reset does, without going through the bus.
+        memory.fill('C');
+        assertTrue(renderer.isDirty(false));
+        assertEquals(crtc.getPageSize(), renderer.render(false));
+        assertArrayEquals(atlas.getGlyph('C'), cellPixels(0, 0));
+        assertFalse(renderer.isDirty(false));
+    }
+
+    @Test
+    public void testCursorChangesMarkTheDisplayDirty() throws Exception {
+        Bus bus = new Bus(0x0000, 0xffff);
+        bus.addDevice(memory);
+        bus.addDevice(crtc);
+        crtc.write(Crtc.REGISTER_SELECT, Crtc.CURSOR_START);
+        crtc.write(Crtc.REGISTER_RW, 0x00);
+        renderer.render(false);
+
+        assertTrue(renderer.isDirty(true));
+        assertEquals(1, renderer.render(true));
+        assertFalse(renderer.isDirty(true));
+
+        crtc.write(Crtc.REGISTER_SELECT, Crtc.CURSOR_POSITION_LOW);
+        crtc.write(Crtc.REGISTER_RW, 0x05);
+        assertTrue(renderer.isDirty(false));
+        assertEquals(1, renderer.render(false));
+
+        crtc.write(Crtc.REGISTER_RW, 0x06);
+        assertEquals(2, renderer.render(false));
+    }
+
+    @Test
+    public void testGeometryChangeRebuildsImage() throws Exception {
+        renderer.render(false);
+        crtc.write(Crtc.REGISTER_SELECT, Crtc.HORIZONTAL_DISPLAYED);
+        crtc.write(Crtc.REGISTER_RW, 20);
+
+        assertEquals(crtc.getPageSize(), renderer.render(false));
+        assertEquals(20 * GlyphAtlas.CHAR_WIDTH, renderer.getImage().getWidth());
+    }
+}
@@ -0,0 +1,131 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Memory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class DisassemblerTest {
+
+    private Bus bus;
+    private Disassembler disassembler;
+
+    @Before
+    public void setUp() throws Exception {
+        bus = new Bus(0x0000, 0xffff);
+        bus.addDevice(new Memory(0x0000, 0xffff));
+        disassembler = new Disassembler(bus);
+
+        // $0300  JSR $0310
+        // $0303  LDX #$05
+        // $0305  DEX
+        // $0306  BNE $0305 (shown as BNE $FD)
+        // $0308  JMP $0300
+        // $0310  RTS
+        load(0x0300, 0x20, 0x10, 0x03, 0xa2, 0x05, 0xca, 0xd0, 0xfd, 0x4c, 0x00, 0x03);
+        load(0x0310, 0x60);
+    }
+
+    @After
+    public void tearDown() {
+        disassembler.shutdown();
+    }
+
+    private void load(int address, int... program) throws Exception {
+        for (int i = 0; i < program.length; i++) {
+            bus.write(address + i, program[i]);
+        }
+    }
+
+    @Test
+    public void testListing() {
+        Disassembler.Listing listing = disassembler.disassemble(0x0300, 0x0308);
+
+        assertEquals(5, listing.size());
+        assertEquals(0x0300, listing.getAddress(0));
+        assertEquals(3, listing.getLength(0));
+        assertEquals(0x20, listing.getOpcode(0));
+        assertEquals("20 10 03", listing.getBytes(0));
+        assertEquals("JSR $0310", listing.getText(0));
+        assertEquals("LDX #$05", listing.getText(1));
+        assertEquals("DEX", listing.getText(2));
+        assertEquals("BNE $FD", listing.getText(3));
+        assertEquals("JMP $0300", listing.getText(4));
+    }
+
+    @Test
+    public void testIndexOf() {
+        Disassembler.Listing listing = disassembler.disassemble(0x0300, 0x0308);
+
+        assertEquals(0, listing.indexOf(0x0300));
+        assertEquals(0, listing.indexOf(0x0302));
+        assertEquals(3, listing.indexOf(0x0306));
+        assertEquals(-1, listing.indexOf(0x02ff));
+    }
+
+    @Test
+    public void testReferences() {
+        Disassembler.Listing listing = disassembler.disassemble(0x0300, 0x0310);
+
+        assertArrayEquals(new int[]{0x0300}, listing.getReferences(0x0310));
+        assertArrayEquals(new int[]{0x0306}, listing.getReferences(0x0305));
+        assertArrayEquals(new int[]{0x0308}, listing.getReferences(0x0300));
+        assertArrayEquals(new int[0], listing.getReferences(0x0303));
+    }
+
+    @Test
+    public void testLabels() throws Exception {
+        SymbolTable symbols = SymbolTable.read(new StringReader("al C:0310 .delay\n"));
+        disassembler.setSymbolTable(symbols);
+
+        Disassembler.Listing listing = disassembler.disassemble(0x0300, 0x0300);
+
+        assertEquals("JSR delay", listing.getText(0));
+    }
+
+    @Test
+    public void testCachedPageIsRefreshedAfterWrite() throws Exception {
+        Disassembler.Listing listing = disassembler.disassemble(0x0300, 0x0308);
+        assertEquals("LDX #$05", listing.getText(1));
+
+        assertEquals("LDX #$05", disassembler.disassemble(0x0300, 0x0308).getText(1));
+
+        // LDY #$05
+        bus.write(0x0303, 0xa0);
+        listing = disassembler.disassemble(0x0300, 0x0308);
+        assertEquals("LDY #$05", listing.getText(1));
+    }
+
+    @Test
+    public void testInstructionAcrossPageBoundary() throws Exception {
+        // $03FE  JMP $0300, with the operand on the next page
+        load(0x03fe, 0x4c, 0x00, 0x03, 0xea);
+
+        Disassembler.Listing listing = disassembler.disassemble(0x03fe, 0x0401);
+        assertEquals(2, listing.size());
+        assertEquals("JMP $0300", listing.getText(0));
+        assertEquals(0x0401, listing.getAddress(1));
+        assertEquals("NOP", listing.getText(1));
+
+        // A write to the next page changes the operand of the cached
+        // instruction.
+        bus.write(0x03ff, 0x10);
+        bus.write(0x0400, 0x03);
+        listing = disassembler.disassemble(0x03fe, 0x0401);
+        assertEquals("JMP $0310", listing.getText(0));
+    }
+
+    @Test
+    public void testWholeAddressSpaceInBackground() throws Exception {
+        Disassembler.Listing listing = disassembler.disassembleInBackground(0x0000, 0xffff).get();
+
+        assertEquals(0x0000, listing.getAddress(0));
+        int index = listing.indexOf(0x0300);
+        assertEquals(0x0300, listing.getAddress(index));
+        assertEquals("JSR $0310", listing.getText(index));
+    }
+}
@@ -0,0 +1,120 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Crtc;
+import com.loomcom.symon.devices.Memory;
+import com.loomcom.symon.ui.CrtcRenderer;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class FrameCaptureTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Bus bus;
+    private Cpu cpu;
+    private Crtc crtc;
+
+    @Before
+    public void setUp() throws Exception {
+        Memory memory = new Memory(0, 0x7fff);
+        crtc = new Crtc(0x9000, memory);
+        // No cursor
+        crtc.write(Crtc.REGISTER_SELECT, Crtc.CURSOR_START);
+        crtc.write(Crtc.REGISTER_RW, 0x20);
+
+        bus = new Bus(0x0000, 0xffff);
+        cpu = new Cpu();
+        bus.addCpu(cpu);
+        bus.addDevice(memory);
+        bus.addDevice(crtc);
+
+        // JMP $0200, three cycles a time round.
+        bus.write(0x0200, 0x4c);
+        bus.write(0x0201, 0x00);
+        bus.write(0x0202, 0x02);
+        cpu.setProgramCounter(0x0200);
+    }
+
+    private void runCycles(FrameCapture capture, long cycles) throws Exception {
+        long end = cpu.getCycleCount() + cycles;
+        while (cpu.getCycleCount() < end) {
+            cpu.step();
+            capture.record(cpu.getCpuState());
+        }
+    }
+
+    @Test
+    public void testFramesAreTimedByEmulatedCycles() throws Exception {
+        Path dir = folder.getRoot().toPath().resolve("frames");
+        // 1000 cycles a frame at 1 MHz.
+        FrameCapture capture = new FrameCapture(cpu, crtc, dir, FrameCapture.Format.PNG, 1000);
+
+        runCycles(capture, 1000);
+        bus.write(crtc.getStartAddress(), 'A');
+        runCycles(capture, 3500);
+        capture.close();
+
+        assertEquals(5, capture.getFrameCount());
+        assertEquals(5, capture.getFramesWritten());
+        assertFalse(Files.exists(dir.resolve("frame-000005.png")));
+
+        CrtcRenderer renderer = new CrtcRenderer(crtc);
+        renderer.render(false);
+        BufferedImage expected = renderer.getImage();
+
+        BufferedImage first = ImageIO.read(dir.resolve("frame-000000.png").toFile());
+        BufferedImage last = ImageIO.read(dir.resolve("frame-000004.png").toFile());
+        assertEquals(expected.getWidth(), last.getWidth());
+        assertEquals(expected.getHeight(), last.getHeight());
+
+        boolean differs = false;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), last.getRGB(x, y));
+                differs |= first.getRGB(x, y) != last.getRGB(x, y);
+            }
+        }
+        assertTrue(differs);
+    }
+
+    @Test
+    public void testRawFramesHoldOneBytePerPixel() throws Exception {
+        bus.write(crtc.getStartAddress(), 'A');
+        Path dir = folder.getRoot().toPath();
+        FrameCapture capture = new FrameCapture(cpu, crtc, dir, FrameCapture.Format.RAW, 50);
+
+        runCycles(capture, 1);
+        capture.close();
+
+        CrtcRenderer renderer = new CrtcRenderer(crtc);
+        renderer.render(false);
+        BufferedImage expected = renderer.getImage();
+
+        File file = dir.resolve("frame-000000.raw").toFile();
+        byte[] raw = Files.readAllBytes(file.toPath());
+        assertEquals(expected.getWidth() * expected.getHeight(), raw.length);
+
+        int lit = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                int pixel = raw[y * expected.getWidth() + x] & 0xff;
+                assertEquals(expected.getRaster().getSample(x, y, 0) == 0 ? 0x00 : 0xff, pixel);
+                if (pixel != 0) {
+                    lit++;
+                }
+            }
+        }
+        assertTrue(lit > 0);
+    }
+}
@@ -0,0 +1,120 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Memory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+public class OpcodeStatisticsTest {
+
+    private Cpu cpu;
+    private Bus bus;
+    private OpcodeStatistics statistics;
+
+    @Before
+    public void setUp() throws Exception {
+        cpu = new Cpu();
+        bus = new Bus(0x0000, 0xffff);
+        bus.addCpu(cpu);
+        bus.addDevice(new Memory(0x0000, 0xffff));
+
+        bus.write(0xfffc, 0x00);
+        bus.write(0xfffd, 0x02);
+
+        cpu.reset();
+        statistics = new OpcodeStatistics();
+    }
+
+    private void step(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            cpu.step();
+            statistics.record(cpu.getCpuState());
+        }
+    }
+
+    @Test
+    public void testCountsOpcodes() throws Exception {
+        // LDA #$01, LDA #$02, STA $10, NOP
+        bus.loadProgram(0xa9, 0x01, 0xa9, 0x02, 0x85, 0x10, 0xea);
+        step(4);
+
+        assertEquals(2, statistics.getCount(0xa9));
+        assertEquals(1, statistics.getCount(0x85));
+        assertEquals(1, statistics.getCount(0xea));
+        assertEquals(4, OpcodeStatistics.total(statistics.snapshot()));
+
+        statistics.reset();
+        assertEquals(0, OpcodeStatistics.total(statistics.snapshot()));
+    }
+
+    @Test
+    public void testCountsByMode() throws Exception {
+        bus.loadProgram(0xa9, 0x01, 0xa9, 0x02, 0x85, 0x10, 0xea);
+        step(4);
+
+        long[] byMode = OpcodeStatistics.countsByMode(statistics.snapshot());
+        assertEquals(2, byMode[InstructionTable.Mode.IMM.ordinal()]);
+        assertEquals(1, byMode[InstructionTable.Mode.ZPG.ordinal()]);
+        assertEquals(1, byMode[InstructionTable.Mode.IMP.ordinal()]);
+    }
+
+    @Test
+    public void testDiffAgainstSnapshot() throws Exception {
+        bus.loadProgram(0xa9, 0x01, 0xa9, 0x02, 0x85, 0x10, 0xea);
+        step(1);
+        long[] baseline = statistics.snapshot();
+        step(3);
+
+        long[] delta = OpcodeStatistics.diff(statistics.snapshot(), baseline);
+        assertEquals(1, delta[0xa9]);
+        assertEquals(1, delta[0x85]);
+        assertEquals(1, delta[0xea]);
+        assertEquals(3, OpcodeStatistics.total(delta));
+    }
+
+    @Test
+    public void testCsvRoundTrip() throws Exception {
+        bus.loadProgram(0xa9, 0x01, 0xa9, 0x02, 0x85, 0x10, 0xea);
+        step(4);
+
+        StringWriter out = new StringWriter();
+        OpcodeStatistics.writeCsv(out, statistics.snapshot(), null);
+        String[] lines = out.toString().split("\n");
+
+        assertEquals("opcode,mnemonic,mode,count,percent", lines[0]);
+        assertEquals("$A9,LDA,IMM,2,50.0000", lines[1]);
+        assertEquals(4, lines.length);
+
+        long[] counts = OpcodeStatistics.readCsv(new StringReader(out.toString()));
+        assertArrayEquals(statistics.snapshot(), counts);
+    }
+
+    @Test
+    public void testCsvWithBaseline() throws Exception {
+        long[] baseline = new long[256];
+        baseline[0xea] = 5;
+        baseline[0x00] = 1;
+        long[] counts = new long[256];
+        counts[0xea] = 2;
+
+        StringWriter out = new StringWriter();
+        OpcodeStatistics.writeCsv(out, counts, baseline);
+        String[] lines = out.toString().split("\n");
+
+        assertEquals("opcode,mnemonic,mode,count,percent,baseline,delta", lines[0]);
+        assertEquals("$EA,NOP,IMP,2,100.0000,5,-3", lines[1]);
+        assertEquals("$00,BRK,IMP,0,0.0000,1,-1", lines[2]);
+
+        assertArrayEquals(counts, OpcodeStatistics.readCsv(new StringReader(out.toString())));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadCsvRejectsOtherFiles() throws Exception {
+        OpcodeStatistics.readCsv(new StringReader("address,executions\n"));
+    }
+}
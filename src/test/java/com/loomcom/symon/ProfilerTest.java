@@ -0,0 +1,87 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Memory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ProfilerTest {
+
+    private Cpu cpu;
+    private Bus bus;
+    private Profiler profiler;
+
+    @Before
+    public void setUp() throws Exception {
+        cpu = new Cpu();
+        bus = new Bus(0x0000, 0xffff);
+        bus.addCpu(cpu);
+        bus.addDevice(new Memory(0x0000, 0xffff));
+
+        // Programs start at $0200, IRQs go to $0300
+        bus.write(0xfffc, 0x00);
+        bus.write(0xfffd, 0x02);
+        bus.write(0xfffe, 0x00);
+        bus.write(0xffff, 0x03);
+
+        cpu.reset();
+        profiler = new Profiler(cpu);
+    }
+
+    private void step(int count) throws Exception {
+        for (int i = 0; i < count; i++) {
+            cpu.step();
+            profiler.record(cpu.getCpuState());
+        }
+    }
+
+    @Test
+    public void countsExecutionsAndCyclesPerAddress() throws Exception {
+        // LDX #$03; loop: DEX; BNE loop
+        bus.loadProgram(0xa2, 0x03, 0xca, 0xd0, 0xfd);
+        step(7);
+
+        assertEquals(1, profiler.getExecutions(0x0200));
+        assertEquals(3, profiler.getExecutions(0x0202));
+        assertEquals(3, profiler.getExecutions(0x0203));
+        assertEquals(0, profiler.getExecutions(0x0201));
+        assertEquals(3L * cpu.getInstructionClocks(0xca), profiler.getCycles(0x0202));
+        assertEquals(7, profiler.getTotalExecutions());
+
+        List<Profiler.Range> ranges = profiler.getHotRanges(10);
+        assertEquals(1, ranges.size());
+        assertEquals(0x0200, ranges.get(0).startAddress);
+        assertEquals(0x0203, ranges.get(0).endAddress);
+        assertEquals(profiler.getTotalCycles(), ranges.get(0).cycles);
+
+        assertEquals(2, profiler.getHotAddresses(2).size());
+
+        StringWriter report = new StringWriter();
+        profiler.writeReport(report, 10);
+        assertTrue(report.toString().contains("$0202  DEX"));
+        assertTrue(report.toString().contains("$0200-$0203"));
+
+        profiler.reset();
+        assertEquals(0, profiler.getExecutions(0x0202));
+        assertEquals(0, profiler.getTotalCycles());
+    }
+
+    @Test
+    public void attributesInterruptHandlerToItsOwnAddress() throws Exception {
+        // CLI; NOP; NOP
+        bus.loadProgram(0x58, 0xea, 0xea);
+        // NOP at the IRQ vector
+        bus.write(0x0300, 0xea);
+
+        step(1);
+        cpu.assertIrq();
+        step(1);
+
+        assertEquals(1, profiler.getExecutions(0x0300));
+        assertEquals(0, profiler.getExecutions(0x0201));
+    }
+}
@@ -0,0 +1,116 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.machines.MulticompMachine;
+import org.junit.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+
+public class SimulatorMetricsTest {
+
+    @Test
+    public void publishesCountersFromTheMachine() throws Exception {
+        MulticompMachine machine = new MulticompMachine(null);
+        Bus bus = machine.getBus();
+        TraceBuffer traceBuffer = new TraceBuffer(16);
+
+        // NOP; NOP; JMP $0000
+        bus.write(0x0000, 0xea);
+        bus.write(0x0001, 0xea);
+        bus.write(0x0002, 0x4c);
+        bus.write(0x0003, 0x00);
+        bus.write(0x0004, 0x00);
+        bus.write(0xfffc, 0x00);
+        bus.write(0xfffd, 0x00);
+
+        Cpu cpu = machine.getCpu();
+        cpu.reset();
+        SimulatorMetrics metrics = new SimulatorMetrics(machine, traceBuffer);
+
+        for (int i = 0; i < 6; i++) {
+            cpu.step();
+            traceBuffer.record(cpu.getCpuState());
+        }
+        machine.getAcia().txWrite('A');
+        machine.getAcia().rxWrite('B');
+        machine.getAcia().rxWrite('C');
+
+        metrics.publish(false);
+        assertEquals(0, metrics.getInstructions());
+
+        metrics.publish(true);
+        assertEquals(6, metrics.getInstructions());
+        assertEquals(cpu.getCycleCount(), metrics.getCycles());
+        assertEquals(2 * (2 * cpu.getInstructionClocks(0xea) + cpu.getInstructionClocks(0x4c)),
+                     metrics.getCycles());
+        assertEquals(1, metrics.getAciaBytesOut());
+        assertEquals(2, metrics.getAciaBytesIn());
+        assertEquals(0, metrics.getSdSectorsRead());
+        assertEquals(37.5, metrics.getTraceBufferFill(), 0.001);
+
+        // A reset starts the CPU's step counter over, but not the total.
+        cpu.reset();
+        cpu.step();
+        metrics.publish(true);
+        assertEquals(7, metrics.getInstructions());
+    }
+
+    @Test
+    public void ratesLeaveOutTimeSpentStopped() throws Exception {
+        MulticompMachine machine = new MulticompMachine(null);
+        Bus bus = machine.getBus();
+
+        // JMP $0000
+        bus.write(0x0000, 0x4c);
+        bus.write(0x0001, 0x00);
+        bus.write(0x0002, 0x00);
+        bus.write(0xfffc, 0x00);
+        bus.write(0xfffd, 0x00);
+
+        Cpu cpu = machine.getCpu();
+        cpu.reset();
+        SimulatorMetrics metrics = new SimulatorMetrics(machine, null);
+
+        metrics.runStarted();
+        for (int i = 0; i < 1000; i++) {
+            cpu.step();
+        }
+        metrics.publish(true);
+
+        // Stopped for a while, then run again.
+        Thread.sleep(300);
+
+        long start = System.nanoTime();
+        metrics.runStarted();
+        for (int i = 0; i < 1000; i++) {
+            cpu.step();
+        }
+        metrics.publish(true);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        assertEquals(2000, metrics.getInstructions());
+        assertTrue(metrics.getInstructionsPerSecond() >= 1000 / seconds);
+        assertTrue(metrics.getEffectiveMhz() >= 1000 * cpu.getInstructionClocks(0x4c) / seconds / 1e6);
+    }
+
+    @Test
+    public void registersAsAnMBean() throws Exception {
+        MulticompMachine machine = new MulticompMachine(null);
+        SimulatorMetrics metrics = new SimulatorMetrics(machine, null);
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.loomcom.symon:type=Simulator,name=" +
+                                         ObjectName.quote(machine.getName()));
+
+        metrics.register();
+        try {
+            assertTrue(server.isRegistered(name));
+            assertEquals(0L, server.getAttribute(name, "Instructions"));
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(server.isRegistered(name));
+    }
+}
@@ -0,0 +1,91 @@
+package com.loomcom.symon;
+
+import org.junit.Test;
+
+import java.io.StringReader;
+
+import static org.junit.Assert.*;
+
+public class SymbolTableTest {
+
+    private static SymbolTable read(String text) throws Exception {
+        return SymbolTable.read(new StringReader(text));
+    }
+
+    @Test
+    public void testReadsViceLabels() throws Exception {
+        SymbolTable symbols = read("al C:C000 .reset\n" +
+                                   "al 00C010 .loop\n" +
+                                   "al C:C000 .start\n" +
+                                   "al C:0010 .ptr\n");
+
+        assertEquals(3, symbols.size());
+        assertEquals("reset", symbols.getLabel(0xc000));
+        assertEquals("loop", symbols.getLabel(0xc010));
+        assertEquals("ptr", symbols.getLabel(0x0010));
+        assertNull(symbols.getLabel(0xc001));
+        assertEquals(0xc010, symbols.getAddress("loop"));
+        assertEquals(-1, symbols.getAddress("nowhere"));
+    }
+
+    @Test
+    public void testReadsLd65MapExports() throws Exception {
+        SymbolTable symbols = read("Modules list:\n" +
+                                   "-------------\n" +
+                                   "main.o:\n" +
+                                   "    CODE              Offs=000000  Size=000020  Align=00001  Fill=0000\n" +
+                                   "\n" +
+                                   "Exports list by name:\n" +
+                                   "---------------------\n" +
+                                   "nmi                       00FFFA RLA    reset                     00C000 RLA    \n" +
+                                   "print                     00C100 RLA    \n" +
+                                   "\n" +
+                                   "Imports list:\n" +
+                                   "-------------\n");
+
+        assertEquals(3, symbols.size());
+        assertEquals("nmi", symbols.getLabel(0xfffa));
+        assertEquals("reset", symbols.getLabel(0xc000));
+        assertEquals("print", symbols.getLabel(0xc100));
+    }
+
+    @Test
+    public void testReadsListingLabels() throws Exception {
+        SymbolTable symbols = read("0200 :                  start\n" +
+                                   "0200 : a901                     lda #1\n" +
+                                   "0207 : ea               skip    nop\n");
+
+        assertEquals("start", symbols.getLabel(0x0200));
+        assertEquals("skip", symbols.getLabel(0x0207));
+    }
+
+    @Test
+    public void testDescribe() throws Exception {
+        SymbolTable symbols = read("al C:C000 .table\n");
+
+        assertEquals("table", symbols.describe(0xc000));
+        assertEquals("table+12", symbols.describe(0xc00c));
+        assertNull(symbols.describe(0xbfff));
+        assertNull(symbols.describe(0xd000));
+        assertNull(SymbolTable.EMPTY.describe(0xc000));
+    }
+
+    @Test
+    public void testSymbolicDisassembly() throws Exception {
+        SymbolTable symbols = read("al C:C000 .print\n" +
+                                   "al C:0010 .ptr\n" +
+                                   "al C:0300 .loop\n");
+
+        // JSR $C000
+        assertEquals("JSR print", Cpu.disassembleOp(0x0200, 0x20, new int[]{0x00, 0xc0}, symbols));
+        // LDA ($10),Y
+        assertEquals("LDA (ptr),Y", Cpu.disassembleOp(0x0200, 0xb1, new int[]{0x10}, symbols));
+        // STA $C001,X has no label
+        assertEquals("STA $C001,X", Cpu.disassembleOp(0x0200, 0x9d, new int[]{0x01, 0xc0}, symbols));
+        // BNE back to $0300 from $0310
+        assertEquals("BNE loop", Cpu.disassembleOp(0x0310, 0xd0, new int[]{0xee}, symbols));
+        // Without symbols, as before
+        assertEquals("BNE $EE", Cpu.disassembleOp(0x0310, 0xd0, new int[]{0xee}, null));
+        assertEquals("JSR $C000", Cpu.disassembleOp(0x20, new int[]{0x00, 0xc0}));
+    }
+}
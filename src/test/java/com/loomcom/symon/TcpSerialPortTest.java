@@ -0,0 +1,128 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.serial.TcpSerialPort;
+import com.loomcom.symon.serial.TcpSerialServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+
+import static org.junit.Assert.*;
+
+public class TcpSerialPortTest {
+
+    private TcpSerialPort port;
+    private Socket socket;
+
+    @Before
+    public void setUp() throws Exception {
+        port = TcpSerialServer.getInstance().open(0);
+        socket = new Socket(InetAddress.getLoopbackAddress(), port.getPort());
+        socket.setSoTimeout(2000);
+        waitFor(() -> port.isConnected());
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        socket.close();
+        port.close();
+    }
+
+    @Test
+    public void shouldOfferCharacterModeOnConnect() throws Exception {
+        InputStream in = socket.getInputStream();
+        int[] expected = {255, 251, 1, 255, 251, 3};
+        for (int b : expected) {
+            assertEquals(b, in.read());
+        }
+    }
+
+    @Test
+    public void shouldReceiveBytesFromClient() throws Exception {
+        OutputStream out = socket.getOutputStream();
+        out.write(new byte[] {'H', 'i'});
+        out.flush();
+
+        waitFor(() -> port.hasInput());
+        assertEquals('H', port.readInput());
+        waitFor(() -> port.hasInput());
+        assertEquals('i', port.readInput());
+        assertFalse(port.hasInput());
+    }
+
+    @Test
+    public void shouldStripTelnetCommandsAndFoldCrLf() throws Exception {
+        OutputStream out = socket.getOutputStream();
+        // IAC DO ECHO, 'A', CR LF, IAC IAC, 'B'
+        out.write(new byte[] {(byte) 255, (byte) 253, 1, 'A', 0x0d, 0x0a, (byte) 255, (byte) 255, 'B'});
+        out.flush();
+
+        int[] expected = {'A', 0x0d, 0xff, 'B'};
+        for (int b : expected) {
+            waitFor(() -> port.hasInput());
+            assertEquals(b, port.readInput());
+        }
+        assertFalse(port.hasInput());
+    }
+
+    @Test
+    public void shouldSendBytesToClient() throws Exception {
+        InputStream in = socket.getInputStream();
+        // Skip the telnet negotiation
+        for (int i = 0; i < 6; i++) {
+            in.read();
+        }
+
+        assertTrue(port.canOutput());
+        port.output('O');
+        port.output('K');
+
+        assertEquals('O', in.read());
+        assertEquals('K', in.read());
+    }
+
+    @Test
+    public void shouldEscapeIacInBytesSentToClient() throws Exception {
+        InputStream in = socket.getInputStream();
+        // Skip the telnet negotiation
+        for (int i = 0; i < 6; i++) {
+            in.read();
+        }
+
+        port.output('A');
+        port.output(0xff);
+        port.output('B');
+
+        int[] expected = {'A', 0xff, 0xff, 'B'};
+        for (int b : expected) {
+            assertEquals(b, in.read());
+        }
+    }
+
+    @Test
+    public void shouldRefuseSecondClient() throws Exception {
+        try (Socket second = new Socket(InetAddress.getLoopbackAddress(), port.getPort())) {
+            second.setSoTimeout(2000);
+            assertEquals(-1, second.getInputStream().read());
+        }
+        assertTrue(port.isConnected());
+    }
+
+    private interface Condition {
+        boolean met();
+    }
+
+    private static void waitFor(Condition condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (!condition.met()) {
+            if (System.currentTimeMillis() > deadline) {
+                fail("Timed out waiting for serial port");
+            }
+            Thread.sleep(5);
+        }
+    }
+}
@@ -217,6 +217,79 @@ public class TestAnsiControlSequenceParser implements AnsiControlSequenceListene
 		assertEquals(0, params.length);
 	}
 
+	/**
+	 * Tests a sequence split between every character, with empty and
+	 * trailing parameters.
+	 */
+	@Test
+	public void testSequenceSplitEverywhere() {
+		String input = "a\u001B[;5;Hb";
+		for (char ch : input.toCharArray()) {
+			parser.parse(String.valueOf(ch));
+		}
+
+		assertEquals(3, objects.size());
+		assertEquals("a", objects.get(0));
+		AnsiControlSequence seq = (AnsiControlSequence) objects.get(1);
+		assertEquals('H', seq.getCommand());
+		assertArrayEquals(new String[] { "", "5" }, seq.getParameters());
+		assertEquals("b", objects.get(2));
+	}
+
+	/**
+	 * Tests that an escape which doesn't start a sequence is passed on as
+	 * text, even at the end of a call.
+	 */
+	@Test
+	public void testEscapeWithoutSequence() {
+		parser.parse("x\u001B");
+		parser.parse("(y");
+
+		assertEquals(3, objects.size());
+		assertEquals("x", objects.get(0));
+		assertEquals("\u001B", objects.get(1));
+		assertEquals("(y", objects.get(2));
+	}
+
+	/**
+	 * Tests the numeric interface, which passes ranges of the input and a
+	 * reused parameter array.
+	 */
+	@Test
+	public void testRangesAndNumericParameters() {
+		final StringBuilder events = new StringBuilder();
+		AnsiControlSequenceParser numericParser = new AnsiControlSequenceParser(new AnsiControlSequenceListener() {
+			@Override
+			public void parsedControlSequence(AnsiControlSequence seq) {
+				fail("Should use the numeric interface");
+			}
+
+			@Override
+			public void parsedString(String str) {
+				fail("Should use the range interface");
+			}
+
+			@Override
+			public void parsedControlSequence(char command, int[] parameters, int count) {
+				events.append('<').append(command);
+				for (int i = 0; i < count; i++) {
+					events.append(' ').append(parameters[i]);
+				}
+				events.append('>');
+			}
+
+			@Override
+			public void parsedText(char[] text, int offset, int length) {
+				events.append(text, offset, length);
+			}
+		});
+
+		char[] input = "--Hi\u009B?25;1;;99999mthere--".toCharArray();
+		numericParser.parse(input, 2, input.length - 4);
+
+		assertEquals("Hi<m 25 1 -1 9999>there", events.toString());
+	}
+
 	@Override
 	public void parsedControlSequence(AnsiControlSequence seq) {
 		objects.add(seq);
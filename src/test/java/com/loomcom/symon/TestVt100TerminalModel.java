@@ -100,6 +100,40 @@ public class TestVt100TerminalModel {
 		assertNull(model.getCell(23, 1));
 	}
 
+	/**
+	 * Tests that the scrollback keeps the newest lines in order as the
+	 * ring of rows wraps around several times.
+	 */
+	@Test
+	public void testScrollbackWrapsAround() {
+		model = new Vt100TerminalModel(10, 3, 5);
+		for (int i = 0; i < 13; i++) {
+			model.print((i > 0 ? "\r\n" : "") + "line " + (char) ('A' + i));
+		}
+
+		// Lines I to M are left, with M on the bottom row.
+		for (int row = 0; row < 5; row++) {
+			assertEquals('l', model.getCell(0, row).getCharacter());
+			assertEquals((char) ('I' + row), model.getCell(5, row).getCharacter());
+			assertNull(model.getCell(6, row));
+		}
+		assertEquals(4, model.getCursorRow());
+
+		// A new line starts out blank.
+		model.print("\r\n");
+		assertEquals('J', model.getCell(5, 0).getCharacter());
+		assertNull(model.getCell(0, 4));
+
+		// Erasing and clearing work on the rows where they now are.
+		model.setCursorRow(1);
+		model.print("\u009B2K");
+		assertNull(model.getCell(0, 1));
+		assertEquals('L', model.getCell(5, 2).getCharacter());
+		model.clear();
+		assertNull(model.getCell(5, 2));
+		assertEquals('M', model.getCell(5, 3).getCharacter());
+	}
+
 	/**
 	 * Tests the erase functionality.
 	 */
@@ -172,6 +206,42 @@ public class TestVt100TerminalModel {
 		assertEquals(model.getDefaultForegroundColor(), cell.getForegroundColor());
 	}
 
+	/**
+	 * Tests that cells set directly keep their colors, including colors
+	 * outside the SGR palette.
+	 */
+	@Test
+	public void testSetCell() {
+		Color orange = new Color(255, 128, 0);
+		model.setCell(2, 3, new TerminalCell('Z', Color.RED, orange));
+
+		TerminalCell cell = model.getCell(2, 3);
+		assertEquals('Z', cell.getCharacter());
+		assertEquals(Color.RED, cell.getBackgroundColor());
+		assertEquals(orange, cell.getForegroundColor());
+
+		assertFalse(model.isCellEmpty(2, 3));
+		assertEquals('Z', model.getCharacter(2, 3));
+		assertEquals(orange, model.getForegroundColor(2, 3));
+		assertEquals(Color.RED, model.getBackgroundColor(2, 3));
+
+		model.setCell(2, 3, null);
+		assertNull(model.getCell(2, 3));
+		assertTrue(model.isCellEmpty(2, 3));
+		assertNull(model.getForegroundColor(2, 3));
+	}
+
+	/**
+	 * Tests that SGR 39 and 49 select the default colors.
+	 */
+	@Test
+	public void testSgrDefaultColors() {
+		model.print("\u009B33;41m\u009B39;49mX");
+
+		assertEquals(model.getDefaultForegroundColor(), model.getForegroundColor(0, 0));
+		assertEquals(model.getDefaultBackgroundColor(), model.getBackgroundColor(0, 0));
+	}
+
 	/**
 	 * Tests saving and restoring the cursor.
 	 */
@@ -202,6 +272,43 @@ public class TestVt100TerminalModel {
 		assertNull(model.getCell(2, 0));
 	}
 
+	/**
+	 * Tests that only changed rows are marked dirty.
+	 */
+	@Test
+	public void testDirtyRows() {
+		assertTrue(model.isRowDirty(0));
+		model.clearDirtyRows();
+		assertFalse(model.isRowDirty(0));
+
+		model.print("Hi\r\n\r\nthere");
+		assertTrue(model.isRowDirty(0));
+		assertFalse(model.isRowDirty(1));
+		assertTrue(model.isRowDirty(2));
+		assertFalse(model.isRowDirty(3));
+
+		model.clearDirtyRows();
+		model.print("\u001B[2K");
+		assertFalse(model.isRowDirty(0));
+		assertTrue(model.isRowDirty(2));
+	}
+
+	/**
+	 * Tests that scrolling marks every row dirty.
+	 */
+	@Test
+	public void testScrollingMarksAllRowsDirty() {
+		for (int i = 0; i < model.getRows() - 1; i++) {
+			model.print("\r\n");
+		}
+		model.clearDirtyRows();
+
+		model.print("\r\nx");
+		for (int row = 0; row < model.getBufferSize(); row++) {
+			assertTrue(model.isRowDirty(row));
+		}
+	}
+
 	/**
 	 * Tests that the bell is sounded.
 	 */
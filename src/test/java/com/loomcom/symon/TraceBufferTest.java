@@ -0,0 +1,75 @@
+package com.loomcom.symon;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TraceBufferTest {
+
+    private static CpuState stateAt(int pc, int ir, int arg0, int arg1, int a) {
+        CpuState state = new CpuState();
+        state.lastPc = pc;
+        state.ir = ir;
+        state.args[0] = arg0;
+        state.args[1] = arg1;
+        state.a = a;
+        state.x = 0x01;
+        state.y = 0x02;
+        state.sp = 0xfd;
+        state.carryFlag = true;
+        state.negativeFlag = true;
+        return state;
+    }
+
+    @Test
+    public void shouldRecordAndReadBackEntries() {
+        TraceBuffer buffer = new TraceBuffer(4);
+        buffer.record(stateAt(0x0300, 0xad, 0x34, 0x12, 0x80));
+
+        assertEquals(1, buffer.size());
+        assertEquals(0x0300, buffer.getPc(0));
+        assertEquals(0xad, buffer.getIr(0));
+        assertEquals(0x34, buffer.getArg(0, 0));
+        assertEquals(0x12, buffer.getArg(0, 1));
+        assertEquals(0x80, buffer.getA(0));
+        assertEquals(0x01, buffer.getX(0));
+        assertEquals(0x02, buffer.getY(0));
+        assertEquals(0xfd, buffer.getSp(0));
+        assertEquals(0x20 | Cpu.P_CARRY | Cpu.P_NEGATIVE, buffer.getP(0));
+    }
+
+    @Test
+    public void shouldFormatLikeCpuState() {
+        TraceBuffer buffer = new TraceBuffer(4);
+        CpuState state = stateAt(0x0300, 0xad, 0x34, 0x12, 0x80);
+        buffer.record(state);
+
+        assertEquals(state.toTraceEvent(), buffer.toTraceEvent(0));
+    }
+
+    @Test
+    public void shouldRetainOnlyMostRecentEntries() {
+        TraceBuffer buffer = new TraceBuffer(3);
+        for (int i = 0; i < 5; i++) {
+            buffer.record(stateAt(0x0300 + i, 0xea, 0, 0, i));
+        }
+
+        assertEquals(5, buffer.getCount());
+        assertEquals(3, buffer.size());
+        assertEquals(2, buffer.getFirst());
+        assertFalse(buffer.isRetained(1));
+        assertTrue(buffer.isRetained(2));
+        assertEquals(0x0302, buffer.getPc(2));
+        assertEquals(0x0304, buffer.getPc(4));
+    }
+
+    @Test
+    public void resetShouldDiscardEntries() {
+        TraceBuffer buffer = new TraceBuffer(3);
+        buffer.record(stateAt(0x0300, 0xea, 0, 0, 0));
+        buffer.reset();
+
+        assertEquals(0, buffer.size());
+        assertEquals(0, buffer.getCount());
+    }
+}
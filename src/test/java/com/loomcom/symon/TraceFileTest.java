@@ -0,0 +1,179 @@
+package com.loomcom.symon;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.StringWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TraceFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static CpuState stateAt(int pc, int ir, int a) {
+        CpuState state = new CpuState();
+        state.lastPc = pc;
+        state.ir = ir;
+        state.args[0] = 0x34;
+        state.args[1] = 0x12;
+        state.a = a;
+        state.sp = 0xff;
+        return state;
+    }
+
+    private String prefix() {
+        return folder.getRoot().toPath().resolve("trace").toString();
+    }
+
+    @Test
+    public void shouldWriteAndReadBackRecords() throws Exception {
+        try (TraceFileWriter writer = new TraceFileWriter(prefix(), 16, 0)) {
+            writer.record(stateAt(0x0300, 0xad, 0x01));
+            writer.record(stateAt(0x0303, 0xea, 0x02));
+        }
+
+        List<Path> segments = TraceFileReader.findSegments(prefix());
+        assertEquals(1, segments.size());
+
+        CpuState state = new CpuState();
+        try (TraceFileReader reader = new TraceFileReader(segments)) {
+            assertTrue(reader.next(state));
+            assertEquals(0x0300, state.lastPc);
+            assertEquals(0xad, state.ir);
+            assertEquals(0x34, state.args[0]);
+            assertEquals(0x12, state.args[1]);
+            assertEquals(0x01, state.a);
+            assertEquals(0xff, state.sp);
+            assertEquals(0, state.stepCounter);
+
+            assertTrue(reader.next(state));
+            assertEquals(0x0303, state.lastPc);
+            assertEquals(1, state.stepCounter);
+
+            assertFalse(reader.next(state));
+        }
+    }
+
+    @Test
+    public void shouldRotateAndDeleteOldestSegments() throws Exception {
+        try (TraceFileWriter writer = new TraceFileWriter(prefix(), 4, 2)) {
+            for (int i = 0; i < 10; i++) {
+                writer.record(stateAt(0x0300 + i, 0xea, i));
+            }
+        }
+
+        // 10 records in segments of 4: segment 0 was deleted, leaving 1 and 2.
+        List<Path> segments = TraceFileReader.findSegments(prefix());
+        assertEquals(2, segments.size());
+
+        CpuState state = new CpuState();
+        try (TraceFileReader reader = new TraceFileReader(segments)) {
+            for (int i = 4; i < 10; i++) {
+                assertTrue(reader.next(state));
+                assertEquals(i, state.stepCounter);
+                assertEquals(0x0300 + i, state.lastPc);
+            }
+            assertFalse(reader.next(state));
+        }
+    }
+
+    @Test
+    public void shouldDeleteSegmentsLeftByAnEarlierTrace() throws Exception {
+        try (TraceFileWriter writer = new TraceFileWriter(prefix(), 4, 0)) {
+            for (int i = 0; i < 20; i++) {
+                writer.record(stateAt(0x0300 + i, 0xea, i));
+            }
+        }
+        try (TraceFileWriter writer = new TraceFileWriter(prefix(), 4, 0)) {
+            for (int i = 0; i < 3; i++) {
+                writer.record(stateAt(0x0400 + i, 0xea, i));
+            }
+        }
+
+        List<Path> segments = TraceFileReader.findSegments(prefix());
+        assertEquals(1, segments.size());
+
+        CpuState state = new CpuState();
+        int count = 0;
+        try (TraceFileReader reader = new TraceFileReader(segments)) {
+            while (reader.next(state)) {
+                assertEquals(0x0400 + count, state.lastPc);
+                count++;
+            }
+        }
+        assertEquals(3, count);
+    }
+
+    @Test
+    public void shouldStopAtASegmentThatDoesNotFollowOn() throws Exception {
+        try (TraceFileWriter writer = new TraceFileWriter(prefix(), 4, 0)) {
+            for (int i = 0; i < 6; i++) {
+                writer.record(stateAt(0x0300 + i, 0xea, i));
+            }
+        }
+        // A stray copy of the first segment, as if left by another trace.
+        Files.copy(TraceFileWriter.segmentPath(prefix(), 0), TraceFileWriter.segmentPath(prefix(), 5));
+
+        CpuState state = new CpuState();
+        int count = 0;
+        try (TraceFileReader reader = new TraceFileReader(TraceFileReader.findSegments(prefix()))) {
+            while (reader.next(state)) {
+                assertEquals(count, state.stepCounter);
+                count++;
+            }
+        }
+        assertEquals(6, count);
+    }
+
+    @Test
+    public void shouldFindEndOfSegmentThatWasNotClosed() throws Exception {
+        TraceFileWriter writer = new TraceFileWriter(prefix(), 16, 0);
+        writer.record(stateAt(0x0300, 0xea, 0));
+        writer.record(stateAt(0x0301, 0xea, 0));
+        writer.record(stateAt(0x0302, 0xea, 0));
+
+        CpuState state = new CpuState();
+        int count = 0;
+        try (TraceFileReader reader = new TraceFileReader(TraceFileReader.findSegments(prefix()))) {
+            while (reader.next(state)) {
+                count++;
+            }
+        }
+        assertEquals(3, count);
+        writer.close();
+    }
+
+    @Test
+    public void decoderShouldFilterByAddressAndOpcode() throws Exception {
+        try (TraceFileWriter writer = new TraceFileWriter(prefix(), 16, 0)) {
+            writer.record(stateAt(0x0300, 0x20, 0));  // JSR
+            writer.record(stateAt(0x1234, 0xea, 0));  // NOP
+            writer.record(stateAt(0x1237, 0x60, 0));  // RTS
+            writer.record(stateAt(0x0303, 0xea, 0));  // NOP
+        }
+
+        TraceFileDecoder decoder = new TraceFileDecoder();
+        decoder.setAddressRange(0x1000, 0x1fff);
+        StringWriter out = new StringWriter();
+        try (TraceFileReader reader = new TraceFileReader(TraceFileReader.findSegments(prefix()))) {
+            assertEquals(2, decoder.decode(reader, out));
+        }
+        assertTrue(out.toString().contains("NOP"));
+        assertTrue(out.toString().contains("RTS"));
+
+        decoder = new TraceFileDecoder();
+        decoder.setOpcodes("JSR,$60");
+        out = new StringWriter();
+        try (TraceFileReader reader = new TraceFileReader(TraceFileReader.findSegments(prefix()))) {
+            assertEquals(2, decoder.decode(reader, out));
+        }
+        assertTrue(out.toString().contains("JSR $1234"));
+        assertFalse(out.toString().contains("NOP"));
+    }
+}
@@ -0,0 +1,96 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Acia6551;
+import com.loomcom.symon.devices.Memory;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TraceFilterTest {
+
+    private Bus bus;
+    private Memory memory;
+
+    @Before
+    public void createBus() throws Exception {
+        bus = new Bus(0x0000, 0xffff);
+        memory = new Memory(0x0000, 0x7fff);
+        bus.addDevice(memory);
+        bus.addDevice(new Acia6551(0x8800));
+    }
+
+    private static CpuState state(int pc, int ir, int... args) {
+        CpuState state = new CpuState();
+        state.lastPc = pc;
+        state.ir = ir;
+        for (int i = 0; i < args.length; i++) {
+            state.args[i] = args[i];
+        }
+        return state;
+    }
+
+    @Test
+    public void emptyFilterReturnsTheSinkItself() {
+        List<CpuState> recorded = new ArrayList<>();
+        TraceSink sink = recorded::add;
+        assertSame(sink, new TraceFilter(bus).apply(sink));
+    }
+
+    @Test
+    public void filtersByAddressAndOpcode() {
+        TraceFilter filter = new TraceFilter(bus);
+        filter.setAddressRange(0x1000, 0x1fff);
+        filter.setOpcodes("JSR,$60");
+
+        assertTrue(filter.matches(state(0x1000, 0x20, 0x00, 0x20)));
+        assertTrue(filter.matches(state(0x1fff, 0x60)));
+        assertFalse(filter.matches(state(0x2000, 0x20, 0x00, 0x20)));
+        assertFalse(filter.matches(state(0x1000, 0xea)));
+        assertEquals("JSR,$60", filter.getOpcodes());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsUnknownOpcodes() {
+        new TraceFilter(bus).setOpcodes("LDA,FOO");
+    }
+
+    @Test
+    public void ioOnlyMatchesDeviceAccesses() throws Exception {
+        TraceFilter filter = new TraceFilter(bus);
+        filter.setIoOnly(true);
+
+        // LDA $8800, STA $8801
+        assertTrue(filter.matches(state(0x0300, 0xad, 0x00, 0x88)));
+        assertTrue(filter.matches(state(0x0300, 0x8d, 0x01, 0x88)));
+        // LDA $1000, JMP $8800
+        assertFalse(filter.matches(state(0x0300, 0xad, 0x00, 0x10)));
+        assertFalse(filter.matches(state(0x0300, 0x4c, 0x00, 0x88)));
+        // NOP
+        assertFalse(filter.matches(state(0x0300, 0xea)));
+
+        // LDA ($10),Y with $10 pointing at $87ff and Y = 1
+        memory.write(0x10, 0xff);
+        memory.write(0x11, 0x87);
+        CpuState indirect = state(0x0300, 0xb1, 0x10);
+        indirect.y = 1;
+        assertTrue(filter.matches(indirect));
+        indirect.y = 0;
+        assertFalse(filter.matches(indirect));
+    }
+
+    @Test
+    public void filteredSinkOnlyRecordsMatches() {
+        List<CpuState> recorded = new ArrayList<>();
+        TraceFilter filter = new TraceFilter(bus);
+        filter.setOpcodes("NOP");
+
+        TraceSink sink = filter.apply(recorded::add);
+        sink.record(state(0x0300, 0xea));
+        sink.record(state(0x0301, 0xa9, 0x01));
+        assertEquals(1, recorded.size());
+    }
+}
@@ -0,0 +1,104 @@
+package com.loomcom.symon;
+
+import com.loomcom.symon.devices.Memory;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WatchpointsTest {
+
+    private Cpu cpu;
+    private Bus bus;
+    private Watchpoints watchpoints;
+
+    @Before
+    public void setUp() throws Exception {
+        cpu = new Cpu();
+        bus = new Bus(0x0000, 0xffff);
+        bus.addCpu(cpu);
+        bus.addDevice(new Memory(0x0000, 0xffff));
+
+        bus.write(0xfffc, 0x00);
+        bus.write(0xfffd, 0x02);
+        cpu.reset();
+
+        watchpoints = new Watchpoints();
+        watchpoints.setCpu(cpu);
+        bus.setWatchpoints(watchpoints);
+    }
+
+    @Test
+    public void testPageFlags() {
+        watchpoints.addWatchpoint(new Watchpoints.Watchpoint(0x10f0, 0x1110, Watchpoints.WRITE));
+        watchpoints.addWatchpoint(new Watchpoints.Watchpoint(0x1105, 0x1105, Watchpoints.READ));
+
+        assertEquals(0, watchpoints.getPageFlags(0x0f));
+        assertEquals(Watchpoints.WRITE, watchpoints.getPageFlags(0x10));
+        assertEquals(Watchpoints.WRITE | Watchpoints.READ, watchpoints.getPageFlags(0x11));
+        assertEquals(0, watchpoints.getPageFlags(0x12));
+
+        watchpoints.removeWatchpointAtIndex(0);
+        assertEquals(0, watchpoints.getPageFlags(0x10));
+        assertEquals(Watchpoints.READ, watchpoints.getPageFlags(0x11));
+    }
+
+    @Test
+    public void testWriteWatchpoint() throws Exception {
+        watchpoints.addWatchpoint(new Watchpoints.Watchpoint(0x0010, 0x001f, Watchpoints.WRITE));
+
+        // LDA #$01, STA $20, STA $15
+        bus.loadProgram(0xa9, 0x01, 0x85, 0x20, 0x85, 0x15);
+        watchpoints.takeHit();
+
+        cpu.step();
+        cpu.step();
+        assertFalse(watchpoints.hasHit());
+        cpu.step();
+        assertTrue(watchpoints.hasHit());
+
+        Watchpoints.Hit hit = watchpoints.takeHit();
+        assertEquals(Watchpoints.WRITE, hit.kind);
+        assertEquals(0x0015, hit.address);
+        assertEquals(0x01, hit.value);
+        assertEquals(0x0204, hit.pc);
+        assertFalse(watchpoints.hasHit());
+        assertEquals("1", watchpoints.getValueAt(0, 2));
+    }
+
+    @Test
+    public void testReadWatchpointIgnoresNonCpuReads() throws Exception {
+        watchpoints.addWatchpoint(new Watchpoints.Watchpoint(0x0300, 0x0300, Watchpoints.READ));
+
+        bus.read(0x0300, false);
+        assertFalse(watchpoints.hasHit());
+
+        // LDA $0300
+        bus.loadProgram(0xad, 0x00, 0x03);
+        watchpoints.takeHit();
+        cpu.step();
+
+        Watchpoints.Hit hit = watchpoints.takeHit();
+        assertNotNull(hit);
+        assertEquals(Watchpoints.READ, hit.kind);
+        assertEquals(0x0300, hit.address);
+    }
+
+    @Test
+    public void testChangeWatchpoint() throws Exception {
+        bus.write(0x0040, 0x05);
+        watchpoints.addWatchpoint(new Watchpoints.Watchpoint(0x0040, 0x0040, Watchpoints.CHANGE));
+
+        // Writing the same value is not a change
+        bus.write(0x0040, 0x05);
+        assertFalse(watchpoints.hasHit());
+
+        bus.write(0x0040, 0x06);
+        Watchpoints.Hit hit = watchpoints.takeHit();
+        assertNotNull(hit);
+        assertEquals(Watchpoints.CHANGE, hit.kind);
+        assertEquals(0x05, hit.oldValue);
+        assertEquals(0x06, hit.value);
+        assertEquals("Changed $05 to $06 in $0040 at PC $0000", hit.toString());
+    }
+}